@@ -0,0 +1,86 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.ParkingServiceApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контекст приложения для бенчмарков: без веб-сервера и SQL-логов, поверх PostgreSQL.
+ * <p>
+ * Горячие пути используют PostgreSQL-специфичный SQL (ON CONFLICT ... WHERE, RETURNING, COPY),
+ * поэтому по умолчанию поднимается встроенный PostgreSQL. Чтобы мерить на настоящей базе,
+ * передайте -Dbenchmark.jdbc.url (а также -Dbenchmark.jdbc.username / -Dbenchmark.jdbc.password).
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    static final String JDBC_URL_PROPERTY = "benchmark.jdbc.url";
+
+    private final EmbeddedPostgres embeddedPostgres;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(EmbeddedPostgres embeddedPostgres, ConfigurableApplicationContext context) {
+        this.embeddedPostgres = embeddedPostgres;
+        this.context = context;
+    }
+
+    static BenchmarkApplication start(Map<String, Object> overrides) throws IOException {
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        EmbeddedPostgres embeddedPostgres = null;
+        if (url == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            url = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", url);
+        properties.put("spring.datasource.username", System.getProperty("benchmark.jdbc.username", "postgres"));
+        properties.put("spring.datasource.password", System.getProperty("benchmark.jdbc.password", "postgres"));
+        properties.put("spring.main.web-application-type", "none");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        // фоновый импорт data.csv после старта мешал бы замерам
+        properties.put("parking.import.enabled", "false");
+        properties.putAll(overrides);
+
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(ParkingServiceApplication.class)
+                    .properties(properties)
+                    .run();
+            return new BenchmarkApplication(embeddedPostgres, context);
+        } catch (RuntimeException e) {
+            if (embeddedPostgres != null) {
+                embeddedPostgres.close();
+            }
+            throw e;
+        }
+    }
+
+    int localServerPort() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            context.close();
+        } finally {
+            if (embeddedPostgres != null) {
+                embeddedPostgres.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.batch.ParkingRecordLineMapper;
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.beans.PropertyEditorSupport;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение прежнего разбора строки CSV (DelimitedLineTokenizer + BeanWrapperFieldSetMapper
+ * + копирование в ParkingRecord) с {@link ParkingRecordLineMapper}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvLineMapperBenchmark {
+
+    private static final String[] LINES = {
+            "A111AA,SEDAN,2025-05-01T08:00:00,",
+            "B222BB,TRUCK,2025-05-02T09:30:00,2025-05-02T18:00:00",
+            "C333CC,MOTORCYCLE,2025-05-03T10:15:00,2025-05-03T10:45:30",
+            "D444DD,SUV,2025-05-04T23:59:59,2025-05-05T07:00:00"
+    };
+
+    private DelimitedLineTokenizer tokenizer;
+    private BeanWrapperFieldSetMapper<LegacyCsvRecord> beanWrapperMapper;
+    private ParkingRecordLineMapper lineMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames("licensePlate", "carType", "entryTime", "exitTime");
+
+        beanWrapperMapper = new BeanWrapperFieldSetMapper<>();
+        beanWrapperMapper.setTargetType(LegacyCsvRecord.class);
+        DefaultConversionService conversionService = new DefaultConversionService();
+        conversionService.addConverter((Converter<String, LocalDateTime>) source ->
+                LocalDateTime.parse(source, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        beanWrapperMapper.setConversionService(conversionService);
+        beanWrapperMapper.setCustomEditors(Map.of(LocalDateTime.class, new PropertyEditorSupport() {
+            @Override
+            public void setAsText(String text) {
+                if (text == null || text.trim().isEmpty()) {
+                    setValue(null);
+                } else {
+                    setValue(LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                }
+            }
+        }));
+        beanWrapperMapper.afterPropertiesSet();
+
+        lineMapper = new ParkingRecordLineMapper();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void beanWrapperFieldSetMapper(Blackhole blackhole) throws Exception {
+        for (String line : LINES) {
+            LegacyCsvRecord item = beanWrapperMapper.mapFieldSet(tokenizer.tokenize(line));
+            blackhole.consume(ParkingRecord.builder()
+                    .licensePlate(item.getLicensePlate())
+                    .carType(item.getCarType())
+                    .entryTime(item.getEntryTime())
+                    .exitTime(item.getExitTime())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void parkingRecordLineMapper(Blackhole blackhole) {
+        for (int i = 0; i < LINES.length; i++) {
+            blackhole.consume(lineMapper.mapLine(LINES[i], i));
+        }
+    }
+
+    @Data
+    public static class LegacyCsvRecord {
+        private String licensePlate;
+        private CarType carType;
+        private LocalDateTime entryTime;
+        private LocalDateTime exitTime;
+    }
+}
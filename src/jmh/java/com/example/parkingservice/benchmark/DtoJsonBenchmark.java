@@ -0,0 +1,115 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.controller.v1.ParkingController.EntryRequest;
+import com.example.parkingservice.controller.v1.ParkingController.EntryResponse;
+import com.example.parkingservice.controller.v1.ParkingController.ExitRequest;
+import com.example.parkingservice.controller.v1.ParkingController.ExitResponse;
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.BatchStatus;
+import com.example.parkingservice.service.ParkingService.ParkingReport;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (Де)сериализация DTO контроллера тем же ObjectMapper, что настраивает Spring MVC
+ * (JavaTimeModule, даты строками ISO-8601).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoJsonBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ObjectReader entryRequestReader;
+    private ObjectReader exitRequestReader;
+    private ObjectReader entryBatchReader;
+    private ObjectWriter writer;
+
+    private byte[] entryRequestJson;
+    private byte[] exitRequestJson;
+    private byte[] entryBatchJson;
+    private EntryResponse entryResponse;
+    private ExitResponse exitResponse;
+    private ParkingReport report;
+    private List<BatchResult> batchResults;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        entryRequestReader = objectMapper.readerFor(EntryRequest.class);
+        exitRequestReader = objectMapper.readerFor(ExitRequest.class);
+        entryBatchReader = objectMapper.readerFor(new TypeReference<List<EntryRequest>>() {
+        });
+        writer = objectMapper.writer();
+
+        LocalDateTime now = LocalDateTime.of(2025, 5, 1, 8, 0);
+        entryRequestJson = "{\"licensePlate\":\"A111AA\",\"carType\":\"SEDAN\"}".getBytes();
+        exitRequestJson = "{\"licensePlate\":\"A111AA\"}".getBytes();
+        entryResponse = new EntryResponse(now);
+        exitResponse = new ExitResponse(now.plusHours(2), 20000L);
+        report = new ParkingReport(42, 58, 93.5);
+
+        CarType[] carTypes = CarType.values();
+        List<EntryRequest> entries = new ArrayList<>(BATCH_SIZE);
+        batchResults = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            EntryRequest entry = new EntryRequest();
+            entry.setLicensePlate("A" + i + "AA");
+            entry.setCarType(carTypes[i % carTypes.length]);
+            entries.add(entry);
+            batchResults.add(i % 10 == 0
+                    ? new BatchResult(entry.getLicensePlate(), BatchStatus.DUPLICATE, null)
+                    : new BatchResult(entry.getLicensePlate(), BatchStatus.ACCEPTED, now.plusSeconds(i)));
+        }
+        entryBatchJson = writer.writeValueAsBytes(entries);
+    }
+
+    @Benchmark
+    public EntryRequest readEntryRequest() throws Exception {
+        return entryRequestReader.readValue(entryRequestJson);
+    }
+
+    @Benchmark
+    public ExitRequest readExitRequest() throws Exception {
+        return exitRequestReader.readValue(exitRequestJson);
+    }
+
+    @Benchmark
+    public List<EntryRequest> readEntryBatch() throws Exception {
+        return entryBatchReader.readValue(entryBatchJson);
+    }
+
+    @Benchmark
+    public byte[] writeEntryResponse() throws Exception {
+        return writer.writeValueAsBytes(entryResponse);
+    }
+
+    @Benchmark
+    public byte[] writeExitResponse() throws Exception {
+        return writer.writeValueAsBytes(exitResponse);
+    }
+
+    @Benchmark
+    public byte[] writeReport() throws Exception {
+        return writer.writeValueAsBytes(report);
+    }
+
+    @Benchmark
+    public byte[] writeBatchResults() throws Exception {
+        return writer.writeValueAsBytes(batchResults);
+    }
+}
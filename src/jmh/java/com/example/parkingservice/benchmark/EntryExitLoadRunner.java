@@ -0,0 +1,184 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.entity.CarType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный прогон /entry и /exit: N одновременных клиентов, каждый в цикле регистрирует въезд
+ * и выезд своего номера. Приложение поднимается дважды — на пуле потоков Tomcat и на виртуальных
+ * потоках (только на Java 21) — и для каждого режима печатаются p50/p99 и число ошибок.
+ * <p>
+ * Запуск: {@code ./mvnw -Pbenchmarks,java21 test-compile exec:exec@load-test}.
+ * Параметры: -Dload.connections (5000), -Dload.rounds (20), -Dload.result (путь к JSON),
+ * результаты обоих режимов пишутся в target/load-test-result.json.
+ * Для 5000 соединений нужен ulimit -n не меньше ~12000.
+ */
+public final class EntryExitLoadRunner {
+
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private final int connections;
+    private final int rounds;
+
+    private EntryExitLoadRunner(int connections, int rounds) {
+        this.connections = connections;
+        this.rounds = rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var runner = new EntryExitLoadRunner(
+                Integer.getInteger("load.connections", 5000),
+                Integer.getInteger("load.rounds", 20));
+        Path result = Path.of(System.getProperty("load.result", "target/load-test-result.json"));
+
+        List<ModeResult> results = new ArrayList<>();
+        results.add(runner.run("platform", false));
+        if (Runtime.version().feature() >= 21) {
+            results.add(runner.run("virtual", true));
+        } else {
+            System.out.println("Java " + Runtime.version().feature() + ": режим virtual пропущен, нужен профиль java21");
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(results.get(i).toJson());
+        }
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Files.writeString(result, json.append(']').toString());
+        System.out.println("Результаты: " + result.toAbsolutePath());
+    }
+
+    private ModeResult run(String mode, boolean virtualThreads) throws IOException {
+        try (BenchmarkApplication application = BenchmarkApplication.start(Map.of(
+                "spring.main.web-application-type", "servlet",
+                "server.port", "0",
+                "spring.threads.virtual.enabled", String.valueOf(virtualThreads)))) {
+            URI base = URI.create("http://localhost:" + application.localServerPort() + "/api/v1/parking/");
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+
+            // прогрев: одна волна, чтобы JIT и пул соединений вышли на рабочий режим
+            new Load(client, base, mode + "-warmup", 1).run();
+            Load load = new Load(client, base, mode, rounds);
+            long started = System.nanoTime();
+            load.run();
+            ModeResult result = load.result(mode, System.nanoTime() - started);
+            System.out.println(result);
+            return result;
+        }
+    }
+
+    private final class Load {
+        private final HttpClient client;
+        private final URI base;
+        private final String platePrefix;
+        private final int rounds;
+        private final long[] entryNanos;
+        private final long[] exitNanos;
+        private final AtomicInteger entryCount = new AtomicInteger();
+        private final AtomicInteger exitCount = new AtomicInteger();
+        private final AtomicLong errors = new AtomicLong();
+
+        Load(HttpClient client, URI base, String platePrefix, int rounds) {
+            this.client = client;
+            this.base = base;
+            this.platePrefix = platePrefix;
+            this.rounds = rounds;
+            this.entryNanos = new long[connections * rounds];
+            this.exitNanos = new long[connections * rounds];
+        }
+
+        void run() {
+            CompletableFuture<?>[] clients = new CompletableFuture<?>[connections];
+            for (int i = 0; i < connections; i++) {
+                clients[i] = loop(platePrefix + "-" + i, CAR_TYPES[i % CAR_TYPES.length], 0);
+            }
+            CompletableFuture.allOf(clients).join();
+        }
+
+        private CompletableFuture<Void> loop(String plate, CarType carType, int round) {
+            if (round == rounds) {
+                return CompletableFuture.completedFuture(null);
+            }
+            String entry = "{\"licensePlate\":\"" + plate + "\",\"carType\":\"" + carType + "\"}";
+            String exit = "{\"licensePlate\":\"" + plate + "\"}";
+            return send("entry", entry, entryNanos, entryCount)
+                    .thenCompose(ignored -> send("exit", exit, exitNanos, exitCount))
+                    .thenCompose(ignored -> loop(plate, carType, round + 1));
+        }
+
+        private CompletableFuture<Void> send(String path, String body, long[] latencies, AtomicInteger count) {
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(60))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            long started = System.nanoTime();
+            return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies[count.getAndIncrement()] = System.nanoTime() - started;
+                        }
+                        return null;
+                    });
+        }
+
+        ModeResult result(String mode, long elapsedNanos) {
+            return new ModeResult(mode, connections, elapsedNanos,
+                    Percentiles.of(entryNanos, entryCount.get()),
+                    Percentiles.of(exitNanos, exitCount.get()),
+                    errors.get());
+        }
+    }
+
+    private record Percentiles(int count, double p50Millis, double p99Millis, double maxMillis) {
+
+        static Percentiles of(long[] nanos, int count) {
+            if (count == 0) {
+                return new Percentiles(0, 0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new Percentiles(count, millis(sorted, 0.50), millis(sorted, 0.99), sorted[count - 1] / 1e6);
+        }
+
+        private static double millis(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"count\":%d,\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    count, p50Millis, p99Millis, maxMillis);
+        }
+    }
+
+    private record ModeResult(String mode, int connections, long elapsedNanos,
+                              Percentiles entry, Percentiles exit, long errors) {
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"mode\":\"%s\",\"connections\":%d,\"elapsedMs\":%d,\"entry\":%s,\"exit\":%s,\"errors\":%d}",
+                    mode, connections, elapsedNanos / 1_000_000, entry.toJson(), exit.toJson(), errors);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.batch.ImportWriterMode;
+import com.example.parkingservice.entity.CarType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный прогон importParkingJob (чтение CSV, разбор строк, запись чанками) по сгенерированному файлу.
+ * Перед каждой итерацией таблицы очищаются, чтобы все режимы писали в одинаковое состояние базы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ImportPipelineBenchmark {
+
+    @Param({"REPOSITORY", "JDBC", "COPY"})
+    public ImportWriterMode writer;
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private Path csv;
+    private BenchmarkApplication application;
+    private JobLauncher jobLauncher;
+    private Job importParkingJob;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = writeCsv(rows);
+        application = BenchmarkApplication.start(Map.of(
+                "parking.import.writer", writer.name(),
+                "parking.import.resource", csv.toUri().toString()));
+        jobLauncher = application.getBean(JobLauncher.class);
+        importParkingJob = application.getBean("importParkingJob", Job.class);
+        jdbcTemplate = application.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE parking_record, parking_duration_stats");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try {
+            application.close();
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Benchmark
+    public JobExecution importParkingJob() throws Exception {
+        var params = new JobParametersBuilder()
+                .addLong("run", System.nanoTime())
+                .toJobParameters();
+        JobExecution execution = jobLauncher.run(importParkingJob, params);
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("Импорт завершился со статусом " + execution.getStatus());
+        }
+        return execution;
+    }
+
+    /**
+     * Все сессии в файле закрыты: открытые сессии с повторяющимися номерами
+     * нарушили бы уникальный индекс при повторном импорте.
+     */
+    private static Path writeCsv(int rows) throws IOException {
+        Path file = Files.createTempFile("parking-import-", ".csv");
+        CarType[] carTypes = CarType.values();
+        LocalDateTime base = LocalDateTime.of(2025, 5, 1, 0, 0);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("licensePlate,carType,entryTime,exitTime");
+            out.newLine();
+            for (int i = 0; i < rows; i++) {
+                LocalDateTime entry = base.plusMinutes(i);
+                LocalDateTime exit = entry.plusMinutes(15 + i % 240);
+                out.write("IM" + i + ',' + carTypes[i % carTypes.length] + ',' + entry + ',' + exit);
+                out.newLine();
+            }
+        }
+        return file;
+    }
+}
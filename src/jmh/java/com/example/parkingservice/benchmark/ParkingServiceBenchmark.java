@@ -0,0 +1,84 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.ParkingReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Горячие пути {@link ParkingService}: въезд, выезд и отчет — поверх реальной базы
+ * (см. {@link BenchmarkApplication}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private final AtomicLong plates = new AtomicLong();
+
+    private BenchmarkApplication application;
+    private ParkingService parkingService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        application = BenchmarkApplication.start(Map.of());
+        parkingService = application.getBean(ParkingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    String nextPlate() {
+        return "BM" + plates.incrementAndGet();
+    }
+
+    CarType carType(String plate) {
+        return CAR_TYPES[Math.floorMod(plate.hashCode(), CAR_TYPES.length)];
+    }
+
+    /**
+     * Для замера выезда каждому вызову нужна своя открытая сессия;
+     * въезд регистрируется в подготовке вызова и в замер не входит.
+     */
+    @State(Scope.Thread)
+    public static class ParkedCar {
+        String licensePlate;
+
+        @Setup(Level.Invocation)
+        public void park(ParkingServiceBenchmark benchmark) {
+            licensePlate = benchmark.nextPlate();
+            benchmark.parkingService.registerEntry(licensePlate, benchmark.carType(licensePlate));
+        }
+    }
+
+    @Benchmark
+    public ParkingRecord registerEntry() {
+        String plate = nextPlate();
+        return parkingService.registerEntry(plate, carType(plate));
+    }
+
+    @Benchmark
+    public ParkingRecord registerExit(ParkedCar car) {
+        return parkingService.registerExit(car.licensePlate);
+    }
+
+    @Benchmark
+    public ParkingReport getReport() {
+        LocalDateTime now = LocalDateTime.now();
+        return parkingService.getReport(now.minusDays(1), now, 100);
+    }
+}
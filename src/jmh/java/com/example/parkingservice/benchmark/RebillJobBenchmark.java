@@ -0,0 +1,95 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.batch.ParkingRebillLauncher;
+import com.example.parkingservice.repository.ParkingRecordPartitions;
+import com.example.parkingservice.service.TariffEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный прогон rebillParkingJob по {@value #SESSIONS} завершённым парковкам трёх площадок; результат —
+ * парковок в секунду. Перед каждым прогоном стоимость сбрасывается, чтобы задание переписывало все строки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RebillJobBenchmark {
+
+    private static final int SESSIONS = 200_000;
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 5, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusYears(1);
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private BenchmarkApplication application;
+    private JobLauncher jobLauncher;
+    private Job rebillParkingJob;
+    private JdbcTemplate jdbcTemplate;
+    private String tariff;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        application = BenchmarkApplication.start(Map.of(
+                "parking.billing.threads", threads,
+                "parking.billing.grid-size", threads * 2));
+        jobLauncher = application.getBean(JobLauncher.class);
+        rebillParkingJob = application.getBean("rebillParkingJob", Job.class);
+        jdbcTemplate = application.getBean(JdbcTemplate.class);
+        tariff = application.getBean(TariffEngine.class).definition();
+
+        jdbcTemplate.execute("TRUNCATE parking_record");
+        // заданию площадки не нужны, только секции для строк
+        for (long lotId = 2; lotId <= 3; lotId++) {
+            jdbcTemplate.execute(ParkingRecordPartitions.createPartitionSql(lotId));
+        }
+        jdbcTemplate.update("""
+                INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time, exit_time)
+                SELECT g, 1 + g % 3, 'RB' || g,
+                       (ARRAY['SEDAN', 'SUV', 'TRUCK', 'VAN', 'MOTORCYCLE'])[1 + g % 5],
+                       CAST(? AS TIMESTAMP) + g * INTERVAL '2 minutes',
+                       CAST(? AS TIMESTAMP) + g * INTERVAL '2 minutes' + (15 + g % 3000) * INTERVAL '1 minute'
+                FROM generate_series(1, ?) g
+                """, FROM, FROM, SESSIONS);
+        jdbcTemplate.execute("ANALYZE parking_record");
+    }
+
+    @Setup(Level.Invocation)
+    public void resetFees() {
+        jdbcTemplate.update("UPDATE parking_record SET fee = NULL");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        application.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SESSIONS)
+    public JobExecution rebillParkingJob() throws Exception {
+        var params = new JobParametersBuilder()
+                .addLocalDateTime(ParkingRebillLauncher.FROM_PARAM, FROM)
+                .addLocalDateTime(ParkingRebillLauncher.TO_PARAM, TO)
+                .addString(ParkingRebillLauncher.TARIFF_PARAM, tariff)
+                .addLong("run", System.nanoTime())
+                .toJobParameters();
+        JobExecution execution = jobLauncher.run(rebillParkingJob, params);
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("Перерасчёт завершился со статусом " + execution.getStatus());
+        }
+        return execution;
+    }
+}
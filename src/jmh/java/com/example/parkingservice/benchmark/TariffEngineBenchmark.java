@@ -0,0 +1,62 @@
+package com.example.parkingservice.benchmark;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.TariffEngine;
+import com.example.parkingservice.service.TariffEngine.Tariff;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт стоимости одной парковки {@link TariffEngine#fee}; результат — парковок в секунду на поток.
+ * Длительности от минут до нескольких суток, чтобы в замер попадали и переходы полос, и суточный предел.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TariffEngineBenchmark {
+
+    private static final int SESSIONS = 4096;
+
+    private final CarType[] carTypes = new CarType[SESSIONS];
+    private final LocalDateTime[] entryTimes = new LocalDateTime[SESSIONS];
+    private final LocalDateTime[] exitTimes = new LocalDateTime[SESSIONS];
+    private TariffEngine engine;
+
+    @Setup
+    public void setUp() {
+        Map<CarType, Tariff> tariffs = new EnumMap<>(CarType.class);
+        for (CarType carType : CarType.values()) {
+            tariffs.put(carType, Tariff.parse("00:00=5000,07:00=8000,09:00=12000,18:00=10000,22:00=5000", 150_000));
+        }
+        engine = new TariffEngine(tariffs);
+
+        SplittableRandom random = new SplittableRandom(42);
+        CarType[] types = CarType.values();
+        LocalDateTime base = LocalDateTime.of(2025, 5, 1, 0, 0);
+        for (int i = 0; i < SESSIONS; i++) {
+            carTypes[i] = types[random.nextInt(types.length)];
+            entryTimes[i] = base.plusSeconds(random.nextInt(30 * 24 * 3600));
+            // в основном до суток, каждая десятая — до трёх суток
+            int maxMinutes = i % 10 == 0 ? 3 * 24 * 60 : 24 * 60;
+            exitTimes[i] = entryTimes[i].plusMinutes(1 + random.nextInt(maxMinutes));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SESSIONS)
+    public long fee() {
+        long total = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            total += engine.fee(carTypes[i], entryTimes[i], exitTimes[i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+
+/**
+ * Завершённая парковка в задании перерасчёта: только поля, нужные тарифу, и текущая стоимость.
+ */
+public record BillableSession(long id, long lotId, CarType carType, LocalDateTime entryTime,
+                              LocalDateTime exitTime, Long fee) {
+
+    static final String COLUMNS = "id, lot_id, car_type, entry_time, exit_time, fee";
+
+    static final RowMapper<BillableSession> ROW_MAPPER = (rs, rowNum) -> new BillableSession(
+            rs.getLong("id"),
+            rs.getLong("lot_id"),
+            CarType.valueOf(rs.getString("car_type")),
+            rs.getObject("entry_time", LocalDateTime.class),
+            rs.getObject("exit_time", LocalDateTime.class),
+            // NULL — парковка ещё не тарифицирована, в том числе когда по тарифу она стоит 0
+            rs.getObject("fee", Long.class));
+
+    BillableSession withFee(long fee) {
+        return new BillableSession(id, lotId, carType, entryTime, exitTime, fee);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.parkingservice.batch;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Байты [start, end) другого ресурса. Файл открывается сразу на смещении start, остальные ресурсы
+ * пропускают начало потока: партиция импорта читает только свой диапазон, а не всё, что перед ним.
+ */
+public class ByteRangeResource extends AbstractResource {
+
+    private final Resource delegate;
+    private final long start;
+    private final long end;
+
+    public ByteRangeResource(Resource delegate, long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Неверный диапазон байтов [" + start + ", " + end + ")");
+        }
+        this.delegate = delegate;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream in;
+        if (delegate.isFile()) {
+            FileChannel channel = FileChannel.open(delegate.getFile().toPath(), StandardOpenOption.READ);
+            channel.position(start);
+            in = Channels.newInputStream(channel);
+        } else {
+            in = delegate.getInputStream();
+            in.skipNBytes(start);
+        }
+        return new RangeInputStream(in, end - start);
+    }
+
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+
+    @Override
+    public long contentLength() {
+        return end - start;
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription() + " [" + start + ", " + end + ")";
+    }
+
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.parkingservice.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Делит набор CSV-файлов на диапазоны байтов примерно одинакового размера, выровненные по началу строки.
+ * Контекст партиции хранит файл и границы [startOffset, endOffset): читатель шага открывает файл сразу на своём
+ * смещении ({@link ByteRangeResource}), поэтому каждая партиция читает только свои байты и суммарное чтение
+ * не растёт с числом партиций. Состояние читателя в BATCH_STEP_EXECUTION_CONTEXT позволяет перезапускать каждую
+ * партицию отдельно. Заголовок в диапазоны не входит.
+ */
+@Slf4j
+public class CsvLineRangePartitioner implements Partitioner {
+
+    public static final String RESOURCE_KEY = "resource";
+    public static final String START_OFFSET_KEY = "startOffset";
+    public static final String END_OFFSET_KEY = "endOffset";
+
+    private final Resource[] resources;
+    private final int headerLines;
+
+    public CsvLineRangePartitioner(Resource[] resources, int headerLines) {
+        this.resources = resources;
+        this.headerLines = headerLines;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        long[] dataStart = new long[resources.length];
+        long[] size = new long[resources.length];
+        long total = 0;
+        for (int i = 0; i < resources.length; i++) {
+            size[i] = contentLength(resources[i]);
+            dataStart[i] = lineStartAfter(resources[i], 0, size[i], headerLines);
+            total += size[i] - dataStart[i];
+        }
+        long rangeSize = Math.max(1, (total + gridSize - 1) / gridSize);
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (int i = 0; i < resources.length; i++) {
+            long start = dataStart[i];
+            while (start < size[i]) {
+                long end = start + rangeSize >= size[i]
+                        ? size[i]
+                        : lineStartAfter(resources[i], start + rangeSize - 1, size[i], 1);
+                ExecutionContext context = new ExecutionContext();
+                context.putString(RESOURCE_KEY, urlOf(resources[i]));
+                context.putLong(START_OFFSET_KEY, start);
+                context.putLong(END_OFFSET_KEY, end);
+                partitions.put("partition" + partitions.size(), context);
+                start = end;
+            }
+        }
+        log.info("Импорт разбит на {} партиций по ~{} байт из {} файлов", partitions.size(), rangeSize, resources.length);
+        return partitions;
+    }
+
+    /**
+     * Смещение сразу после lines-го перевода строки, начиная с from; size, если файл кончился раньше.
+     */
+    private static long lineStartAfter(Resource resource, long from, long size, int lines) {
+        if (lines == 0) {
+            return from;
+        }
+        try (InputStream in = new BufferedInputStream(new ByteRangeResource(resource, from, size).getInputStream())) {
+            long offset = from;
+            int found = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                offset++;
+                if (b == '\n' && ++found == lines) {
+                    return offset;
+                }
+            }
+            return size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + resource, e);
+        }
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + resource, e);
+        }
+    }
+
+    private static String urlOf(Resource resource) {
+        try {
+            return resource.getURL().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось получить URL " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.parkingservice.batch;
+
+import java.time.LocalDateTime;
+
+/**
+ * Разбор {@code yyyy-MM-ddTHH:mm[:ss[.SSSSSSSSS]]} прямо из строки CSV, без
+ * DateTimeFormatter и промежуточных объектов разбора.
+ */
+final class CsvTimestampParser {
+
+    private CsvTimestampParser() {
+    }
+
+    static LocalDateTime parse(CharSequence text, int from, int to) {
+        int length = to - from;
+        if (length < 16 || text.charAt(from + 4) != '-' || text.charAt(from + 7) != '-'
+                || text.charAt(from + 10) != 'T' || text.charAt(from + 13) != ':') {
+            throw invalid(text, from, to);
+        }
+        int year = digits(text, from, 4, from, to);
+        int month = digits(text, from + 5, 2, from, to);
+        int day = digits(text, from + 8, 2, from, to);
+        int hour = digits(text, from + 11, 2, from, to);
+        int minute = digits(text, from + 14, 2, from, to);
+        int second = 0;
+        int nanos = 0;
+        if (length > 16) {
+            if (length < 19 || text.charAt(from + 16) != ':') {
+                throw invalid(text, from, to);
+            }
+            second = digits(text, from + 17, 2, from, to);
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (text.charAt(from + 19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    throw invalid(text, from, to);
+                }
+                nanos = digits(text, from + 20, fractionDigits, from, to);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nanos *= 10;
+                }
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+    }
+
+    private static int digits(CharSequence text, int start, int count, int from, int to) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw invalid(text, from, to);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text, int from, int to) {
+        return new IllegalArgumentException("Некорректная дата: " + text.subSequence(from, to));
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.parkingservice.batch;
+
+public enum ImportWriterMode {
+    /** Сохранение по одной сущности через ParkingRecordRepository (JPA). */
+    REPOSITORY,
+    /** JDBC batch INSERT с id из блоков parking_record_seq. */
+    JDBC,
+    /** COPY FROM STDIN через CopyManager драйвера PostgreSQL, на других базах — REPOSITORY. */
+    COPY
+}
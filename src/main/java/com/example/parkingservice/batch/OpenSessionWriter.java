@@ -0,0 +1,71 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Открытые сессии импорта вставляются с пропуском конфликта по частичному уникальному индексу активных номеров:
+ * в файле может оказаться въезд машины, которая уже стоит на площадке, и такая строка не должна откатывать чанк
+ * и останавливать задание. Пропущенные строки убираются из чанка, поэтому слушатели записи их не учитывают,
+ * и считаются в {@code parking.import.rejected{reason=active-session}}.
+ */
+@Slf4j
+@Component
+public class OpenSessionWriter {
+
+    private final ParkingRecordJdbcRepository jdbcRepository;
+    private final Counter rejected;
+
+    public OpenSessionWriter(ParkingRecordJdbcRepository jdbcRepository, MeterRegistry registry) {
+        this.jdbcRepository = jdbcRepository;
+        this.rejected = Counter.builder("parking.import.rejected")
+                .tag("reason", "active-session")
+                .description("Открытые сессии импорта, пропущенные из-за уже активной сессии номера")
+                .register(registry);
+    }
+
+    /**
+     * Вставляет открытые сессии чанка с уже назначенными id и возвращает завершённые парковки — их пишет
+     * основной способ записи.
+     */
+    public List<ParkingRecord> writeOpen(Chunk<? extends ParkingRecord> chunk) {
+        List<ParkingRecord> open = new ArrayList<>();
+        List<ParkingRecord> closed = new ArrayList<>(chunk.size());
+        for (ParkingRecord record : chunk) {
+            (record.getExitTime() == null ? open : closed).add(record);
+        }
+        if (open.isEmpty()) {
+            return closed;
+        }
+        int[] counts = jdbcRepository.insertIfAbsent(open);
+        Set<ParkingRecord> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < open.size(); i++) {
+            if (counts[i] <= 0) {
+                skipped.add(open.get(i));
+                rejected.increment();
+                log.warn("Импорт: въезд {} на площадку {} пропущен, у номера уже есть активная сессия",
+                        open.get(i).getLicensePlate(), open.get(i).getLotId());
+            }
+        }
+        if (!skipped.isEmpty()) {
+            for (Iterator<? extends ParkingRecord> it = chunk.iterator(); it.hasNext(); ) {
+                if (skipped.contains(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+        return closed;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.parkingservice.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Запускает архивацию по расписанию: в архив уходят парковки, завершённые раньше, чем {@code retention} назад.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class ParkingArchiveScheduler {
+
+    private final JobLauncher jobLauncher;
+    private final Job archiveParkingJob;
+    private final Duration retention;
+
+    public ParkingArchiveScheduler(JobLauncher jobLauncher, Job archiveParkingJob,
+                                   @Value("${parking.archive.retention:P90D}") Duration retention) {
+        this.jobLauncher = jobLauncher;
+        this.archiveParkingJob = archiveParkingJob;
+        this.retention = retention;
+    }
+
+    @Scheduled(cron = "${parking.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        // граница округлена до дня: повторный запуск в тот же день продолжает прерванное задание
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention).truncatedTo(ChronoUnit.DAYS);
+        var params = new JobParametersBuilder()
+                .addLocalDateTime("cutoff", cutoff)
+                .toJobParameters();
+        try {
+            JobExecution execution = jobLauncher.run(archiveParkingJob, params);
+            log.info("Архивация до {}: {}", cutoff, execution.getStatus());
+        } catch (JobExecutionException e) {
+            log.warn("Архивация до {} не запущена: {}", cutoff, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.repository.ParkingRecordArchiveRepository;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Переносит завершённые парковки с выездом до {@code cutoff} порциями по {@code chunkSize}.
+ * Каждый вызов — отдельная транзакция шага, поэтому прерванное задание продолжает с оставшихся строк.
+ */
+public class ParkingArchiveTasklet implements Tasklet {
+
+    private final ParkingRecordArchiveRepository archiveRepository;
+    private final LocalDateTime cutoff;
+    private final int chunkSize;
+
+    public ParkingArchiveTasklet(ParkingRecordArchiveRepository archiveRepository, LocalDateTime cutoff, int chunkSize) {
+        this.archiveRepository = archiveRepository;
+        this.cutoff = cutoff;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        int moved = archiveRepository.moveClosedBefore(cutoff, chunkSize);
+        contribution.incrementWriteCount(moved);
+        return RepeatStatus.continueIf(moved > 0);
+    }
+}
@@ -1,28 +1,49 @@
 package com.example.parkingservice.batch;
 
 import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordArchiveRepository;
+import com.example.parkingservice.repository.ParkingRecordIdAllocator;
 import com.example.parkingservice.repository.ParkingRecordRepository;
+import com.example.parkingservice.service.TariffEngine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.data.RepositoryItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
-import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.convert.support.DefaultConversionService;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
-import java.beans.PropertyEditorSupport;
+import javax.sql.DataSource;
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 @Configuration
 @EnableBatchProcessing
@@ -32,45 +53,81 @@ public class ParkingBatchConfig {
     private final ParkingRecordRepository repository;
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
+    private final ParkingImportListener importListener;
+    private final ParkingStatsWriteListener statsWriteListener;
+    private final ParkingImportMetricsListener importMetricsListener;
+    private final DataSource dataSource;
+    private final ParkingRecordIdAllocator idAllocator;
+    private final ResourcePatternResolver resourceResolver;
+    private final Environment environment;
+    private final ParkingRecordArchiveRepository archiveRepository;
+    private final TariffEngine tariffEngine;
+    private final OpenSessionWriter openSessionWriter;
 
-    @Bean
-    public FlatFileItemReader<ParkingCsvRecord> parkingReader() {
-        BeanWrapperFieldSetMapper<ParkingCsvRecord> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
-        fieldSetMapper.setTargetType(ParkingCsvRecord.class);
+    @Value("${parking.import.writer:COPY}")
+    private ImportWriterMode writerMode;
+
+    @Value("${parking.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${parking.import.resource:classpath:data.csv}")
+    private String importResource;
+
+    @Value("${parking.import.lot-id:1}")
+    private long importLotId;
+
+    @Value("${parking.import.partitioned:false}")
+    private boolean partitioned;
+
+    @Value("${parking.import.resources:${parking.import.resource:classpath:data.csv}}")
+    private String partitionedResources;
+
+    @Value("${parking.import.grid-size:4}")
+    private int gridSize;
+
+    @Value("${parking.import.threads:4}")
+    private int threads;
 
-        DefaultConversionService conversionService = new DefaultConversionService();
-        conversionService.addConverter(new StringToLocalDateTimeConverter());
-        fieldSetMapper.setConversionService(conversionService);
+    @Value("${parking.archive.chunk-size:5000}")
+    private int archiveChunkSize;
 
-        fieldSetMapper.setCustomEditors(Map.of(LocalDateTime.class, new PropertyEditorSupport() {
-            @Override
-            public void setAsText(String text) {
-                if (text == null || text.trim().isEmpty()) {
-                    setValue(null);
-                } else {
-                    setValue(LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                }
-            }
-        }));
+    @Value("${parking.billing.chunk-size:1000}")
+    private int billingChunkSize;
 
-        return new FlatFileItemReaderBuilder<ParkingCsvRecord>()
+    @Value("${parking.billing.grid-size:8}")
+    private int billingGridSize;
+
+    @Value("${parking.billing.threads:4}")
+    private int billingThreads;
+
+    @Bean
+    @StepScope
+    public FlatFileItemReader<ParkingRecord> parkingReader(
+            @Value("#{stepExecutionContext['" + CsvLineRangePartitioner.RESOURCE_KEY + "']}") String resource,
+            @Value("#{stepExecutionContext['" + CsvLineRangePartitioner.START_OFFSET_KEY + "']}") Long startOffset,
+            @Value("#{stepExecutionContext['" + CsvLineRangePartitioner.END_OFFSET_KEY + "']}") Long endOffset) {
+        var reader = new FlatFileItemReaderBuilder<ParkingRecord>()
                 .name("parkingCsvReader")
-                .resource(new ClassPathResource("data.csv"))
-                .delimited()
-                .names("licensePlate", "carType", "entryTime", "exitTime")
-                .fieldSetMapper(fieldSetMapper)
-                .linesToSkip(1)
+                .lineMapper(new ParkingRecordLineMapper(importLotId));
+        if (startOffset == null) {
+            return reader.resource(resourceResolver.getResource(importResource)).linesToSkip(1).build();
+        }
+        // партиция открывает файл сразу на своём смещении; заголовок в её диапазон не входит
+        return reader.resource(new ByteRangeResource(resourceResolver.getResource(resource), startOffset, endOffset))
                 .build();
     }
 
-
     @Bean
-    public ParkingCsvProcessor parkingProcessor() {
-        return new ParkingCsvProcessor();
+    public ItemWriter<ParkingRecord> parkingWriter() {
+        ItemWriter<ParkingRecord> writer = switch (writerMode) {
+            case REPOSITORY -> repositoryWriter();
+            case JDBC -> new ParkingRecordJdbcItemWriter(dataSource, idAllocator, openSessionWriter);
+            case COPY -> new ParkingRecordCopyItemWriter(dataSource, idAllocator, openSessionWriter, repositoryWriter());
+        };
+        return new ParkingRecordFeeItemWriter(tariffEngine, writer);
     }
 
-    @Bean
-    public RepositoryItemWriter<ParkingRecord> parkingWriter() {
+    private RepositoryItemWriter<ParkingRecord> repositoryWriter() {
         RepositoryItemWriter<ParkingRecord> writer = new RepositoryItemWriter<>();
         writer.setRepository(repository);
         writer.setMethodName("save");
@@ -80,21 +137,206 @@ public class ParkingBatchConfig {
     @Bean
     public Step importParkingStep() {
         return new StepBuilder("importParkingStep", jobRepository)
-                .<ParkingCsvRecord, ParkingRecord>chunk(10, transactionManager)
-                .reader(parkingReader())
-                .processor(parkingProcessor())
+                .<ParkingRecord, ParkingRecord>chunk(chunkSize, transactionManager)
+                .reader(parkingReader(null, null, null))
                 .writer(parkingWriter())
+                .listener(statsWriteListener)
+                .listener((ItemWriteListener<ParkingRecord>) importMetricsListener)
+                .listener((ChunkListener) importMetricsListener)
                 .build();
     }
 
     @Bean
-    public Job importParkingJob() {
+    public Step importParkingPartitionStep() throws IOException {
+        Resource[] resources = resourceResolver.getResources(partitionedResources);
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("parking-import-");
+        taskExecutor.setConcurrencyLimit(threads);
+        // spring.threads.virtual.enabled=true на Java 21: партиции читают файл и ждут JDBC на виртуальных потоках
+        taskExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+
+        return new StepBuilder("importParkingPartitionStep", jobRepository)
+                .partitioner("importParkingStep", new CsvLineRangePartitioner(resources, 1))
+                .step(importParkingStep())
+                .gridSize(gridSize)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    @Bean
+    public Job importParkingJob() throws IOException {
         return new JobBuilder("importParkingJob", jobRepository)
-                .start(importParkingStep())
+                .start(partitioned ? importParkingPartitionStep() : importParkingStep())
+                .listener(importListener)
                 .build();
     }
 
-}
+    @Bean
+    @StepScope
+    public Tasklet archivePartitionsTasklet(@Value("#{jobParameters['cutoff']}") LocalDateTime cutoff) {
+        return (contribution, chunkContext) -> {
+            archiveRepository.ensurePartitions(cutoff);
+            return RepeatStatus.FINISHED;
+        };
+    }
 
+    @Bean
+    @StepScope
+    public ParkingArchiveTasklet archiveTasklet(@Value("#{jobParameters['cutoff']}") LocalDateTime cutoff) {
+        return new ParkingArchiveTasklet(archiveRepository, cutoff, archiveChunkSize);
+    }
 
+    @Bean
+    public Step archivePartitionsStep() {
+        return new StepBuilder("archivePartitionsStep", jobRepository)
+                .tasklet(archivePartitionsTasklet(null), transactionManager)
+                .build();
+    }
 
+    @Bean
+    public Step archiveParkingStep() {
+        return new StepBuilder("archiveParkingStep", jobRepository)
+                .tasklet(archiveTasklet(null), transactionManager)
+                .build();
+    }
+
+    /**
+     * Перенос завершённых парковок старше срока хранения в месячные секции архива.
+     * Параметр задания {@code cutoff} — граница по времени выезда.
+     */
+    @Bean
+    public Job archiveParkingJob() {
+        return new JobBuilder("archiveParkingJob", jobRepository)
+                .start(archivePartitionsStep())
+                .next(archiveParkingStep())
+                .build();
+    }
+
+    /**
+     * Партиция перерасчёта: парковки одной площадки из диапазона id или одного месяца въезда архива,
+     * страницами по первичному ключу. Состояние читателя хранится в контексте шага, поэтому перезапуск
+     * продолжает с последней страницы.
+     */
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<BillableSession> rebillReader(
+            @Value("#{jobParameters['" + ParkingRebillLauncher.FROM_PARAM + "']}") LocalDateTime from,
+            @Value("#{jobParameters['" + ParkingRebillLauncher.TO_PARAM + "']}") LocalDateTime to,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.TABLE_KEY + "']}") String table,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.LOT_ID_KEY + "']}") Long lotId,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.MIN_ID_KEY + "']}") Long minId,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.MAX_ID_KEY + "']}") Long maxId,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.ENTRY_FROM_KEY + "']}") LocalDateTime entryFrom,
+            @Value("#{stepExecutionContext['" + RebillPartitioner.ENTRY_TO_KEY + "']}") LocalDateTime entryTo) {
+        var reader = new JdbcPagingItemReaderBuilder<BillableSession>()
+                .name("rebillReader")
+                .dataSource(dataSource)
+                .selectClause("SELECT " + BillableSession.COLUMNS)
+                .rowMapper(BillableSession.ROW_MAPPER)
+                .pageSize(billingChunkSize);
+        if (RebillPartitioner.ARCHIVE_TABLE.equals(table)) {
+            Map<String, Order> sortKeys = new LinkedHashMap<>();
+            sortKeys.put("entry_time", Order.ASCENDING);
+            sortKeys.put("id", Order.ASCENDING);
+            return reader
+                    .fromClause("FROM parking_record_archive")
+                    .whereClause("WHERE entry_time >= :entryFrom AND entry_time < :entryTo"
+                            + " AND exit_time >= :from AND exit_time < :to")
+                    .parameterValues(Map.of("entryFrom", entryFrom, "entryTo", entryTo, "from", from, "to", to))
+                    .sortKeys(sortKeys)
+                    .build();
+        }
+        return reader
+                .fromClause("FROM parking_record")
+                .whereClause("WHERE lot_id = :lotId AND id BETWEEN :minId AND :maxId"
+                        + " AND exit_time >= :from AND exit_time < :to")
+                .parameterValues(Map.of("lotId", lotId, "minId", minId, "maxId", maxId, "from", from, "to", to))
+                .sortKeys(Map.of("id", Order.ASCENDING))
+                .build();
+    }
+
+    /**
+     * Парковки, стоимость которых по текущему тарифу не изменилась, отфильтровываются и не перезаписываются.
+     */
+    @Bean
+    public ItemProcessor<BillableSession, BillableSession> rebillProcessor() {
+        return session -> {
+            long fee = tariffEngine.fee(session.carType(), session.entryTime(), session.exitTime());
+            return Objects.equals(session.fee(), fee) ? null : session.withFee(fee);
+        };
+    }
+
+    /**
+     * Записывает стоимость в хранилище партиции по его первичному ключу.
+     */
+    @Bean
+    @StepScope
+    public JdbcBatchItemWriter<BillableSession> rebillWriter(
+            @Value("#{stepExecutionContext['" + RebillPartitioner.TABLE_KEY + "']}") String table) {
+        var writer = new JdbcBatchItemWriterBuilder<BillableSession>()
+                .dataSource(dataSource)
+                // парковку могло перенести в архив задание архивации
+                .assertUpdates(false);
+        if (RebillPartitioner.ARCHIVE_TABLE.equals(table)) {
+            return writer
+                    .sql("UPDATE parking_record_archive SET fee = ? WHERE entry_time = ? AND id = ?")
+                    .itemPreparedStatementSetter((session, ps) -> {
+                        ps.setLong(1, session.fee());
+                        ps.setObject(2, session.entryTime());
+                        ps.setLong(3, session.id());
+                    })
+                    .build();
+        }
+        return writer
+                .sql("UPDATE parking_record SET fee = ? WHERE lot_id = ? AND id = ?")
+                .itemPreparedStatementSetter((session, ps) -> {
+                    ps.setLong(1, session.fee());
+                    ps.setLong(2, session.lotId());
+                    ps.setLong(3, session.id());
+                })
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public RebillPartitioner rebillPartitioner(
+            @Value("#{jobParameters['" + ParkingRebillLauncher.FROM_PARAM + "']}") LocalDateTime from,
+            @Value("#{jobParameters['" + ParkingRebillLauncher.TO_PARAM + "']}") LocalDateTime to) {
+        return new RebillPartitioner(new JdbcTemplate(dataSource), from, to);
+    }
+
+    @Bean
+    public Step rebillParkingStep() {
+        return new StepBuilder("rebillParkingStep", jobRepository)
+                .<BillableSession, BillableSession>chunk(billingChunkSize, transactionManager)
+                .reader(rebillReader(null, null, null, null, null, null, null, null))
+                .processor(rebillProcessor())
+                .writer(rebillWriter(null))
+                .build();
+    }
+
+    @Bean
+    public Step rebillParkingPartitionStep() {
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("parking-rebill-");
+        taskExecutor.setConcurrencyLimit(billingThreads);
+        taskExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+
+        return new StepBuilder("rebillParkingPartitionStep", jobRepository)
+                .partitioner("rebillParkingStep", rebillPartitioner(null, null))
+                .step(rebillParkingStep())
+                .gridSize(billingGridSize)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    /**
+     * Перерасчёт стоимости завершённых парковок с выездом в [from, to) по текущим тарифам, включая архив.
+     * Параметры {@code from}, {@code to} и {@code tariff} ({@link TariffEngine#definition()}) описывают прогон,
+     * {@code run} отличает повторные прогоны того же периода.
+     */
+    @Bean
+    public Job rebillParkingJob() {
+        return new JobBuilder("rebillParkingJob", jobRepository)
+                .start(rebillParkingPartitionStep())
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.parkingservice.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+/**
+ * Запускает импорт CSV в фоне после старта приложения: запросы обслуживаются, пока идёт загрузка.
+ * <p>
+ * Задание идентифицируется содержимым входа — SHA-256 и размером файлов — и площадкой, поэтому
+ * уже загруженный файл при следующем старте не импортируется повторно, а прерванный импорт того же
+ * файла продолжается с последнего зафиксированного чанка. Ход импорта виден в {@link ParkingImportHealthIndicator}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.import.enabled", havingValue = "true", matchIfMissing = true)
+public class ParkingImportLauncher {
+
+    static final String CHECKSUM_PARAM = "input.checksum";
+    static final String SIZE_PARAM = "input.size";
+    static final String LOT_PARAM = "lot.id";
+
+    private final JobLauncher jobLauncher;
+    private final Job importParkingJob;
+    private final ResourcePatternResolver resourceResolver;
+    private final String resources;
+    private final long lotId;
+
+    private volatile ImportStatus status = new ImportStatus(ImportState.PENDING, null, null, null);
+
+    public ParkingImportLauncher(JobLauncher jobLauncher,
+                                 Job importParkingJob,
+                                 ResourcePatternResolver resourceResolver,
+                                 @Value("${parking.import.partitioned:false}") boolean partitioned,
+                                 @Value("${parking.import.resource:classpath:data.csv}") String resource,
+                                 @Value("${parking.import.resources:${parking.import.resource:classpath:data.csv}}") String partitionedResources,
+                                 @Value("${parking.import.lot-id:1}") long lotId) {
+        this.jobLauncher = jobLauncher;
+        this.importParkingJob = importParkingJob;
+        this.resourceResolver = resourceResolver;
+        this.resources = partitioned ? partitionedResources : resource;
+        this.lotId = lotId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void launchAfterStartup() {
+        new SimpleAsyncTaskExecutor("parking-import-launch-").execute(this::runImport);
+    }
+
+    /**
+     * Считает отпечаток входа и выполняет импорт в текущем потоке.
+     */
+    void runImport() {
+        InputFingerprint input;
+        try {
+            status = new ImportStatus(ImportState.CHECKSUM, null, null, null);
+            input = fingerprint(resourceResolver.getResources(resources));
+        } catch (IOException e) {
+            log.warn("Импорт {} не запущен: не удалось прочитать вход: {}", resources, e.getMessage());
+            status = new ImportStatus(ImportState.FAILED, null, null, e.getMessage());
+            return;
+        }
+        JobParameters params = new JobParametersBuilder()
+                .addString(CHECKSUM_PARAM, input.checksum())
+                .addLong(SIZE_PARAM, input.size())
+                .addLong(LOT_PARAM, lotId)
+                .toJobParameters();
+        status = new ImportStatus(ImportState.RUNNING, input.checksum(), input.size(), null);
+        try {
+            JobExecution execution = jobLauncher.run(importParkingJob, params);
+            boolean completed = execution.getStatus() == BatchStatus.COMPLETED;
+            status = new ImportStatus(completed ? ImportState.COMPLETED : ImportState.FAILED,
+                    input.checksum(), input.size(), completed ? null : execution.getExitStatus().getExitDescription());
+            if (completed) {
+                log.info("Импорт {} ({} байт, {}): {}", resources, input.size(), input.checksum(), execution.getStatus());
+            } else {
+                log.warn("Импорт {} ({} байт, {}): {}, {}", resources, input.size(), input.checksum(),
+                        execution.getStatus(), execution.getExitStatus().getExitDescription());
+            }
+        } catch (JobInstanceAlreadyCompleteException e) {
+            status = new ImportStatus(ImportState.SKIPPED, input.checksum(), input.size(), null);
+            log.info("Импорт {} пропущен: файл {} уже загружен", resources, input.checksum());
+        } catch (JobExecutionAlreadyRunningException e) {
+            // тот же файл импортирует другой узел
+            status = new ImportStatus(ImportState.SKIPPED, input.checksum(), input.size(), null);
+            log.info("Импорт {} пропущен: уже выполняется", resources);
+        } catch (JobExecutionException e) {
+            status = new ImportStatus(ImportState.FAILED, input.checksum(), input.size(), e.getMessage());
+            log.warn("Импорт {} не запущен: {}", resources, e.getMessage());
+        }
+    }
+
+    public ImportStatus status() {
+        return status;
+    }
+
+    /**
+     * SHA-256 содержимого файлов в порядке их описаний и суммарный размер.
+     */
+    static InputFingerprint fingerprint(Resource[] resources) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Resource[] sorted = resources.clone();
+        Arrays.sort(sorted, Comparator.comparing(Resource::getDescription));
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        for (Resource resource : sorted) {
+            try (InputStream in = resource.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+        }
+        return new InputFingerprint(HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    public enum ImportState {
+        /** Приложение ещё не готово, импорт не начат. */
+        PENDING,
+        /** Считается контрольная сумма входа. */
+        CHECKSUM,
+        RUNNING,
+        COMPLETED,
+        /** Этот вход уже загружен или загружается другим узлом. */
+        SKIPPED,
+        FAILED
+    }
+
+    public record ImportStatus(ImportState state, String checksum, Long size, String error) {}
+
+    record InputFingerprint(String checksum, long size) {}
+}
@@ -0,0 +1,33 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.service.ActiveSessionCache;
+import com.example.parkingservice.service.OccupancyTracker;
+import com.example.parkingservice.service.ParkingLotService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ParkingImportListener implements JobExecutionListener {
+
+    private final OccupancyTracker occupancyTracker;
+    private final ActiveSessionCache activeSessionCache;
+    private final ParkingLotService lotService;
+
+    @Value("${parking.import.lot-id:1}")
+    private long importLotId;
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        lotService.require(importLotId);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        occupancyTracker.reconcile();
+        activeSessionCache.rebuild();
+    }
+}
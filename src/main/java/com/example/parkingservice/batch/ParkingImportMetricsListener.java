@@ -0,0 +1,60 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.stereotype.Component;
+
+/**
+ * Время чанка импорта целиком (чтение, обработка, запись и commit) и число записанных строк.
+ * Поэлементное чтение и обработку и запись чанка Spring Batch публикует сам:
+ * {@code spring.batch.item.read}, {@code spring.batch.item.process}, {@code spring.batch.chunk.write}.
+ * Скорость импорта — {@code rate(parking_import_items_total[1m])}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParkingImportMetricsListener implements ChunkListener, ItemWriteListener<ParkingRecord> {
+
+    private static final String SAMPLE_KEY = ParkingImportMetricsListener.class.getName() + ".sample";
+
+    private final MeterRegistry registry;
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        context.setAttribute(SAMPLE_KEY, Timer.start(registry));
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        stop(context, "success");
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        stop(context, "error");
+    }
+
+    @Override
+    public void afterWrite(Chunk<? extends ParkingRecord> items) {
+        Counter.builder("parking.import.items")
+                .description("Строки, записанные импортом")
+                .register(registry)
+                .increment(items.size());
+    }
+
+    private void stop(ChunkContext context, String outcome) {
+        Object sample = context.removeAttribute(SAMPLE_KEY);
+        if (sample instanceof Timer.Sample started) {
+            started.stop(Timer.builder("parking.import.chunk")
+                    .tag("outcome", outcome)
+                    .description("Обработка чанка импорта вместе с фиксацией")
+                    .register(registry));
+        }
+    }
+}
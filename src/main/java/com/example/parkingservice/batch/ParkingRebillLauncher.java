@@ -0,0 +1,98 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.service.TariffEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запускает rebillParkingJob в фоне. Каждый запрос — новый прогон с собственным {@code run}: период можно
+ * пересчитать повторно, например после загрузки парковок без стоимости или после сбоя, и перезаписаны будут
+ * только строки, стоимость которых изменилась. Пока прогон того же периода при тех же тарифах выполняется,
+ * запрос возвращает его, а не запускает второй.
+ */
+@Slf4j
+@Component
+public class ParkingRebillLauncher {
+
+    public static final String FROM_PARAM = "from";
+    public static final String TO_PARAM = "to";
+    public static final String TARIFF_PARAM = "tariff";
+    public static final String RUN_PARAM = "run";
+
+    private final JobExplorer jobExplorer;
+    private final Job rebillParkingJob;
+    private final TariffEngine tariffEngine;
+    private final TaskExecutorJobLauncher jobLauncher;
+
+    public ParkingRebillLauncher(JobRepository jobRepository, JobExplorer jobExplorer, Job rebillParkingJob,
+                                 TariffEngine tariffEngine) throws Exception {
+        this.jobExplorer = jobExplorer;
+        this.rebillParkingJob = rebillParkingJob;
+        this.tariffEngine = tariffEngine;
+        this.jobLauncher = new TaskExecutorJobLauncher();
+        this.jobLauncher.setJobRepository(jobRepository);
+        this.jobLauncher.setTaskExecutor(new SimpleAsyncTaskExecutor("parking-rebill-launch-"));
+        this.jobLauncher.afterPropertiesSet();
+    }
+
+    /**
+     * Перерасчёт парковок с выездом в [from, to). Возвращает запуск сразу, не дожидаясь окончания.
+     */
+    public synchronized RebillRun rebill(LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше его конца");
+        }
+        String tariff = tariffEngine.definition();
+        for (JobExecution running : jobExplorer.findRunningJobExecutions(rebillParkingJob.getName())) {
+            JobParameters params = running.getJobParameters();
+            if (from.equals(params.getLocalDateTime(FROM_PARAM)) && to.equals(params.getLocalDateTime(TO_PARAM))
+                    && tariff.equals(params.getString(TARIFF_PARAM))) {
+                return RebillRun.of(running);
+            }
+        }
+        JobParameters params = new JobParametersBuilder()
+                .addLocalDateTime(FROM_PARAM, from)
+                .addLocalDateTime(TO_PARAM, to)
+                .addString(TARIFF_PARAM, tariff)
+                .addString(RUN_PARAM, UUID.randomUUID().toString())
+                .toJobParameters();
+        try {
+            JobExecution execution = jobLauncher.run(rebillParkingJob, params);
+            log.info("Перерасчёт с {} по {} запущен: {}", from, to, execution.getId());
+            return RebillRun.of(execution);
+        } catch (JobExecutionException e) {
+            throw new IllegalStateException("Перерасчёт с " + from + " по " + to + " не запущен: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Запуск задания перерасчёта; processed — сколько парковок прочитано, rebilled — у скольких изменилась стоимость.
+     */
+    public record RebillRun(long executionId, BatchStatus status, long processed, long rebilled) {
+
+        static RebillRun of(JobExecution execution) {
+            long processed = 0;
+            long rebilled = 0;
+            for (var step : execution.getStepExecutions()) {
+                if (step.getStepName().startsWith("rebillParkingStep")) {
+                    processed += step.getReadCount();
+                    rebilled += step.getWriteCount();
+                }
+            }
+            return new RebillRun(execution.getId(), execution.getStatus(), processed, rebilled);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordIdAllocator;
+import org.postgresql.PGConnection;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Пишет чанк одной командой COPY в той же транзакции, что и шаг: соединение берётся
+ * через {@link DataSourceUtils}. Если база не PostgreSQL, чанк уходит в {@code fallback}.
+ * <p>
+ * COPY не умеет пропускать конфликт, поэтому через него идут только завершённые парковки; открытые сессии
+ * вставляет {@link OpenSessionWriter}.
+ */
+public class ParkingRecordCopyItemWriter implements ItemWriter<ParkingRecord> {
+
+    private static final String COPY_SQL =
+            "COPY parking_record (id, lot_id, license_plate, car_type, entry_time, exit_time, fee) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final ParkingRecordIdAllocator idAllocator;
+    private final OpenSessionWriter openSessionWriter;
+    private final ItemWriter<ParkingRecord> fallback;
+
+    public ParkingRecordCopyItemWriter(DataSource dataSource, ParkingRecordIdAllocator idAllocator,
+                                       OpenSessionWriter openSessionWriter, ItemWriter<ParkingRecord> fallback) {
+        this.dataSource = dataSource;
+        this.idAllocator = idAllocator;
+        this.openSessionWriter = openSessionWriter;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void write(Chunk<? extends ParkingRecord> chunk) throws Exception {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                fallback.write(chunk);
+                return;
+            }
+            List<Long> ids = idAllocator.nextIds(chunk.size());
+            int i = 0;
+            for (ParkingRecord record : chunk) {
+                record.setId(ids.get(i++));
+            }
+            List<ParkingRecord> closed = openSessionWriter.writeOpen(chunk);
+            if (closed.isEmpty()) {
+                return;
+            }
+            StringBuilder csv = new StringBuilder(closed.size() * 64);
+            for (ParkingRecord record : closed) {
+                csv.append(record.getId()).append(',');
+                csv.append(record.getLotId()).append(',');
+                appendQuoted(csv, record.getLicensePlate()).append(',');
+                csv.append(record.getCarType().name()).append(',');
+                appendTime(csv, record.getEntryTime()).append(',');
+                appendTime(csv, record.getExitTime()).append(',');
+                if (record.getFee() != null) {
+                    csv.append(record.getFee());
+                }
+                csv.append('\n');
+            }
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+
+    private static StringBuilder appendTime(StringBuilder csv, LocalDateTime time) {
+        return time == null ? csv : csv.append(time);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.TariffEngine;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * Проставляет завершённым парковкам чанка стоимость по текущему тарифу и передаёт чанк дальше:
+ * импорт и приём из каталога пишут парковки уже со стоимостью, как и выезд через API.
+ */
+public class ParkingRecordFeeItemWriter implements ItemWriter<ParkingRecord> {
+
+    private final TariffEngine tariffEngine;
+    private final ItemWriter<ParkingRecord> delegate;
+
+    public ParkingRecordFeeItemWriter(TariffEngine tariffEngine, ItemWriter<ParkingRecord> delegate) {
+        this.tariffEngine = tariffEngine;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(Chunk<? extends ParkingRecord> chunk) throws Exception {
+        for (ParkingRecord record : chunk) {
+            if (record.getExitTime() != null) {
+                record.setFee(tariffEngine.fee(record.getCarType(), record.getEntryTime(), record.getExitTime()));
+            }
+        }
+        delegate.write(chunk);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordIdAllocator;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Пишет завершённые парковки чанка пакетными INSERT; открытые сессии вставляет {@link OpenSessionWriter}
+ * с пропуском конфликта по активной сессии номера.
+ */
+public class ParkingRecordJdbcItemWriter implements ItemWriter<ParkingRecord> {
+
+    private final ParkingRecordIdAllocator idAllocator;
+    private final OpenSessionWriter openSessionWriter;
+    private final JdbcBatchItemWriter<ParkingRecord> delegate;
+
+    public ParkingRecordJdbcItemWriter(DataSource dataSource, ParkingRecordIdAllocator idAllocator,
+                                       OpenSessionWriter openSessionWriter) {
+        this.idAllocator = idAllocator;
+        this.openSessionWriter = openSessionWriter;
+        this.delegate = new JdbcBatchItemWriterBuilder<ParkingRecord>()
+                .dataSource(dataSource)
+                .sql("""
+                        INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        """)
+                .itemPreparedStatementSetter((record, ps) -> {
+                    ps.setLong(1, record.getId());
+                    ps.setLong(2, record.getLotId());
+                    ps.setString(3, record.getLicensePlate());
+                    ps.setString(4, record.getCarType().name());
+                    ps.setObject(5, record.getEntryTime());
+                    ps.setObject(6, record.getExitTime());
+                    ps.setObject(7, record.getFee());
+                })
+                .build();
+        this.delegate.afterPropertiesSet();
+    }
+
+    @Override
+    public void write(Chunk<? extends ParkingRecord> chunk) throws Exception {
+        List<Long> ids = idAllocator.nextIds(chunk.size());
+        int i = 0;
+        for (ParkingRecord record : chunk) {
+            record.setId(ids.get(i++));
+        }
+        List<ParkingRecord> closed = openSessionWriter.writeOpen(chunk);
+        if (!closed.isEmpty()) {
+            delegate.write(new Chunk<>(closed));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.entity.ParkingRecord;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+/**
+ * Разбирает строку {@code licensePlate,carType,entryTime,exitTime} сразу в {@link ParkingRecord}:
+ * поля находятся по позициям запятых, даты и тип авто читаются из исходной строки без подстрок.
+ * Строки с кавычками уходят в {@link DelimitedLineTokenizer}, чтобы не терять совместимость с CSV.
+ * Все записи файла относятся к одной площадке.
+ */
+public class ParkingRecordLineMapper implements LineMapper<ParkingRecord> {
+
+    private static final int COLUMNS = 4;
+
+    private final DelimitedLineTokenizer quotedTokenizer = new DelimitedLineTokenizer();
+    private final long lotId;
+
+    public ParkingRecordLineMapper() {
+        this(ParkingLot.DEFAULT_ID);
+    }
+
+    public ParkingRecordLineMapper(long lotId) {
+        this.lotId = lotId;
+    }
+
+    @Override
+    public ParkingRecord mapLine(String line, int lineNumber) {
+        if (line.indexOf('"') >= 0) {
+            return mapFieldSet(quotedTokenizer.tokenize(line));
+        }
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        int third = second < 0 ? -1 : line.indexOf(',', second + 1);
+        if (third < 0 || line.indexOf(',', third + 1) >= 0) {
+            throw new IllegalArgumentException("Ожидалось " + COLUMNS + " колонки: " + line);
+        }
+
+        return ParkingRecord.builder()
+                .lotId(lotId)
+                .licensePlate(line.substring(0, first))
+                .carType(carType(line, first + 1, second))
+                .entryTime(CsvTimestampParser.parse(line, second + 1, third))
+                .exitTime(isBlank(line, third + 1, line.length())
+                        ? null
+                        : CsvTimestampParser.parse(line, third + 1, line.length()))
+                .build();
+    }
+
+    private ParkingRecord mapFieldSet(FieldSet fields) {
+        if (fields.getFieldCount() != COLUMNS) {
+            throw new IllegalArgumentException("Ожидалось " + COLUMNS + " колонки: " + String.join(",", fields.getValues()));
+        }
+        String carType = fields.readRawString(1);
+        String entryTime = fields.readRawString(2);
+        String exitTime = fields.readRawString(3);
+        return ParkingRecord.builder()
+                .lotId(lotId)
+                .licensePlate(fields.readRawString(0))
+                .carType(carType(carType, 0, carType.length()))
+                .entryTime(CsvTimestampParser.parse(entryTime, 0, entryTime.length()))
+                .exitTime(isBlank(exitTime, 0, exitTime.length())
+                        ? null
+                        : CsvTimestampParser.parse(exitTime, 0, exitTime.length()))
+                .build();
+    }
+
+    private static CarType carType(String text, int from, int to) {
+        CarType type = CarType.fromName(text, from, to);
+        if (type == null) {
+            throw new IllegalArgumentException("Неизвестный тип автомобиля: " + text.substring(from, to));
+        }
+        return type;
+    }
+
+    private static boolean isBlank(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
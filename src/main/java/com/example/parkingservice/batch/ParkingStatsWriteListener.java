@@ -0,0 +1,20 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.DurationStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ParkingStatsWriteListener implements ItemWriteListener<ParkingRecord> {
+
+    private final DurationStatsService durationStatsService;
+
+    @Override
+    public void afterWrite(Chunk<? extends ParkingRecord> items) {
+        durationStatsService.record(items.getItems());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.parkingservice.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Делит завершённые парковки с выездом в [from, to) на партиции перерасчёта в обоих хранилищах.
+ * <p>
+ * parking_record секционирована по lot_id с ключом (lot_id, id): партиция — диапазон id внутри площадки
+ * и читает одну секцию по первичному ключу. Площадке достаётся доля gridSize по числу её парковок,
+ * но не меньше одной партиции.
+ * <p>
+ * parking_record_archive секционирована по месяцам entry_time с ключом (entry_time, id): партиция —
+ * месяц въезда и читает одну секцию архива по первичному ключу.
+ */
+@Slf4j
+public class RebillPartitioner implements Partitioner {
+
+    public static final String TABLE_KEY = "table";
+    public static final String LOT_ID_KEY = "lotId";
+    public static final String MIN_ID_KEY = "minId";
+    public static final String MAX_ID_KEY = "maxId";
+    public static final String ENTRY_FROM_KEY = "entryFrom";
+    public static final String ENTRY_TO_KEY = "entryTo";
+
+    public static final String RECORD_TABLE = "parking_record";
+    public static final String ARCHIVE_TABLE = "parking_record_archive";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public RebillPartitioner(JdbcTemplate jdbcTemplate, LocalDateTime from, LocalDateTime to) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<LotRange> lots = jdbcTemplate.query("""
+                SELECT lot_id, MIN(id), MAX(id), COUNT(*) FROM parking_record
+                WHERE exit_time >= ? AND exit_time < ?
+                GROUP BY lot_id
+                ORDER BY lot_id
+                """, (rs, rowNum) -> new LotRange(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                from, to);
+        long total = lots.stream().mapToLong(LotRange::count).sum();
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (LotRange lot : lots) {
+            long ranges = Math.max(1, Math.round((double) gridSize * lot.count() / total));
+            long span = lot.maxId() - lot.minId() + 1;
+            long rangeSize = Math.max(1, (span + ranges - 1) / ranges);
+            for (long start = lot.minId(); start <= lot.maxId(); start += rangeSize) {
+                ExecutionContext context = new ExecutionContext();
+                context.putString(TABLE_KEY, RECORD_TABLE);
+                context.putLong(LOT_ID_KEY, lot.lotId());
+                context.putLong(MIN_ID_KEY, start);
+                context.putLong(MAX_ID_KEY, Math.min(lot.maxId(), start + rangeSize - 1));
+                partitions.put("partition" + partitions.size(), context);
+            }
+        }
+
+        // въезд не позже выезда, поэтому секции архива с въездом от to и позже не просматриваются
+        List<LocalDateTime> months = jdbcTemplate.query("""
+                SELECT EXTRACT(YEAR FROM entry_time), EXTRACT(MONTH FROM entry_time) FROM parking_record_archive
+                WHERE exit_time >= ? AND exit_time < ? AND entry_time < ?
+                GROUP BY EXTRACT(YEAR FROM entry_time), EXTRACT(MONTH FROM entry_time)
+                """, (rs, rowNum) -> LocalDateTime.of(rs.getInt(1), rs.getInt(2), 1, 0, 0),
+                from, to, to);
+        for (LocalDateTime month : months) {
+            ExecutionContext context = new ExecutionContext();
+            context.putString(TABLE_KEY, ARCHIVE_TABLE);
+            context.put(ENTRY_FROM_KEY, month);
+            context.put(ENTRY_TO_KEY, month.plusMonths(1));
+            partitions.put("partition" + partitions.size(), context);
+        }
+        log.info("Перерасчёт разбит на {} партиций: {} площадок ({} парковок) и {} месяцев архива",
+                partitions.size(), lots.size(), total, months.size());
+        return partitions;
+    }
+
+    private record LotRange(long lotId, long minId, long maxId, long count) {}
+}
@@ -0,0 +1,150 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.entity.SpoolFileCheckpoint;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.example.parkingservice.repository.SpoolFileCheckpointRepository;
+import com.example.parkingservice.service.ActiveSessionCache;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.OccupancyTracker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Записывает строки файла из каталога приёма и сдвигает позицию файла в той же транзакции: после сбоя чтение
+ * продолжается ровно с первой незаписанной строки.
+ * <p>
+ * Завершённые парковки пишутся тем же {@code parkingWriter}, что и шаг импорта. Въезды вставляются с пропуском
+ * конфликта по активной сессии номера: шлагбаум мог передать въезд машины, которая уже стоит на площадке,
+ * и такая строка не должна откатывать пакет и останавливать файл. Пропущенные въезды считаются в
+ * {@code parking.spool.rejected{reason=active-session}}. Слушатели импорта получают только записанные строки.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.spool.enabled", havingValue = "true")
+public class SpoolChunkWriter {
+
+    private final ItemWriter<ParkingRecord> parkingWriter;
+    private final ParkingStatsWriteListener statsWriteListener;
+    private final ParkingImportMetricsListener importMetricsListener;
+    private final SpoolFileCheckpointRepository checkpointRepository;
+    private final OccupancyTracker occupancyTracker;
+    private final ActiveSessionCache activeSessionCache;
+    private final OccupancyEventStream eventStream;
+    private final ParkingRecordJdbcRepository jdbcRepository;
+    private final Counter duplicateEntries;
+
+    public SpoolChunkWriter(ItemWriter<ParkingRecord> parkingWriter,
+                            ParkingStatsWriteListener statsWriteListener,
+                            ParkingImportMetricsListener importMetricsListener,
+                            SpoolFileCheckpointRepository checkpointRepository,
+                            OccupancyTracker occupancyTracker,
+                            ActiveSessionCache activeSessionCache,
+                            OccupancyEventStream eventStream,
+                            ParkingRecordJdbcRepository jdbcRepository,
+                            MeterRegistry registry) {
+        this.parkingWriter = parkingWriter;
+        this.statsWriteListener = statsWriteListener;
+        this.importMetricsListener = importMetricsListener;
+        this.checkpointRepository = checkpointRepository;
+        this.occupancyTracker = occupancyTracker;
+        this.activeSessionCache = activeSessionCache;
+        this.eventStream = eventStream;
+        this.jdbcRepository = jdbcRepository;
+        this.duplicateEntries = Counter.builder("parking.spool.rejected")
+                .tag("reason", "active-session")
+                .description("Въезды из файлов каталога приёма, пропущенные из-за уже активной сессии номера")
+                .register(registry);
+    }
+
+    /**
+     * Позиция файла. Читается в транзакции на запись, то есть с основной базы, а не с реплики.
+     */
+    @Transactional
+    public Optional<SpoolFileCheckpoint> checkpoint(String fileName) {
+        return checkpointRepository.findById(fileName);
+    }
+
+    /**
+     * Записывает строки, прочитанные с fromOffset до toOffset. Возвращает false и ничего не пишет,
+     * если позиция файла в базе уже не fromOffset: файл продвинул другой узел.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean write(String fileName, long lotId, List<ParkingRecord> records,
+                         long fromOffset, long toOffset, long lineNumber) throws Exception {
+        SpoolFileCheckpoint checkpoint = checkpointRepository.findForUpdate(fileName)
+                .orElseGet(() -> new SpoolFileCheckpoint(fileName, 0, 0, false));
+        if (checkpoint.isCompleted() || checkpoint.getByteOffset() != fromOffset) {
+            return false;
+        }
+        if (!records.isEmpty()) {
+            List<ParkingRecord> closed = records.stream()
+                    .filter(record -> record.getExitTime() != null)
+                    .toList();
+            if (!closed.isEmpty()) {
+                parkingWriter.write(new Chunk<>(closed));
+            }
+            List<ParkingRecord> active = insertEntries(fileName, records.stream()
+                    .filter(record -> record.getExitTime() == null)
+                    .toList());
+            List<ParkingRecord> written = new ArrayList<>(closed.size() + active.size());
+            written.addAll(closed);
+            written.addAll(active);
+            Chunk<ParkingRecord> chunk = new Chunk<>(written);
+            statsWriteListener.afterWrite(chunk);
+            importMetricsListener.afterWrite(chunk);
+            occupancyTracker.onEntries(lotId, active.size());
+            active.forEach(activeSessionCache::put);
+            eventStream.publishEntries(lotId, active);
+        }
+        checkpoint.setByteOffset(toOffset);
+        checkpoint.setLineNumber(lineNumber);
+        checkpointRepository.save(checkpoint);
+        return true;
+    }
+
+    private List<ParkingRecord> insertEntries(String fileName, List<ParkingRecord> entries) {
+        if (entries.isEmpty()) {
+            return entries;
+        }
+        List<Long> ids = jdbcRepository.nextIds(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setId(ids.get(i));
+        }
+        int[] counts = jdbcRepository.insertIfAbsent(entries);
+        List<ParkingRecord> inserted = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            if (counts[i] > 0) {
+                inserted.add(entries.get(i));
+            } else {
+                duplicateEntries.increment();
+                log.warn("Файл {}: въезд {} пропущен, у номера уже есть активная сессия",
+                        fileName, entries.get(i).getLicensePlate());
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Отмечает файл прочитанным целиком; запись удаляется после переноса файла в архив.
+     */
+    @Transactional
+    public void complete(String fileName) {
+        checkpointRepository.findForUpdate(fileName).ifPresent(checkpoint -> checkpoint.setCompleted(true));
+    }
+
+    @Transactional
+    public void forget(String fileName) {
+        checkpointRepository.deleteById(fileName);
+    }
+}
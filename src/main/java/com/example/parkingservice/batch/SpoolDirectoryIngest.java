@@ -0,0 +1,278 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.entity.SpoolFileCheckpoint;
+import com.example.parkingservice.service.ParkingLotService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Непрерывный приём CSV, которые шлагбаумы складывают в каталог {@code parking.spool.dir}
+ * ({@code parking.spool.enabled=true}). Каталог отслеживается через {@link WatchService}; файлы *.csv
+ * читаются по мере дописывания в порядке имён пакетами по {@code parking.spool.batch-size} целых строк
+ * тем же разбором строк, что и импорт, и записываются через {@link SpoolChunkWriter} вместе с позицией в файле.
+ * <p>
+ * Файл считается дописанным, когда он не менялся {@code parking.spool.settle}: тогда читается и последняя
+ * строка без перевода строки, а файл переносится в {@code parking.spool.archive-dir}. Строки, которые не
+ * удалось разобрать, пропускаются с предупреждением, как и въезды номеров с уже активной сессией
+ * (см. {@link SpoolChunkWriter}): позиция файла сдвигается за них.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.spool.enabled", havingValue = "true")
+public class SpoolDirectoryIngest {
+
+    private static final String SUFFIX = ".csv";
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final SpoolChunkWriter chunkWriter;
+    private final ParkingLotService lotService;
+    private final Path directory;
+    private final Path archiveDirectory;
+    private final long lotId;
+    private final int batchSize;
+    private final Duration settle;
+    private final Duration pollInterval;
+    private final ParkingRecordLineMapper lineMapper;
+    private final Counter rejected;
+
+    private volatile boolean running = true;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public SpoolDirectoryIngest(SpoolChunkWriter chunkWriter,
+                                ParkingLotService lotService,
+                                MeterRegistry registry,
+                                @Value("${parking.spool.dir:./data/spool}") Path directory,
+                                @Value("${parking.spool.archive-dir:./data/spool-archive}") Path archiveDirectory,
+                                @Value("${parking.spool.lot-id:${parking.import.lot-id:1}}") long lotId,
+                                @Value("${parking.spool.batch-size:1000}") int batchSize,
+                                @Value("${parking.spool.settle:PT30S}") Duration settle,
+                                @Value("${parking.spool.poll-interval:PT10S}") Duration pollInterval) {
+        this.chunkWriter = chunkWriter;
+        this.lotService = lotService;
+        this.directory = directory;
+        this.archiveDirectory = archiveDirectory;
+        this.lotId = lotId;
+        this.batchSize = batchSize;
+        this.settle = settle;
+        this.pollInterval = pollInterval;
+        this.lineMapper = new ParkingRecordLineMapper(lotId);
+        this.rejected = Counter.builder("parking.spool.rejected")
+                .tag("reason", "unparsable")
+                .description("Строки файлов каталога приёма, которые не удалось разобрать")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        lotService.require(lotId);
+        Files.createDirectories(directory);
+        Files.createDirectories(archiveDirectory);
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        watcher = new Thread(this::watch, "parking-spool");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Приём файлов из {} запущен", directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        if (watchService != null) {
+            watchService.close();
+            watcher.join(pollInterval.toMillis());
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            scan();
+            try {
+                // без событий каталог всё равно пересматривается: так замечаются дописанные файлы
+                // и переполнение очереди событий WatchService
+                WatchKey key = watchService.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Один проход по каталогу: дочитывает все файлы и переносит в архив дописанные.
+     */
+    void scan() {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать каталог {}: {}", directory, e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            if (!running) {
+                return;
+            }
+            try {
+                ingest(file);
+            } catch (Exception e) {
+                log.warn("Файл {} не дочитан, повтор на следующем проходе: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void ingest(Path file) throws Exception {
+        String name = file.getFileName().toString();
+        SpoolFileCheckpoint checkpoint = chunkWriter.checkpoint(name)
+                .orElseGet(() -> new SpoolFileCheckpoint(name, 0, 0, false));
+        if (checkpoint.isCompleted()) {
+            archive(file, name);
+            return;
+        }
+        long size = Files.size(file);
+        if (size < checkpoint.getByteOffset()) {
+            log.warn("Файл {} короче прочитанной части ({} < {} байт) и пропущен", name, size, checkpoint.getByteOffset());
+            return;
+        }
+        // проверка до чтения: всё, что дописано раньше settle, будет прочитано в этом проходе
+        boolean settled = Files.getLastModifiedTime(file).toInstant().isBefore(Instant.now().minus(settle));
+        long offset = checkpoint.getByteOffset();
+        long lineNumber = checkpoint.getLineNumber();
+        List<String> lines = new ArrayList<>(batchSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (running) {
+                lines.clear();
+                long next = readLines(channel, offset, batchSize, settled, lines);
+                if (next == offset) {
+                    break;
+                }
+                List<ParkingRecord> records = new ArrayList<>(lines.size());
+                for (String line : lines) {
+                    lineNumber++;
+                    // первая строка файла — заголовок, как linesToSkip(1) у импорта
+                    if (lineNumber > 1 && !line.isBlank()) {
+                        map(name, line, lineNumber, records);
+                    }
+                }
+                if (!chunkWriter.write(name, lotId, records, offset, next, lineNumber)) {
+                    log.info("Файл {} читает другой узел", name);
+                    return;
+                }
+                offset = next;
+            }
+        }
+        if (settled && offset == size) {
+            chunkWriter.complete(name);
+            archive(file, name);
+        }
+    }
+
+    private void map(String name, String line, long lineNumber, List<ParkingRecord> records) {
+        try {
+            records.add(lineMapper.mapLine(line, (int) lineNumber));
+        } catch (RuntimeException e) {
+            rejected.increment();
+            log.warn("Файл {}, строка {} пропущена: {}", name, lineNumber, e.getMessage());
+        }
+    }
+
+    private void archive(Path file, String name) throws IOException {
+        Path target = archiveDirectory.resolve(name);
+        if (Files.exists(target)) {
+            target = archiveDirectory.resolve(System.currentTimeMillis() + "-" + name);
+        }
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // каталоги на разных файловых системах
+            Files.move(file, target);
+        }
+        chunkWriter.forget(name);
+        log.info("Файл {} загружен и перенесён в {}", name, target);
+    }
+
+    /**
+     * Читает до maxLines целых строк начиная с байта from и возвращает смещение после последней из них.
+     * Хвост без перевода строки читается, только если includeTail: файл уже дописан.
+     */
+    static long readLines(FileChannel channel, long from, int maxLines, boolean includeTail, List<String> out) {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+        byte[] bytes = buffer.array();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        long lineEnd = from;
+        long position = from;
+        try {
+            while (out.size() < maxLines) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                int start = 0;
+                for (int i = 0; i < read && out.size() < maxLines; i++) {
+                    if (bytes[i] == '\n') {
+                        line.write(bytes, start, i - start);
+                        out.add(decode(line));
+                        line.reset();
+                        start = i + 1;
+                        lineEnd = position + start;
+                    }
+                }
+                if (out.size() < maxLines) {
+                    line.write(bytes, start, read - start);
+                }
+                position += read;
+            }
+            if (includeTail && out.size() < maxLines && line.size() > 0) {
+                out.add(decode(line));
+                lineEnd = position;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lineEnd;
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
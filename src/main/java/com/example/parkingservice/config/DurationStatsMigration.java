@@ -0,0 +1,110 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.service.DurationStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Строит почасовые агрегаты и квантильные скетчи длительностей по истории, накопленной до их появления, —
+ * при старте, до того как веб-сервер начнёт принимать запросы (бин создаётся после Hibernate, который создаёт таблицы).
+ * <p>
+ * История пересчитывается по месяцам entry_time, каждый месяц — отдельной транзакцией; пересчитанные корзины
+ * и скетчи заменяют сохранённые, поэтому повтор безопасен. Агрегаты и скетчи переносятся независимо:
+ * пройденный месяц и завершение каждого отмечаются своей строкой в parking_migration той же транзакцией,
+ * после сбоя перенос продолжается с первого несделанного месяца, а завершённый больше не запускается.
+ */
+@Slf4j
+@Component
+public class DurationStatsMigration implements InitializingBean {
+
+    static final String STATS_BACKFILL = "duration-stats-backfill";
+    static final String SKETCH_BACKFILL = "duration-sketch-backfill";
+
+    private final DataSource dataSource;
+    private final DurationStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
+
+    public DurationStatsMigration(DataSource dataSource, DurationStatsService statsService,
+                                  PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.statsService = statsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(product)) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE IF NOT EXISTS parking_migration (
+                    name         VARCHAR(100) PRIMARY KEY,
+                    done_through TIMESTAMP(6),
+                    completed_at TIMESTAMP(6)
+                )
+                """);
+        backfill(jdbc, STATS_BACKFILL, statsService::rebuildStats);
+        backfill(jdbc, SKETCH_BACKFILL, statsService::rebuildSketches);
+    }
+
+    private void backfill(JdbcTemplate jdbc, String name, BiFunction<LocalDateTime, LocalDateTime, Integer> rebuild) {
+        jdbc.update("INSERT INTO parking_migration (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+        Marker marker = jdbc.queryForObject(
+                "SELECT done_through, completed_at FROM parking_migration WHERE name = ?",
+                (rs, rowNum) -> new Marker(
+                        rs.getObject("done_through", LocalDateTime.class),
+                        rs.getObject("completed_at", LocalDateTime.class)),
+                name);
+        if (marker.completedAt() != null) {
+            return;
+        }
+        // выезды после снимка границ попадают в корзины сами, пересчитывать нужно только уже накопленное
+        LocalDateTime[] span = jdbc.queryForObject("""
+                        SELECT MIN(entry_time), MAX(entry_time)
+                        FROM (
+                            SELECT entry_time FROM parking_record WHERE exit_time IS NOT NULL
+                            UNION ALL
+                            SELECT entry_time FROM parking_record_archive
+                        ) r
+                        """,
+                (rs, rowNum) -> new LocalDateTime[]{
+                        rs.getObject(1, LocalDateTime.class), rs.getObject(2, LocalDateTime.class)});
+        long buckets = 0;
+        if (span[0] != null) {
+            LocalDateTime from = marker.doneThrough() != null ? marker.doneThrough() : monthOf(span[0]);
+            LocalDateTime end = monthOf(span[1]).plusMonths(1);
+            while (from.isBefore(end)) {
+                LocalDateTime monthStart = from;
+                LocalDateTime monthEnd = from.plusMonths(1);
+                buckets += transactionTemplate.execute(status -> {
+                    int rebuilt = rebuild.apply(monthStart, monthEnd);
+                    jdbc.update("UPDATE parking_migration SET done_through = ? WHERE name = ?", monthEnd, name);
+                    return rebuilt;
+                });
+                from = monthEnd;
+            }
+        }
+        jdbc.update("UPDATE parking_migration SET completed_at = ? WHERE name = ?", LocalDateTime.now(), name);
+        log.info("{}: по истории пересчитано {} корзин", name, buckets);
+    }
+
+    private static LocalDateTime monthOf(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+    }
+
+    private record Marker(LocalDateTime doneThrough, LocalDateTime completedAt) {}
+}
@@ -0,0 +1,15 @@
+package com.example.parkingservice.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class JpaMigrationConfig {
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor parkingRecordMigrationsDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor(
+                ParkingRecordSequenceMigration.class, ParkingRecordPartitionMigration.class);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.repository.ParkingRecordPartitions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+
+/**
+ * Переводит parking_record в PostgreSQL на декларативное секционирование LIST (lot_id) до старта Hibernate.
+ * <p>
+ * Новая база получает секционированную таблицу с секцией основной парковки. Существующая обычная таблица
+ * одной транзакцией становится секцией основной парковки: получает lot_id, теряет свои индексы
+ * (обычные заново создаёт schema-parking.sql на родительской таблице, уникальный — эта миграция) и присоединяется
+ * к новому родителю.
+ * Первичный ключ секционированной таблицы — (lot_id, id): уникальные индексы обязаны включать ключ секционирования.
+ * <p>
+ * Частичный уникальный индекс активной сессии номера создаётся здесь, а не в schema-parking.sql, где ошибки
+ * пропускаются: без него вставки с {@code ON CONFLICT} падают во время работы, поэтому его ошибка должна
+ * останавливать старт. Перед созданием лишние открытые сессии номера закрываются въездом следующей из них.
+ * <p>
+ * Агрегаты длительностей без lot_id удаляются: они производные и перестраиваются из истории при старте.
+ * <p>
+ * Архив завершённых парковок parking_record_archive создаётся секционированным RANGE (entry_time)
+ * по месяцам; секции месяцев добавляет задание архивации, а DEFAULT-секция принимает остальное.
+ */
+@Slf4j
+@Component
+@DependsOn("parkingRecordSequenceMigration")
+public class ParkingRecordPartitionMigration implements InitializingBean {
+
+    private static final String ACTIVE_PLATE_INDEX = "ux_parking_record_lot_active_plate";
+
+    private final DataSource dataSource;
+
+    public ParkingRecordPartitionMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(product)) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            dropStatsWithoutLot(jdbc);
+
+            String relkind = jdbc.query(
+                    "SELECT relkind FROM pg_class WHERE oid = to_regclass('parking_record')",
+                    rs -> rs.next() ? rs.getString(1) : null);
+            if (relkind == null) {
+                createPartitionedTable(jdbc);
+                log.info("Создана секционированная таблица parking_record");
+            } else if ("r".equals(relkind)) {
+                convertToPartitioned(jdbc);
+                log.info("parking_record секционирована по lot_id, прежние записи перенесены в {}",
+                        ParkingRecordPartitions.partitionName(ParkingLot.DEFAULT_ID));
+            }
+            if (jdbc.queryForObject("SELECT to_regclass('" + ACTIVE_PLATE_INDEX + "') IS NULL", Boolean.class)) {
+                createActivePlateIndex(jdbc);
+            }
+            if (jdbc.queryForObject("SELECT to_regclass('parking_record_archive') IS NULL", Boolean.class)) {
+                createArchiveTable(jdbc);
+                log.info("Создана секционированная таблица parking_record_archive");
+            }
+        });
+    }
+
+    private void dropStatsWithoutLot(JdbcTemplate jdbc) {
+        Boolean legacyStats = jdbc.queryForObject("""
+                SELECT to_regclass('parking_duration_stats') IS NOT NULL
+                   AND NOT EXISTS (SELECT 1 FROM information_schema.columns
+                                   WHERE table_schema = current_schema()
+                                     AND table_name = 'parking_duration_stats' AND column_name = 'lot_id')
+                """, Boolean.class);
+        if (Boolean.TRUE.equals(legacyStats)) {
+            jdbc.execute("DROP TABLE parking_duration_stats");
+        }
+    }
+
+    private void createPartitionedTable(JdbcTemplate jdbc) {
+        jdbc.execute("""
+                CREATE TABLE parking_record (
+                    id            BIGINT       NOT NULL,
+                    lot_id        BIGINT       NOT NULL,
+                    license_plate VARCHAR(255) NOT NULL,
+                    car_type      VARCHAR(255) NOT NULL,
+                    entry_time    TIMESTAMP(6) NOT NULL,
+                    exit_time     TIMESTAMP(6),
+                    fee           BIGINT,
+                    PRIMARY KEY (lot_id, id)
+                ) PARTITION BY LIST (lot_id)
+                """);
+        jdbc.execute(ParkingRecordPartitions.createPartitionSql(ParkingLot.DEFAULT_ID));
+    }
+
+    private void createActivePlateIndex(JdbcTemplate jdbc) {
+        // до конца транзакции другие узлы не откроют новую сессию-дубликат между чисткой и созданием индекса
+        jdbc.execute("LOCK TABLE parking_record IN SHARE ROW EXCLUSIVE MODE");
+        int closed = jdbc.update("""
+                UPDATE parking_record r SET exit_time = d.next_entry
+                FROM (SELECT lot_id, id,
+                             LEAD(entry_time) OVER (PARTITION BY lot_id, license_plate ORDER BY entry_time, id) AS next_entry
+                      FROM parking_record
+                      WHERE exit_time IS NULL) d
+                WHERE r.lot_id = d.lot_id AND r.id = d.id AND d.next_entry IS NOT NULL
+                """);
+        if (closed > 0) {
+            log.warn("Закрыто {} повторных открытых сессий номеров: выезд — въезд следующей сессии того же номера", closed);
+        }
+        jdbc.execute("DROP INDEX IF EXISTS ux_parking_record_active_plate");
+        jdbc.execute("CREATE UNIQUE INDEX " + ACTIVE_PLATE_INDEX
+                + " ON parking_record (lot_id, license_plate) WHERE exit_time IS NULL");
+        log.info("Создан индекс {}", ACTIVE_PLATE_INDEX);
+    }
+
+    private void createArchiveTable(JdbcTemplate jdbc) {
+        jdbc.execute("""
+                CREATE TABLE parking_record_archive (
+                    id            BIGINT       NOT NULL,
+                    lot_id        BIGINT       NOT NULL,
+                    license_plate VARCHAR(255) NOT NULL,
+                    car_type      VARCHAR(255) NOT NULL,
+                    entry_time    TIMESTAMP(6) NOT NULL,
+                    exit_time     TIMESTAMP(6) NOT NULL,
+                    fee           BIGINT,
+                    PRIMARY KEY (entry_time, id)
+                ) PARTITION BY RANGE (entry_time)
+                """);
+        jdbc.execute("CREATE TABLE parking_record_archive_default PARTITION OF parking_record_archive DEFAULT");
+    }
+
+    private void convertToPartitioned(JdbcTemplate jdbc) {
+        String legacy = ParkingRecordPartitions.partitionName(ParkingLot.DEFAULT_ID);
+
+        jdbc.execute("ALTER TABLE parking_record ADD COLUMN IF NOT EXISTS lot_id BIGINT NOT NULL DEFAULT "
+                + ParkingLot.DEFAULT_ID);
+        jdbc.execute("ALTER TABLE parking_record ALTER COLUMN lot_id DROP DEFAULT");
+        // имена индексов и ограничений общие для схемы: освобождаем их для родительской таблицы
+        List<String> constraints = jdbc.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'parking_record'::regclass AND contype IN ('p', 'u')",
+                String.class);
+        for (String constraint : constraints) {
+            jdbc.execute("ALTER TABLE parking_record DROP CONSTRAINT " + quote(constraint));
+        }
+        List<String> indexes = jdbc.queryForList(
+                "SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = 'parking_record'::regclass",
+                String.class);
+        for (String index : indexes) {
+            jdbc.execute("DROP INDEX " + index);
+        }
+        jdbc.execute("ALTER TABLE parking_record RENAME TO " + legacy);
+
+        jdbc.execute("CREATE TABLE parking_record (LIKE " + legacy + ") PARTITION BY LIST (lot_id)");
+        jdbc.execute("ALTER TABLE parking_record ADD PRIMARY KEY (lot_id, id)");
+        jdbc.execute("ALTER TABLE parking_record ATTACH PARTITION " + legacy
+                + " FOR VALUES IN (" + ParkingLot.DEFAULT_ID + ")");
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.entity.PooledSequenceGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Приводит parking_record_seq в PostgreSQL к настроенному {@code parking.id.allocation-size}
+ * до старта Hibernate, который проверяет совпадение шага последовательности с маппингом.
+ * Для существующих данных снимает IDENTITY с parking_record.id и сдвигает последовательность
+ * за максимальный выданный id; назад последовательность не сдвигается никогда.
+ */
+@Slf4j
+@Component
+public class ParkingRecordSequenceMigration implements InitializingBean {
+
+    private final DataSource dataSource;
+    private final int allocationSize;
+
+    public ParkingRecordSequenceMigration(DataSource dataSource,
+                                          @Value("${parking.id.allocation-size:" + PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE + "}")
+                                          int allocationSize) {
+        this.dataSource = dataSource;
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws MetaDataAccessException {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(product)) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Boolean tableExists = jdbc.queryForObject("SELECT to_regclass('parking_record') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(tableExists)) {
+            return;
+        }
+
+        jdbc.execute("ALTER TABLE parking_record ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS parking_record_seq INCREMENT BY " + allocationSize);
+        Integer increment = jdbc.queryForObject("""
+                SELECT increment_by FROM pg_sequences
+                WHERE schemaname = current_schema() AND sequencename = 'parking_record_seq'
+                """, Integer.class);
+        if (increment == null || increment != allocationSize) {
+            jdbc.execute("ALTER SEQUENCE parking_record_seq INCREMENT BY " + allocationSize);
+            log.info("Шаг parking_record_seq изменён: {} -> {}", increment, allocationSize);
+        }
+        jdbc.queryForObject("""
+                SELECT setval('parking_record_seq', GREATEST(
+                        (SELECT COALESCE(MAX(id), 0) FROM parking_record),
+                        (SELECT last_value FROM parking_record_seq)))
+                """, Long.class);
+    }
+}
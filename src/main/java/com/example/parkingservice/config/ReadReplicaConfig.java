@@ -0,0 +1,92 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.config.ReplicaRoutingDataSource.Selection;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение с реплик ({@code parking.replicas.enabled=true}): основной пул собирается из {@code spring.datasource.*},
+ * у каждой реплики из {@code parking.replicas.urls} — свой пул Hikari. Бин {@code dataSource}, которым пользуются
+ * JPA, JdbcTemplate и Spring Batch, — {@link LazyConnectionDataSourceProxy} над {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "parking.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    /**
+     * Отставание реплики PostgreSQL в секундах; если всё полученное уже применено, отставания нет,
+     * даже когда на основной базе давно не было записей.
+     */
+    static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("parking-primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                      DataSourceProperties properties,
+                                                      MeterRegistry registry,
+                                                      @Value("${parking.replicas.urls}") List<String> urls,
+                                                      @Value("${parking.replicas.username:${spring.datasource.username:}}") String username,
+                                                      @Value("${parking.replicas.password:${spring.datasource.password:}}") String password,
+                                                      @Value("${parking.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                                      @Value("${parking.replicas.selection:ROUND_ROBIN}") Selection selection,
+                                                      @Value("${parking.replicas.lag-query:" + POSTGRES_LAG_QUERY + "}") String lagQuery,
+                                                      @Value("${parking.replicas.max-lag:PT10S}") Duration maxLag) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("parking-replica-" + i);
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            // недоступная при старте реплика не мешает запуску: она просто не пройдёт проверку отставания
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replica.setMetricRegistry(registry);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primaryDataSource, replicas, selection, lagQuery, maxLag);
+        for (String name : routingDataSource.replicaNames()) {
+            Gauge.builder("parking.replica.lag", routingDataSource, routing -> routing.lagSeconds(name))
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .description("Отставание реплики по последней проверке")
+                    .register(registry);
+        }
+        // до первой проверки реплики в выборе не участвуют
+        routingDataSource.checkLag();
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.parkingservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отправляет read-only транзакции на реплики, остальные — на основную базу. Ключ выбирается при взятии
+ * соединения, поэтому оборачивается в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * тогда соединение берётся при первом запросе, когда признак read-only транзакции уже выставлен.
+ * <p>
+ * Реплика участвует в выборе, только если последняя проверка {@link #checkLag} прошла и отставание
+ * не больше допустимого; если таких нет, чтение идёт в основную базу.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param lagQuery запрос, возвращающий отставание реплики в секундах
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Selection selection,
+                                    String lagQuery, Duration maxLag) {
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toList();
+        this.selection = selection;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        Replica replica = select();
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    private Replica select() {
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.usable) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (selection == Selection.LEAST_LOADED) {
+            Replica least = candidates.get(0);
+            for (Replica replica : candidates) {
+                if (replica.activeConnections() < least.activeConnections()) {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Проверяет отставание каждой реплики и исключает из выбора отставшие больше maxLag или недоступные.
+     */
+    @Scheduled(fixedDelayString = "${parking.replicas.lag-check-interval:PT5S}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            boolean usable;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                replica.lagSeconds = resultSet.next() ? resultSet.getDouble(1) : Double.NaN;
+                usable = replica.lagSeconds <= maxLag.toMillis() / 1000.0;
+                if (!usable && replica.usable) {
+                    log.warn("Реплика {} отстаёт на {} с, чтение переключено на основную базу", replica.name, replica.lagSeconds);
+                }
+            } catch (SQLException e) {
+                replica.lagSeconds = Double.NaN;
+                usable = false;
+                if (replica.usable) {
+                    log.warn("Реплика {} недоступна, чтение переключено на основную базу: {}", replica.name, e.getMessage());
+                }
+            }
+            if (usable && !replica.usable) {
+                log.info("Реплика {} снова принимает чтение: отставание {} с", replica.name, replica.lagSeconds);
+            }
+            replica.usable = usable;
+        }
+    }
+
+    /**
+     * Отставание реплики в секундах по последней проверке; NaN — реплика не проверена или недоступна.
+     */
+    public double lagSeconds(String name) {
+        for (Replica replica : replicas) {
+            if (replica.name.equals(name)) {
+                return replica.lagSeconds;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная реплика: " + name);
+    }
+
+    public List<String> replicaNames() {
+        return replicas.stream().map(replica -> replica.name).toList();
+    }
+
+    @Override
+    public void destroy() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+
+    public enum Selection {
+        /** По очереди среди реплик, не отстающих больше допустимого. */
+        ROUND_ROBIN,
+        /** Реплика с наименьшим числом занятых соединений пула. */
+        LEAST_LOADED
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean usable;
+        private volatile double lagSeconds = Double.NaN;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        int activeConnections() {
+            if (dataSource instanceof HikariDataSource hikari) {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool != null ? pool.getActiveConnections() : 0;
+            }
+            return 0;
+        }
+    }
+}
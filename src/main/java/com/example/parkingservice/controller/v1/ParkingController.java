@@ -1,8 +1,22 @@
 package com.example.parkingservice.controller.v1;
 
+import com.example.parkingservice.batch.ParkingRebillLauncher;
+import com.example.parkingservice.batch.ParkingRebillLauncher.RebillRun;
 import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.service.HistoryCursor;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.OccupancyEventStream.OverflowPolicy;
+import com.example.parkingservice.service.OccupancyTimeline;
+import com.example.parkingservice.service.ParkingHistoryExporter;
+import com.example.parkingservice.service.ParkingHistoryExporter.ExportFormat;
 import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.DurationPercentiles;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
 import com.example.parkingservice.service.ParkingService.ParkingReport;
+import com.example.parkingservice.service.WriteBehindIngest;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.NotBlank;
@@ -10,9 +24,16 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/parking")
@@ -21,41 +42,161 @@ import java.time.LocalDateTime;
 public class ParkingController {
 
     private final ParkingService parkingService;
+    private final Optional<WriteBehindIngest> writeBehind;
+    private final OccupancyEventStream eventStream;
+    private final ParkingHistoryExporter historyExporter;
+    private final ParkingRebillLauncher rebillLauncher;
 
     @Operation(
             summary = "Регистрация въезда автомобиля",
-            description = "Сохраняет данные о въезде автомобиля по номеру и типу"
+            description = "Сохраняет данные о въезде автомобиля по номеру и типу. "
+                    + "В режиме отложенной записи отвечает 202 сразу после записи события в журнал"
     )
     @PostMapping("/entry")
-    public EntryResponse registerEntry(@RequestBody EntryRequest request) {
+    public ResponseEntity<EntryResponse> registerEntry(@RequestBody EntryRequest request) {
+        if (writeBehind.isPresent()) {
+            LocalDateTime entryTime = writeBehind.get().appendEntry(ParkingLot.DEFAULT_ID, request.getLicensePlate(), request.getCarType());
+            return ResponseEntity.accepted().body(new EntryResponse(entryTime));
+        }
         var record = parkingService.registerEntry(request.getLicensePlate(), request.getCarType());
         if (record == null) {
             throw new IllegalArgumentException("Не удалось зарегистрировать въезд: автомобиль не принят.");
         }
-        return new EntryResponse(record.getEntryTime());
+        return ResponseEntity.ok(new EntryResponse(record.getEntryTime()));
     }
 
     @Operation(
             summary = "Регистрация выезда автомобиля",
-            description = "Обновляет запись о машине, проставляя время выезда"
+            description = "Обновляет запись о машине, проставляя время выезда и стоимость по тарифу её типа. "
+                    + "В режиме отложенной записи отвечает 202 сразу после записи события в журнал"
     )
     @PostMapping("/exit")
-    public ExitResponse registerExit(@RequestBody ExitRequest request) {
+    public ResponseEntity<ExitResponse> registerExit(@RequestBody ExitRequest request) {
+        if (writeBehind.isPresent()) {
+            LocalDateTime exitTime = writeBehind.get().appendExit(ParkingLot.DEFAULT_ID, request.getLicensePlate());
+            return ResponseEntity.accepted().body(new ExitResponse(exitTime, null));
+        }
         var record = parkingService.registerExit(request.getLicensePlate());
-        return new ExitResponse(record.getExitTime());
+        return ResponseEntity.ok(new ExitResponse(record.getExitTime(), record.getFee()));
+    }
+
+    @Operation(
+            summary = "Пакетная регистрация въездов",
+            description = "Регистрирует накопленные шлагбаумом въезды одной транзакцией и возвращает результат по каждому событию"
+    )
+    @PostMapping("/entries:batch")
+    public List<BatchResult> registerEntries(@RequestBody List<EntryRequest> requests) {
+        return parkingService.registerEntries(requests.stream()
+                // null в массиве — отказ INVALID по этому событию, а не ошибка всего пакета
+                .map(request -> request != null ? new EntryCommand(request.getLicensePlate(), request.getCarType()) : null)
+                .toList());
+    }
+
+    @Operation(
+            summary = "Пакетная регистрация выездов",
+            description = "Регистрирует накопленные шлагбаумом выезды одной транзакцией и возвращает результат по каждому событию"
+    )
+    @PostMapping("/exits:batch")
+    public List<BatchResult> registerExits(@RequestBody List<ExitRequest> requests) {
+        return parkingService.registerExits(requests.stream()
+                .map(request -> request != null ? request.getLicensePlate() : null)
+                .toList());
     }
 
     @Operation(
             summary = "Получение отчета по парковке",
-            description = "Возвращает количество занятых и свободных мест, а также среднюю продолжительность пребывания на парковке за заданный период"
+            description = "Возвращает количество занятых и свободных мест, а также среднюю продолжительность пребывания на парковке за заданный период. "
+                    + "С by_car_type=true добавляет разбивку по типам машин: занятые места, число парковок, среднее, p50 и p95 длительности"
     )
     @GetMapping("/report")
     public ParkingReport getReport(
             @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
-            @RequestParam(defaultValue = "100") int totalCapacity
+            @RequestParam(defaultValue = "100") int totalCapacity,
+            @RequestParam(name = "by_car_type", defaultValue = "false") boolean byCarType
+    ) {
+        ParkingReport report = parkingService.getReport(start, end, totalCapacity);
+        return byCarType
+                ? report.withByCarType(parkingService.getCarTypeBreakdown(ParkingLot.DEFAULT_ID, start, end))
+                : report;
+    }
+
+    @Operation(
+            summary = "Перцентили длительности парковки",
+            description = "Возвращает p50, p90 и p99 продолжительности пребывания на основной площадке за период по квантильным скетчам "
+                    + "с относительной погрешностью relativeAccuracy. С car_type — только для машин этого типа"
+    )
+    @GetMapping("/report/percentiles")
+    public DurationPercentiles getPercentiles(
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "car_type", required = false) CarType carType
     ) {
-        return parkingService.getReport(start, end, totalCapacity);
+        return parkingService.getPercentiles(ParkingLot.DEFAULT_ID, start, end, carType);
+    }
+
+    @Operation(
+            summary = "Занятость во времени",
+            description = "Возвращает среднюю и пиковую занятость на основной площадке по корзинам размера bucket (ISO-8601, по умолчанию PT5M), "
+                    + "общий пик с его моментом и время, проведённое на пределе вместимости"
+    )
+    @GetMapping("/report/timeline")
+    public OccupancyTimeline.Report getTimeline(
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "PT5M") Duration bucket
+    ) {
+        return parkingService.getTimeline(ParkingLot.DEFAULT_ID, start, end, bucket);
+    }
+
+    @Operation(
+            summary = "Перерасчёт стоимости парковок",
+            description = "Запускает в фоне пересчёт стоимости всех завершённых парковок с выездом в заданном периоде по текущим тарифам "
+                    + "и сразу возвращает запуск. Повторный запрос того же периода при тех же тарифах возвращает уже начатый запуск"
+    )
+    @PostMapping("/billing/rebill")
+    public ResponseEntity<RebillRun> rebill(
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+    ) {
+        return ResponseEntity.accepted().body(rebillLauncher.rebill(start, end));
+    }
+
+    @Operation(
+            summary = "Поток событий занятости",
+            description = "Server-Sent Events: entry и exit с изменением и текущей занятостью площадки после фиксации, occupancy — снимок занятости. "
+                    + "lot_id ограничивает поток одной площадкой; при переподключении с Last-Event-ID поток продолжается без пропусков, "
+                    + "если события ещё в буфере. Отставшему клиенту пропущенные события заменяются снимком (overflow=COALESCE) "
+                    + "или событием dropped (overflow=DROP)"
+    )
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @RequestParam(name = "lot_id", required = false) Long lotId,
+            @RequestParam(defaultValue = "COALESCE") OverflowPolicy overflow,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        return eventStream.subscribe(lotId, lastEventId, overflow);
+    }
+
+    @Operation(
+            summary = "Выгрузка истории парковок",
+            description = "Потоково отдает записи с entryTime в заданном периоде в формате NDJSON или CSV в порядке (entryTime, id). "
+                    + "Каждая строка содержит cursor: передайте его, чтобы продолжить выгрузку после этой строки"
+    )
+    @GetMapping("/records")
+    public ResponseEntity<StreamingResponseBody> exportRecords(
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long limit
+    ) {
+        historyExporter.validate(start, end, limit);
+        HistoryCursor after = cursor != null ? HistoryCursor.decode(cursor) : null;
+        StreamingResponseBody body = out -> historyExporter.export(start, end, after, limit, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
 
     @Data
@@ -81,6 +222,12 @@ public class ParkingController {
     @Data
     public static class ExitResponse {
         private final LocalDateTime exitTime;
+
+        /**
+         * Стоимость в копейках; в режиме отложенной записи ещё не известна и не передаётся.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private final Long fee;
     }
 }
 
@@ -0,0 +1,202 @@
+package com.example.parkingservice.controller.v1;
+
+import com.example.parkingservice.controller.v1.ParkingController.EntryRequest;
+import com.example.parkingservice.controller.v1.ParkingController.EntryResponse;
+import com.example.parkingservice.controller.v1.ParkingController.ExitRequest;
+import com.example.parkingservice.controller.v1.ParkingController.ExitResponse;
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.OccupancyEventStream.OverflowPolicy;
+import com.example.parkingservice.service.OccupancyTimeline;
+import com.example.parkingservice.service.ParkingLotService;
+import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.DurationPercentiles;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
+import com.example.parkingservice.service.ParkingService.ParkingReport;
+import com.example.parkingservice.service.WriteBehindIngest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/v1/lots")
+@RequiredArgsConstructor
+@Tag(name = "Площадки", description = "Управление площадками, их вместимостью и событиями на конкретной площадке")
+public class ParkingLotController {
+
+    private final ParkingLotService lotService;
+    private final ParkingService parkingService;
+    private final Optional<WriteBehindIngest> writeBehind;
+    private final OccupancyEventStream eventStream;
+
+    @Operation(
+            summary = "Список площадок",
+            description = "Возвращает все площадки с их вместимостью"
+    )
+    @GetMapping
+    public List<LotResponse> getLots() {
+        return lotService.findAll().stream()
+                .map(LotResponse::of)
+                .toList();
+    }
+
+    @Operation(
+            summary = "Создание или изменение площадки",
+            description = "Создает площадку с заданным идентификатором или меняет название и вместимость существующей"
+    )
+    @PutMapping("/{lotId}")
+    public LotResponse saveLot(@PathVariable long lotId, @RequestBody LotRequest request) {
+        return LotResponse.of(lotService.save(lotId, request.getName(), request.getCapacity()));
+    }
+
+    @Operation(
+            summary = "Регистрация въезда на площадку",
+            description = "Сохраняет данные о въезде автомобиля на указанную площадку. "
+                    + "В режиме отложенной записи отвечает 202 сразу после записи события в журнал"
+    )
+    @PostMapping("/{lotId}/entry")
+    public ResponseEntity<EntryResponse> registerEntry(@PathVariable long lotId, @RequestBody EntryRequest request) {
+        if (writeBehind.isPresent()) {
+            LocalDateTime entryTime = writeBehind.get().appendEntry(lotId, request.getLicensePlate(), request.getCarType());
+            return ResponseEntity.accepted().body(new EntryResponse(entryTime));
+        }
+        var record = parkingService.registerEntry(lotId, request.getLicensePlate(), request.getCarType());
+        if (record == null) {
+            throw new IllegalArgumentException("Не удалось зарегистрировать въезд: автомобиль не принят.");
+        }
+        return ResponseEntity.ok(new EntryResponse(record.getEntryTime()));
+    }
+
+    @Operation(
+            summary = "Регистрация выезда с площадки",
+            description = "Проставляет время выезда в активной сессии автомобиля на указанной площадке. "
+                    + "В режиме отложенной записи отвечает 202 сразу после записи события в журнал"
+    )
+    @PostMapping("/{lotId}/exit")
+    public ResponseEntity<ExitResponse> registerExit(@PathVariable long lotId, @RequestBody ExitRequest request) {
+        if (writeBehind.isPresent()) {
+            LocalDateTime exitTime = writeBehind.get().appendExit(lotId, request.getLicensePlate());
+            return ResponseEntity.accepted().body(new ExitResponse(exitTime, null));
+        }
+        var record = parkingService.registerExit(lotId, request.getLicensePlate());
+        return ResponseEntity.ok(new ExitResponse(record.getExitTime(), record.getFee()));
+    }
+
+    @Operation(
+            summary = "Пакетная регистрация въездов на площадку",
+            description = "Регистрирует накопленные шлагбаумом площадки въезды одной транзакцией"
+    )
+    @PostMapping("/{lotId}/entries:batch")
+    public List<BatchResult> registerEntries(@PathVariable long lotId, @RequestBody List<EntryRequest> requests) {
+        return parkingService.registerEntries(lotId, requests.stream()
+                .map(request -> request != null ? new EntryCommand(request.getLicensePlate(), request.getCarType()) : null)
+                .toList());
+    }
+
+    @Operation(
+            summary = "Пакетная регистрация выездов с площадки",
+            description = "Регистрирует накопленные шлагбаумом площадки выезды одной транзакцией"
+    )
+    @PostMapping("/{lotId}/exits:batch")
+    public List<BatchResult> registerExits(@PathVariable long lotId, @RequestBody List<ExitRequest> requests) {
+        return parkingService.registerExits(lotId, requests.stream()
+                .map(request -> request != null ? request.getLicensePlate() : null)
+                .toList());
+    }
+
+    @Operation(
+            summary = "Отчет по площадке",
+            description = "Возвращает занятые и свободные места площадки с учетом ее вместимости и среднюю продолжительность пребывания за период. "
+                    + "С by_car_type=true добавляет разбивку по типам машин"
+    )
+    @GetMapping("/{lotId}/report")
+    public ParkingReport getReport(
+            @PathVariable long lotId,
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "by_car_type", defaultValue = "false") boolean byCarType
+    ) {
+        ParkingReport report = parkingService.getReport(lotId, start, end);
+        return byCarType
+                ? report.withByCarType(parkingService.getCarTypeBreakdown(lotId, start, end))
+                : report;
+    }
+
+    @Operation(
+            summary = "Перцентили длительности парковки на площадке",
+            description = "Возвращает p50, p90 и p99 продолжительности пребывания на указанной площадке за период по квантильным скетчам "
+                    + "с относительной погрешностью relativeAccuracy. С car_type — только для машин этого типа"
+    )
+    @GetMapping("/{lotId}/report/percentiles")
+    public DurationPercentiles getPercentiles(
+            @PathVariable long lotId,
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "car_type", required = false) CarType carType
+    ) {
+        return parkingService.getPercentiles(lotId, start, end, carType);
+    }
+
+    @Operation(
+            summary = "Занятость площадки во времени",
+            description = "Возвращает среднюю и пиковую занятость на указанной площадке по корзинам размера bucket (ISO-8601, по умолчанию PT5M), "
+                    + "общий пик с его моментом и время, проведённое на пределе вместимости"
+    )
+    @GetMapping("/{lotId}/report/timeline")
+    public OccupancyTimeline.Report getTimeline(
+            @PathVariable long lotId,
+            @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "PT5M") Duration bucket
+    ) {
+        return parkingService.getTimeline(lotId, start, end, bucket);
+    }
+
+    @Operation(
+            summary = "Поток событий занятости площадки",
+            description = "Server-Sent Events въездов, выездов и снимков занятости указанной площадки; параметры как у /api/v1/parking/events"
+    )
+    @GetMapping(path = "/{lotId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @PathVariable long lotId,
+            @RequestParam(defaultValue = "COALESCE") OverflowPolicy overflow,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        return eventStream.subscribe(lotId, lastEventId, overflow);
+    }
+
+    @Data
+    public static class LotRequest {
+        @NotBlank
+        private String name;
+
+        @Positive
+        private int capacity;
+    }
+
+    @Data
+    public static class LotResponse {
+        private final long id;
+        private final String name;
+        private final int capacity;
+
+        static LotResponse of(ParkingLot lot) {
+            return new LotResponse(lot.getId(), lot.getName(), lot.getCapacity());
+        }
+    }
+}
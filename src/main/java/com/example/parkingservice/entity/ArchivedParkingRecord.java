@@ -0,0 +1,43 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Завершённая парковка старше срока хранения, перенесённая из parking_record заданием архивации.
+ * Строки только добавляются; меняется лишь стоимость при перерасчёте (rebillParkingJob). В PostgreSQL таблица секционирована по месяцам entry_time
+ * (см. ParkingRecordPartitionMigration), индексы объявлены в schema-parking.sql.
+ */
+@Entity
+@Table(name = "parking_record_archive")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedParkingRecord {
+
+    @Id
+    private Long id;
+
+    @Column(name = "lot_id", nullable = false)
+    private Long lotId;
+
+    @Column(name = "license_plate", nullable = false)
+    private String licensePlate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "car_type", nullable = false)
+    private CarType carType;
+
+    @Column(name = "entry_time", nullable = false)
+    private LocalDateTime entryTime;
+
+    @Column(name = "exit_time", nullable = false)
+    private LocalDateTime exitTime;
+
+    @Column(name = "fee")
+    private Long fee;
+}
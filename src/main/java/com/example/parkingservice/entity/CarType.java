@@ -5,5 +5,32 @@ public enum CarType {
     SUV,
     TRUCK,
     VAN,
-    MOTORCYCLE
+    MOTORCYCLE;
+
+    private static final CarType[] VALUES = values();
+
+    /**
+     * Поиск по имени в части строки без выделения подстроки и без исключений {@link #valueOf}.
+     *
+     * @return тип или {@code null}, если имя не распознано
+     */
+    public static CarType fromName(CharSequence text, int from, int to) {
+        int length = to - from;
+        for (CarType type : VALUES) {
+            String name = type.name();
+            if (name.length() == length && regionEquals(text, from, name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionEquals(CharSequence text, int from, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (text.charAt(from + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
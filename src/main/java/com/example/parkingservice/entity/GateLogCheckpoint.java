@@ -0,0 +1,26 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Смещение в журнале отложенной записи, до которого события уже записаны в parking_record.
+ * Обновляется в той же транзакции, что и сами события, поэтому после сбоя повтор начинается
+ * ровно с первого незаписанного события.
+ */
+@Entity
+@Table(name = "gate_log_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GateLogCheckpoint {
+
+    @Id
+    @Column(name = "log_name")
+    private String logName;
+
+    @Column(name = "flushed_offset", nullable = false)
+    private long flushedOffset;
+}
@@ -0,0 +1,48 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Почасовой квантильный скетч длительностей завершённых парковок по площадке и типу машины.
+ * Корзина выбирается по часу въезда, как у {@link ParkingDurationStats}; {@code sketch} — сериализованный
+ * {@link com.example.parkingservice.service.DurationSketch}.
+ */
+@Entity
+@Table(name = "parking_duration_sketch")
+@IdClass(ParkingDurationSketch.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParkingDurationSketch {
+
+    @Id
+    @Column(name = "lot_id", nullable = false)
+    private Long lotId;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "car_type", nullable = false)
+    private CarType carType;
+
+    @Column(name = "sketch", nullable = false, length = 65536)
+    private byte[] sketch;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long lotId;
+        private LocalDateTime bucketStart;
+        private CarType carType;
+    }
+}
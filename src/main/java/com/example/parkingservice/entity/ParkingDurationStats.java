@@ -0,0 +1,56 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Почасовой агрегат длительностей завершённых парковок. Сессия попадает в корзину
+ * по часу въезда, как и в отчёте, который фильтрует по {@code entry_time}; агрегаты ведутся по каждой площадке.
+ */
+@Entity
+@Table(name = "parking_duration_stats")
+@IdClass(ParkingDurationStats.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParkingDurationStats {
+
+    @Id
+    @Column(name = "lot_id", nullable = false)
+    private Long lotId;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "car_type", nullable = false)
+    private CarType carType;
+
+    @Column(name = "session_count", nullable = false)
+    private long sessionCount;
+
+    @Column(name = "total_seconds", nullable = false)
+    private double totalSeconds;
+
+    @Column(name = "min_seconds", nullable = false)
+    private double minSeconds;
+
+    @Column(name = "max_seconds", nullable = false)
+    private double maxSeconds;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long lotId;
+        private LocalDateTime bucketStart;
+        private CarType carType;
+    }
+}
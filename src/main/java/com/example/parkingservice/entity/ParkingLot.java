@@ -0,0 +1,32 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Парковка (площадка) со своей вместимостью. Записи парковок каждой площадки
+ * хранятся в отдельной секции parking_record.
+ */
+@Entity
+@Table(name = "parking_lot")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParkingLot {
+
+    /**
+     * Площадка, к которой относятся записи без явного lotId: API /api/v1/parking и прежние данные.
+     */
+    public static final long DEFAULT_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "capacity", nullable = false)
+    private int capacity;
+}
@@ -2,18 +2,18 @@ package com.example.parkingservice.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.time.LocalDateTime;
 
+// Таблица в PostgreSQL секционирована по lot_id (см. ParkingRecordPartitionMigration).
+// Индексы объявлены в schema-parking.sql, частичный уникальный ux_parking_record_lot_active_plate создаёт
+// ParkingRecordPartitionMigration: @Index не выражает частичные индексы, а schema update не видит индексы
+// секционированной таблицы
 @Entity
-@Table(
-        name = "parking_record",
-        indexes = {
-                @Index(name = "idx_license_plate", columnList = "license_plate"),
-                @Index(name = "idx_entry_time", columnList = "entry_time"),
-                @Index(name = "idx_exit_time", columnList = "exit_time")
-        }
-)
+@Table(name = "parking_record")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,9 +22,18 @@ import java.time.LocalDateTime;
 public class ParkingRecord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "parking_record_seq")
+    @GenericGenerator(
+            name = "parking_record_seq",
+            type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "parking_record_seq")
+    )
     private Long id;
 
+    @Column(name = "lot_id", nullable = false)
+    @Builder.Default
+    private Long lotId = ParkingLot.DEFAULT_ID;
+
     @Column(name = "license_plate", nullable = false)
     private String licensePlate;
 
@@ -38,6 +47,13 @@ public class ParkingRecord {
     @Column(name = "exit_time")
     private LocalDateTime exitTime;
 
+    /**
+     * Стоимость в копейках по {@code TariffEngine}: при выезде или заданием перерасчёта.
+     * Для загруженных импортом и ещё не пересчитанных парковок — null.
+     */
+    @Column(name = "fee")
+    private Long fee;
+
     public boolean isActive() {
         return this.exitTime == null;
     }
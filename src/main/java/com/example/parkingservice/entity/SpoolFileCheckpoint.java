@@ -0,0 +1,32 @@
+package com.example.parkingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Позиция чтения файла из каталога приёма: байт, с которого начинается первая незаписанная строка,
+ * и номер этой строки. Обновляется в той же транзакции, что и записи из файла; completed — файл
+ * прочитан целиком и ждёт переноса в архив.
+ */
+@Entity
+@Table(name = "spool_file_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpoolFileCheckpoint {
+
+    @Id
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "byte_offset", nullable = false)
+    private long byteOffset;
+
+    @Column(name = "line_number", nullable = false)
+    private long lineNumber;
+
+    @Column(nullable = false)
+    private boolean completed;
+}
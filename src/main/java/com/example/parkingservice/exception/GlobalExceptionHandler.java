@@ -1,6 +1,10 @@
 package com.example.parkingservice.exception;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -11,4 +15,18 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
+
+    /**
+     * Пул соединений не выдал соединение за connection-timeout. На виртуальных потоках Tomcat
+     * больше не ограничивает число одновременных запросов, и при пиковой нагрузке очередь
+     * выстраивается к Hikari — такой запрос стоит повторить, а не считать ошибкой сервера.
+     * Так же отвечает режим отложенной записи, когда журнал событий отстал от базы.
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class,
+            IngestBacklogFullException.class})
+    public ResponseEntity<String> handleConnectionUnavailable(RuntimeException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Сервис перегружен, повторите запрос позже");
+    }
 }
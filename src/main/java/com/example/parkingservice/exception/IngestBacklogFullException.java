@@ -0,0 +1,11 @@
+package com.example.parkingservice.exception;
+
+/**
+ * Журнал отложенной записи отстал от базы больше допустимого: событие не принято, его стоит повторить позже.
+ */
+public class IngestBacklogFullException extends RuntimeException {
+
+    public IngestBacklogFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.CarType;
+
+import java.time.LocalDateTime;
+
+public interface ActiveSessionView {
+
+    Long getId();
+
+    Long getLotId();
+
+    String getLicensePlate();
+
+    CarType getCarType();
+
+    LocalDateTime getEntryTime();
+}
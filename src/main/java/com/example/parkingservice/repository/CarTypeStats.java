@@ -0,0 +1,16 @@
+package com.example.parkingservice.repository;
+
+public interface CarTypeStats {
+
+    String getCarType();
+
+    Number getOccupied();
+
+    Number getCount();
+
+    Number getAvgSeconds();
+
+    Number getP50Seconds();
+
+    Number getP95Seconds();
+}
@@ -0,0 +1,8 @@
+package com.example.parkingservice.repository;
+
+public interface DurationTotals {
+
+    Number getCount();
+
+    Number getTotal();
+}
@@ -0,0 +1,7 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.GateLogCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface GateLogCheckpointRepository extends JpaRepository<GateLogCheckpoint, String> {
+}
@@ -0,0 +1,8 @@
+package com.example.parkingservice.repository;
+
+public interface LotCount {
+
+    Long getLotId();
+
+    Long getCount();
+}
@@ -0,0 +1,49 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingDurationSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Скетч нельзя сложить на стороне БД, поэтому слияние — вставка пустой корзины при отсутствии,
+// затем чтение под блокировкой строки и запись объединённого скетча
+public interface ParkingDurationSketchRepository extends JpaRepository<ParkingDurationSketch, ParkingDurationSketch.Key> {
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO parking_duration_sketch (lot_id, bucket_start, car_type, sketch)
+    VALUES (:lotId, :bucketStart, :carType, :sketch)
+    ON CONFLICT (lot_id, bucket_start, car_type) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(Long lotId, LocalDateTime bucketStart, String carType, byte[] sketch);
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO parking_duration_sketch (lot_id, bucket_start, car_type, sketch)
+    VALUES (:lotId, :bucketStart, :carType, :sketch)
+    ON CONFLICT (lot_id, bucket_start, car_type) DO UPDATE SET sketch = EXCLUDED.sketch
+    """, nativeQuery = true)
+    void replace(Long lotId, LocalDateTime bucketStart, String carType, byte[] sketch);
+
+    // SHARE ROW EXCLUSIVE несовместим с ROW EXCLUSIVE, который берут вставка и FOR UPDATE: слияния ждут конца пересчёта
+    @Modifying
+    @Query(value = "LOCK TABLE parking_duration_sketch IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+    SELECT s FROM ParkingDurationSketch s
+    WHERE s.lotId = :lotId AND s.bucketStart = :bucketStart AND s.carType = :carType
+    """)
+    Optional<ParkingDurationSketch> findForUpdate(Long lotId, LocalDateTime bucketStart, CarType carType);
+
+    List<ParkingDurationSketch> findByLotIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+            Long lotId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,59 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.ParkingDurationStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface ParkingDurationStatsRepository extends JpaRepository<ParkingDurationStats, ParkingDurationStats.Key> {
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO parking_duration_stats (lot_id, bucket_start, car_type, session_count, total_seconds, min_seconds, max_seconds)
+    VALUES (:lotId, :bucketStart, :carType, :count, :totalSeconds, :minSeconds, :maxSeconds)
+    ON CONFLICT (lot_id, bucket_start, car_type) DO UPDATE SET
+        session_count = parking_duration_stats.session_count + EXCLUDED.session_count,
+        total_seconds = parking_duration_stats.total_seconds + EXCLUDED.total_seconds,
+        min_seconds = LEAST(parking_duration_stats.min_seconds, EXCLUDED.min_seconds),
+        max_seconds = GREATEST(parking_duration_stats.max_seconds, EXCLUDED.max_seconds)
+    """, nativeQuery = true)
+    void accumulate(Long lotId, LocalDateTime bucketStart, String carType, long count,
+                    double totalSeconds, double minSeconds, double maxSeconds);
+
+    @Query(value = """
+    SELECT COALESCE(SUM(session_count), 0) AS count, COALESCE(SUM(total_seconds), 0) AS total
+    FROM parking_duration_stats
+    WHERE lot_id = :lotId AND bucket_start >= :from AND bucket_start < :to
+    """, nativeQuery = true)
+    DurationTotals sumBuckets(Long lotId, LocalDateTime from, LocalDateTime to);
+
+    // SHARE ROW EXCLUSIVE несовместим с ROW EXCLUSIVE, который берёт accumulate: выезды ждут конца пересчёта
+    @Modifying
+    @Query(value = "LOCK TABLE parking_duration_stats IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = """
+    INSERT INTO parking_duration_stats (lot_id, bucket_start, car_type, session_count, total_seconds, min_seconds, max_seconds)
+    SELECT lot_id, DATE_TRUNC('hour', entry_time), car_type, COUNT(*),
+           SUM(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time)),
+           MIN(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time)),
+           MAX(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time))
+    FROM (
+        SELECT lot_id, car_type, entry_time, exit_time FROM parking_record
+        WHERE exit_time IS NOT NULL AND entry_time >= :from AND entry_time < :to
+        UNION ALL
+        SELECT lot_id, car_type, entry_time, exit_time FROM parking_record_archive
+        WHERE entry_time >= :from AND entry_time < :to
+    ) r
+    GROUP BY lot_id, DATE_TRUNC('hour', entry_time), car_type
+    ON CONFLICT (lot_id, bucket_start, car_type) DO UPDATE SET
+        session_count = EXCLUDED.session_count,
+        total_seconds = EXCLUDED.total_seconds,
+        min_seconds = EXCLUDED.min_seconds,
+        max_seconds = EXCLUDED.max_seconds
+    """, nativeQuery = true)
+    int rebuildFromRecords(LocalDateTime from, LocalDateTime to);
+}
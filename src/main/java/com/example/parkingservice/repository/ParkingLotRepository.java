@@ -0,0 +1,7 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.ParkingLot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ParkingLotRepository extends JpaRepository<ParkingLot, Long> {
+}
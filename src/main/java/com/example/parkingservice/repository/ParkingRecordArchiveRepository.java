@@ -0,0 +1,119 @@
+package com.example.parkingservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Перенос завершённых парковок из parking_record в parking_record_archive.
+ * <p>
+ * В PostgreSQL архив секционирован по месяцам entry_time: parking_record_archive_&lt;yyyy_MM&gt;.
+ * Секции создаются до переноса; строки без подходящей секции попадают в parking_record_archive_default.
+ * Месяц, который больше не нужен в отчётах, отцепляется и выгружается целиком:
+ * {@code ALTER TABLE parking_record_archive DETACH PARTITION parking_record_archive_2025_01 CONCURRENTLY}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ParkingRecordArchiveRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String product;
+    private volatile Boolean partitioned;
+
+    public static String partitionName(YearMonth month) {
+        return "parking_record_archive_" + PARTITION_SUFFIX.format(month);
+    }
+
+    public static String createPartitionSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                + " PARTITION OF parking_record_archive FOR VALUES FROM ('" + month.atDay(1) + "') TO ('"
+                + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    /**
+     * Создаёт месячные секции для всех записей, которые будут перенесены при данной границе.
+     * Возвращает число месяцев; на базах без секционирования ничего не делает.
+     */
+    public int ensurePartitions(LocalDateTime cutoff) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        List<Timestamp> months = jdbcTemplate.queryForList(
+                "SELECT DISTINCT DATE_TRUNC('month', entry_time) FROM parking_record WHERE exit_time < ?",
+                Timestamp.class, cutoff);
+        for (Timestamp month : months) {
+            jdbcTemplate.execute(createPartitionSql(YearMonth.from(month.toLocalDateTime())));
+        }
+        return months.size();
+    }
+
+    /**
+     * Переносит в архив не больше {@code limit} записей с самым ранним выездом до {@code cutoff}
+     * (при совпадающем времени выезда — чуть больше). Возвращает число перенесённых записей.
+     * <p>
+     * Удаление и вставка в архив — один оператор: в отдельных операторах READ COMMITTED каждый видит свой снимок,
+     * и строка, зафиксированная между ними (импорт истории, приём из каталога, перерасчёт стоимости), удалялась бы
+     * без переноса. Архивируется ровно то, что удалено, включая строки, появившиеся после выбора границы порции.
+     */
+    public int moveClosedBefore(LocalDateTime cutoff, int limit) {
+        Timestamp upper = jdbcTemplate.queryForObject("""
+                SELECT MAX(exit_time) FROM (
+                    SELECT exit_time FROM parking_record
+                    WHERE exit_time < ?
+                    ORDER BY exit_time
+                    LIMIT ?
+                ) chunk
+                """, Timestamp.class, cutoff, limit);
+        if (upper == null) {
+            return 0;
+        }
+        if (isPostgres()) {
+            return jdbcTemplate.update("""
+                    WITH moved AS (
+                        DELETE FROM parking_record
+                        WHERE exit_time <= ? AND exit_time < ?
+                        RETURNING id, lot_id, license_plate, car_type, entry_time, exit_time, fee
+                    )
+                    INSERT INTO parking_record_archive (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)
+                    SELECT id, lot_id, license_plate, car_type, entry_time, exit_time, fee FROM moved
+                    """, upper, cutoff);
+        }
+        // H2: удалённые строки — дельта-таблица OLD TABLE того же оператора
+        return jdbcTemplate.update("""
+                INSERT INTO parking_record_archive (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)
+                SELECT id, lot_id, license_plate, car_type, entry_time, exit_time, fee
+                FROM OLD TABLE (DELETE FROM parking_record WHERE exit_time <= ? AND exit_time < ?)
+                """, upper, cutoff);
+    }
+
+    public boolean isPartitioned() {
+        Boolean result = partitioned;
+        if (result == null) {
+            result = isPostgres() && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('parking_record_archive'))",
+                    Boolean.class));
+            partitioned = result;
+        }
+        return result;
+    }
+
+    private boolean isPostgres() {
+        String result = product;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            product = result;
+        }
+        return "PostgreSQL".equals(result);
+    }
+}
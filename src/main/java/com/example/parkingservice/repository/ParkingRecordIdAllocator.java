@@ -0,0 +1,71 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.PooledSequenceGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Выдаёт id для вставок в обход Hibernate по тем же правилам pooled-lo, что и
+ * {@link PooledSequenceGenerator}: значение nextval открывает блок [value, value + allocationSize),
+ * поэтому JDBC-путь и JPA-путь никогда не пересекаются по идентификаторам.
+ * <p>
+ * Блокировка — {@link ReentrantLock}, а не synchronized: за nextval поток уходит в JDBC,
+ * и виртуальный поток внутри synchronized закрепил бы за собой поток-носитель.
+ */
+@Component
+public class ParkingRecordIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int allocationSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long next;
+    private long limit;
+
+    public ParkingRecordIdAllocator(JdbcTemplate jdbcTemplate,
+                                    @Value("${parking.id.allocation-size:" + PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE + "}")
+                                    int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.allocationSize = allocationSize;
+    }
+
+    public long nextId() {
+        return nextIds(1).get(0);
+    }
+
+    public List<Long> nextIds(int count) {
+        lock.lock();
+        try {
+            return allocate(count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Long> allocate(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count && next < limit) {
+            ids.add(next++);
+        }
+        int missing = count - ids.size();
+        if (missing > 0) {
+            int blocks = (missing + allocationSize - 1) / allocationSize;
+            List<Long> starts = jdbcTemplate.queryForList(
+                    "SELECT nextval('parking_record_seq') FROM generate_series(1, ?)", Long.class, blocks);
+            for (long start : starts) {
+                next = start;
+                limit = start + allocationSize;
+                while (ids.size() < count && next < limit) {
+                    ids.add(next++);
+                }
+            }
+        }
+        return ids;
+    }
+}
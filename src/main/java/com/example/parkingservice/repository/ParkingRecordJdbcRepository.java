@@ -0,0 +1,247 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Пакетные операции над parking_record через JDBC batch в обход контекста персистентности.
+ * Счётчики строк из batchUpdate различают вставку и конфликт, поэтому у драйвера PostgreSQL
+ * не должен быть включён reWriteBatchedInserts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ParkingRecordJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ParkingRecordIdAllocator idAllocator;
+
+    public long nextId() {
+        return idAllocator.nextId();
+    }
+
+    public List<Long> nextIds(int count) {
+        return idAllocator.nextIds(count);
+    }
+
+    public int[] insertIfAbsent(List<ParkingRecord> records) {
+        return jdbcTemplate.batchUpdate("""
+                INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (lot_id, license_plate) WHERE exit_time IS NULL DO NOTHING
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ParkingRecord record = records.get(i);
+                ps.setLong(1, record.getId());
+                ps.setLong(2, record.getLotId());
+                ps.setString(3, record.getLicensePlate());
+                ps.setString(4, record.getCarType().name());
+                ps.setObject(5, record.getEntryTime());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return records.size();
+            }
+        });
+    }
+
+    public int[] closeSessions(long lotId, List<Long> ids, List<LocalDateTime> exitTimes, List<Long> fees) {
+        return jdbcTemplate.batchUpdate(
+                "UPDATE parking_record SET exit_time = ?, fee = ? WHERE lot_id = ? AND id = ? AND exit_time IS NULL",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setObject(1, exitTimes.get(i));
+                        ps.setLong(2, fees.get(i));
+                        ps.setLong(3, lotId);
+                        ps.setLong(4, ids.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ids.size();
+                    }
+                });
+    }
+
+    /**
+     * Страница истории по ключу (entry_time, id): строки строго после (afterEntryTime, afterId)
+     * в порядке индекса ix_parking_record_entry_time_id. Архив читается тем же ключом по своему первичному ключу,
+     * каждая часть ограничена limit до слияния. Строки передаются в consumer по одной,
+     * не накапливаясь в списке; возвращает число прочитанных строк.
+     */
+    public int findPageByEntryTime(LocalDateTime from, LocalDateTime to,
+                                   LocalDateTime afterEntryTime, long afterId, int limit,
+                                   Consumer<ParkingRecord> consumer) {
+        int[] count = {0};
+        jdbcTemplate.query("""
+                        SELECT id, lot_id, license_plate, car_type, entry_time, exit_time
+                        FROM (
+                            (SELECT id, lot_id, license_plate, car_type, entry_time, exit_time
+                             FROM parking_record
+                             WHERE entry_time BETWEEN ? AND ?
+                               AND (entry_time, id) > (?, ?)
+                             ORDER BY entry_time, id
+                             LIMIT ?)
+                            UNION ALL
+                            (SELECT id, lot_id, license_plate, car_type, entry_time, exit_time
+                             FROM parking_record_archive
+                             WHERE entry_time BETWEEN ? AND ?
+                               AND (entry_time, id) > (?, ?)
+                             ORDER BY entry_time, id
+                             LIMIT ?)
+                        ) r
+                        ORDER BY entry_time, id
+                        LIMIT ?
+                        """,
+                ps -> {
+                    for (int part = 0; part < 2; part++) {
+                        int offset = part * 5;
+                        ps.setObject(offset + 1, from);
+                        ps.setObject(offset + 2, to);
+                        ps.setObject(offset + 3, afterEntryTime);
+                        ps.setLong(offset + 4, afterId);
+                        ps.setInt(offset + 5, limit);
+                    }
+                    ps.setInt(11, limit);
+                },
+                (ResultSet rs) -> {
+                    consumer.accept(ParkingRecord.builder()
+                            .id(rs.getLong("id"))
+                            .lotId(rs.getLong("lot_id"))
+                            .licensePlate(rs.getString("license_plate"))
+                            .carType(CarType.valueOf(rs.getString("car_type")))
+                            .entryTime(rs.getObject("entry_time", LocalDateTime.class))
+                            .exitTime(rs.getObject("exit_time", LocalDateTime.class))
+                            .build());
+                    count[0]++;
+                });
+        return count[0];
+    }
+
+    /**
+     * Завершённые парковки площадки (включая архив) с въездом в [from, to) или [from, to] при toInclusive.
+     * Читаются только тип машины и время въезда и выезда.
+     */
+    public void forEachClosed(long lotId, LocalDateTime from, LocalDateTime to, boolean toInclusive,
+                              Consumer<ParkingRecord> consumer) {
+        String upper = toInclusive ? "<=" : "<";
+        jdbcTemplate.query("""
+                        SELECT car_type, entry_time, exit_time FROM parking_record
+                        WHERE lot_id = ? AND exit_time IS NOT NULL AND entry_time >= ? AND entry_time %1$s ?
+                        UNION ALL
+                        SELECT car_type, entry_time, exit_time FROM parking_record_archive
+                        WHERE lot_id = ? AND entry_time >= ? AND entry_time %1$s ?
+                        """.formatted(upper),
+                ps -> {
+                    for (int part = 0; part < 2; part++) {
+                        int offset = part * 3;
+                        ps.setLong(offset + 1, lotId);
+                        ps.setObject(offset + 2, from);
+                        ps.setObject(offset + 3, to);
+                    }
+                },
+                (ResultSet rs) -> consumer.accept(ParkingRecord.builder()
+                        .lotId(lotId)
+                        .carType(CarType.valueOf(rs.getString("car_type")))
+                        .entryTime(rs.getObject("entry_time", LocalDateTime.class))
+                        .exitTime(rs.getObject("exit_time", LocalDateTime.class))
+                        .build()));
+    }
+
+    /**
+     * История завершённых парковок с въездом в [from, to), включая архив, в порядке (lot_id, car_type, entry_time),
+     * чтобы строки одной почасовой корзины шли подряд. Читается курсором порциями по fetchSize строк.
+     */
+    public void forEachClosedOrdered(LocalDateTime from, LocalDateTime to, int fetchSize,
+                                     Consumer<ParkingRecord> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement("""
+                            SELECT lot_id, car_type, entry_time, exit_time
+                            FROM (
+                                SELECT lot_id, car_type, entry_time, exit_time FROM parking_record
+                                WHERE exit_time IS NOT NULL AND entry_time >= ? AND entry_time < ?
+                                UNION ALL
+                                SELECT lot_id, car_type, entry_time, exit_time FROM parking_record_archive
+                                WHERE entry_time >= ? AND entry_time < ?
+                            ) r
+                            ORDER BY lot_id, car_type, entry_time
+                            """);
+                    ps.setObject(1, from);
+                    ps.setObject(2, to);
+                    ps.setObject(3, from);
+                    ps.setObject(4, to);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                (ResultSet rs) -> consumer.accept(ParkingRecord.builder()
+                        .lotId(rs.getLong("lot_id"))
+                        .carType(CarType.valueOf(rs.getString("car_type")))
+                        .entryTime(rs.getObject("entry_time", LocalDateTime.class))
+                        .exitTime(rs.getObject("exit_time", LocalDateTime.class))
+                        .build()));
+    }
+
+    /**
+     * Занятые места площадки в момент at: въехавшие раньше него и не выехавшие к нему, включая архив.
+     */
+    public long countOccupiedAt(long lotId, LocalDateTime at) {
+        Long count = jdbcTemplate.queryForObject("""
+                        SELECT (SELECT COUNT(*) FROM parking_record
+                                WHERE lot_id = ? AND entry_time < ? AND (exit_time IS NULL OR exit_time >= ?))
+                             + (SELECT COUNT(*) FROM parking_record_archive
+                                WHERE lot_id = ? AND entry_time < ? AND exit_time >= ?)
+                        """,
+                Long.class, lotId, at, at, lotId, at, at);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Въезды (+1) и выезды (−1) площадки, включая архив, в [from, to) по времени; в один момент выезды идут
+     * раньше въездов. Читается курсором порциями по fetchSize строк, каждое событие сразу уходит в consumer.
+     */
+    public void forEachOccupancyChange(long lotId, LocalDateTime from, LocalDateTime to, int fetchSize,
+                                       ObjIntConsumer<LocalDateTime> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement("""
+                            SELECT t, d
+                            FROM (
+                                SELECT entry_time AS t, 1 AS d FROM parking_record
+                                WHERE lot_id = ? AND entry_time >= ? AND entry_time < ?
+                                UNION ALL
+                                SELECT exit_time, -1 FROM parking_record
+                                WHERE lot_id = ? AND exit_time >= ? AND exit_time < ?
+                                UNION ALL
+                                SELECT entry_time, 1 FROM parking_record_archive
+                                WHERE lot_id = ? AND entry_time >= ? AND entry_time < ?
+                                UNION ALL
+                                SELECT exit_time, -1 FROM parking_record_archive
+                                WHERE lot_id = ? AND exit_time >= ? AND exit_time < ?
+                            ) e
+                            ORDER BY t, d
+                            """);
+                    for (int part = 0; part < 4; part++) {
+                        int offset = part * 3;
+                        ps.setLong(offset + 1, lotId);
+                        ps.setObject(offset + 2, from);
+                        ps.setObject(offset + 3, to);
+                    }
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                (ResultSet rs) -> consumer.accept(rs.getObject(1, LocalDateTime.class), rs.getInt(2)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.parkingservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Секции parking_record по площадкам: parking_record_lot_&lt;id&gt;. На базах без секционирования
+ * (H2 в тестах) все операции ничего не делают.
+ * <p>
+ * Секцию закрытой площадки можно отцепить без блокировки остальных:
+ * {@code ALTER TABLE parking_record DETACH PARTITION parking_record_lot_<id> CONCURRENTLY}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ParkingRecordPartitions {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean partitioned;
+
+    public static String partitionName(long lotId) {
+        return "parking_record_lot_" + lotId;
+    }
+
+    public static String createPartitionSql(long lotId) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(lotId)
+                + " PARTITION OF parking_record FOR VALUES IN (" + lotId + ")";
+    }
+
+    public void ensurePartition(long lotId) {
+        if (isPartitioned()) {
+            jdbcTemplate.execute(createPartitionSql(lotId));
+        }
+    }
+
+    public boolean isPartitioned() {
+        Boolean result = partitioned;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equals(product) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('parking_record'))",
+                    Boolean.class));
+            partitioned = result;
+        }
+        return result;
+    }
+}
@@ -2,28 +2,111 @@ package com.example.parkingservice.repository;
 
 import com.example.parkingservice.entity.ParkingRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
+// Запросы по одной площадке фильтруют по lot_id: в PostgreSQL они затрагивают только её секцию.
+// Запросы длительностей для отчёта читают и архив завершённых парковок (parking_record_archive)
 public interface ParkingRecordRepository extends JpaRepository<ParkingRecord, Long> {
 
     Optional<ParkingRecord> findByLicensePlateAndExitTimeIsNull(String licensePlate);
 
+    Optional<ParkingRecord> findByLotIdAndLicensePlateAndExitTimeIsNull(Long lotId, String licensePlate);
+
     List<ParkingRecord> findAllByEntryTimeBetween(LocalDateTime start, LocalDateTime end);
 
+    List<ActiveSessionView> findByExitTimeIsNull();
+
+    List<ActiveSessionView> findByLotIdAndLicensePlateInAndExitTimeIsNull(Long lotId, Collection<String> licensePlates);
+
+    @Query(value = """
+    INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time)
+    VALUES (:id, :lotId, :licensePlate, :carType, :entryTime)
+    ON CONFLICT (lot_id, license_plate) WHERE exit_time IS NULL DO NOTHING
+    RETURNING id
+    """, nativeQuery = true)
+    Optional<Long> insertIfAbsent(Long id, Long lotId, String licensePlate, String carType, LocalDateTime entryTime);
+
+    @Modifying
+    @Query("""
+    UPDATE ParkingRecord r SET r.exitTime = :exitTime, r.fee = :fee
+    WHERE r.lotId = :lotId AND r.id = :id AND r.exitTime IS NULL
+    """)
+    int closeSession(Long lotId, Long id, LocalDateTime exitTime, Long fee);
+
     long countByExitTimeIsNull();
 
     long countByExitTimeIsNotNull();
 
+    @Query("SELECT r.lotId AS lotId, COUNT(r) AS count FROM ParkingRecord r WHERE r.exitTime IS NULL GROUP BY r.lotId")
+    List<LotCount> countActiveByLot();
+
     @Query(value = """
     SELECT AVG(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time))
-    FROM parking_record
-    WHERE exit_time IS NOT NULL AND entry_time BETWEEN :start AND :end
+    FROM (
+        SELECT entry_time, exit_time FROM parking_record
+        WHERE exit_time IS NOT NULL AND entry_time BETWEEN :start AND :end
+        UNION ALL
+        SELECT entry_time, exit_time FROM parking_record_archive
+        WHERE entry_time BETWEEN :start AND :end
+    ) r
     """, nativeQuery = true)
     Double findAverageParkingDurationInSeconds(LocalDateTime start, LocalDateTime end);
 
-}
+    @Query(value = """
+    SELECT COUNT(*) AS count,
+           COALESCE(SUM(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time)), 0) AS total
+    FROM (
+        SELECT entry_time, exit_time FROM parking_record
+        WHERE lot_id = :lotId AND exit_time IS NOT NULL AND entry_time >= :from AND entry_time < :to
+        UNION ALL
+        SELECT entry_time, exit_time FROM parking_record_archive
+        WHERE lot_id = :lotId AND entry_time >= :from AND entry_time < :to
+    ) r
+    """, nativeQuery = true)
+    DurationTotals findDurationTotals(Long lotId, LocalDateTime from, LocalDateTime to);
+
+    @Query(value = """
+    SELECT COUNT(*) AS count,
+           COALESCE(SUM(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time)), 0) AS total
+    FROM (
+        SELECT entry_time, exit_time FROM parking_record
+        WHERE lot_id = :lotId AND exit_time IS NOT NULL AND entry_time BETWEEN :from AND :to
+        UNION ALL
+        SELECT entry_time, exit_time FROM parking_record_archive
+        WHERE lot_id = :lotId AND entry_time BETWEEN :from AND :to
+    ) r
+    """, nativeQuery = true)
+    DurationTotals findDurationTotalsBetween(Long lotId, LocalDateTime from, LocalDateTime to);
 
+    // Один проход по активным сессиям площадки и завершённым за период (включая архив):
+    // у активных duration = NULL, поэтому COUNT, AVG и PERCENTILE_CONT учитывают только завершённые
+    @Query(value = """
+    SELECT car_type AS carType,
+           SUM(active) AS occupied,
+           COUNT(duration) AS count,
+           AVG(duration) AS avgSeconds,
+           PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY duration) AS p50Seconds,
+           PERCENTILE_CONT(0.95) WITHIN GROUP (ORDER BY duration) AS p95Seconds
+    FROM (
+        SELECT car_type, 1 AS active, CAST(NULL AS DOUBLE PRECISION) AS duration
+        FROM parking_record
+        WHERE lot_id = :lotId AND exit_time IS NULL
+        UNION ALL
+        SELECT car_type, 0, CAST(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time) AS DOUBLE PRECISION)
+        FROM parking_record
+        WHERE lot_id = :lotId AND exit_time IS NOT NULL AND entry_time BETWEEN :start AND :end
+        UNION ALL
+        SELECT car_type, 0, CAST(EXTRACT(EPOCH FROM exit_time) - EXTRACT(EPOCH FROM entry_time) AS DOUBLE PRECISION)
+        FROM parking_record_archive
+        WHERE lot_id = :lotId AND entry_time BETWEEN :start AND :end
+    ) r
+    GROUP BY car_type
+    """, nativeQuery = true)
+    List<CarTypeStats> findCarTypeStats(Long lotId, LocalDateTime start, LocalDateTime end);
+}
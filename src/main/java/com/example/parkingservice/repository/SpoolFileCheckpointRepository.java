@@ -0,0 +1,16 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.SpoolFileCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface SpoolFileCheckpointRepository extends JpaRepository<SpoolFileCheckpoint, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM SpoolFileCheckpoint c WHERE c.fileName = :fileName")
+    Optional<SpoolFileCheckpoint> findForUpdate(String fileName);
+}
@@ -0,0 +1,87 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ActiveSessionView;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Активные сессии по площадке и номеру автомобиля, чтобы выезд обходился одним UPDATE по id.
+ * Кэш может отставать от базы: промах или устаревшая запись приводят к обычному поиску в базе.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ActiveSessionCache {
+
+    private final ParkingRecordRepository repository;
+
+    private final ConcurrentHashMap<SessionKey, ActiveSession> sessions = new ConcurrentHashMap<>();
+
+    // с основной базы: с отстающей реплики кэш пропустил бы последние въезды
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        LocalDateTime loadedAt = LocalDateTime.now();
+        List<ActiveSessionView> active = repository.findByExitTimeIsNull();
+        for (ActiveSessionView view : active) {
+            sessions.put(new SessionKey(view.getLotId(), view.getLicensePlate()), new ActiveSession(
+                    view.getId(), view.getLotId(), view.getCarType(), view.getEntryTime()));
+        }
+        Set<SessionKey> keys = active.stream()
+                .map(view -> new SessionKey(view.getLotId(), view.getLicensePlate()))
+                .collect(Collectors.toSet());
+        sessions.entrySet().removeIf(e ->
+                !keys.contains(e.getKey()) && e.getValue().entryTime().isBefore(loadedAt));
+        log.info("Кэш активных сессий загружен: {} записей", sessions.size());
+    }
+
+    public Optional<ActiveSession> get(long lotId, String licensePlate) {
+        return Optional.ofNullable(sessions.get(new SessionKey(lotId, licensePlate)));
+    }
+
+    public void put(ParkingRecord record) {
+        var key = new SessionKey(record.getLotId(), record.getLicensePlate());
+        var session = new ActiveSession(record.getId(), record.getLotId(), record.getCarType(), record.getEntryTime());
+        TransactionCallbacks.afterCommit(() -> sessions.put(key, session));
+    }
+
+    public void evict(long lotId, String licensePlate) {
+        sessions.remove(new SessionKey(lotId, licensePlate));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private record SessionKey(long lotId, String licensePlate) {
+    }
+
+    public record ActiveSession(long id, long lotId, CarType carType, LocalDateTime entryTime) {
+
+        public ParkingRecord toRecord(String licensePlate, LocalDateTime exitTime, long fee) {
+            return ParkingRecord.builder()
+                    .id(id)
+                    .lotId(lotId)
+                    .licensePlate(licensePlate)
+                    .carType(carType)
+                    .entryTime(entryTime)
+                    .exitTime(exitTime)
+                    .fee(fee)
+                    .build();
+        }
+    }
+}
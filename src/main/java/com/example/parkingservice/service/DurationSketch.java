@@ -0,0 +1,177 @@
+package com.example.parkingservice.service;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Квантильный скетч длительностей в духе DDSketch: длительность попадает в корзину с номером
+ * ⌈log_γ(x)⌉, γ = (1 + α) / (1 − α), а ответ по корзине отличается от истинного значения не больше чем на α
+ * относительно. Скетчи складываются покорзинно без потери точности, поэтому почасовые скетчи
+ * объединяются в скетч любого окна.
+ * <p>
+ * Длительности короче {@link #MIN_SECONDS} учитываются в нулевой корзине и оцениваются нулём.
+ * Сериализованная форма хранит только непустые корзины: разность номеров и счётчик в varint.
+ */
+public final class DurationSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    static final double MIN_SECONDS = 1.0;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte VERSION = 1;
+    private static final long[] EMPTY = new long[0];
+
+    private long zeroCount;
+    private long[] counts = EMPTY;
+    private int offset;
+    private long count;
+
+    public void add(double seconds) {
+        if (seconds < MIN_SECONDS) {
+            zeroCount++;
+        } else {
+            increment(index(seconds), 1);
+        }
+        count++;
+    }
+
+    public void merge(DurationSketch other) {
+        zeroCount += other.zeroCount;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                increment(other.offset + i, other.counts[i]);
+            }
+        }
+        count += other.count;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Значение квантиля q ∈ [0, 1] в секундах или {@code null} для пустого скетча.
+     */
+    public Double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Квантиль должен быть в диапазоне [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return value(offset + i);
+            }
+        }
+        return value(offset + counts.length - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(VERSION);
+        writeVarLong(out, zeroCount);
+        int bins = 0;
+        for (long c : counts) {
+            if (c != 0) {
+                bins++;
+            }
+        }
+        writeVarLong(out, bins);
+        int previous = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            // номера неотрицательны: значения меньше MIN_SECONDS = 1 в корзины не попадают
+            int index = offset + i;
+            writeVarLong(out, index - previous);
+            writeVarLong(out, counts[i]);
+            previous = index;
+        }
+        return out.toByteArray();
+    }
+
+    public static DurationSketch fromBytes(byte[] bytes) {
+        DurationSketch sketch = new DurationSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalStateException("Неизвестная версия скетча: " + bytes[0]);
+        }
+        int[] position = {1};
+        sketch.zeroCount = readVarLong(bytes, position);
+        sketch.count = sketch.zeroCount;
+        long bins = readVarLong(bytes, position);
+        int index = 0;
+        for (long b = 0; b < bins; b++) {
+            index += (int) readVarLong(bytes, position);
+            long c = readVarLong(bytes, position);
+            sketch.increment(index, c);
+            sketch.count += c;
+        }
+        return sketch;
+    }
+
+    static int index(double seconds) {
+        return (int) Math.ceil(Math.log(seconds) / LOG_GAMMA);
+    }
+
+    static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private void increment(int index, long n) {
+        if (counts.length == 0) {
+            counts = new long[8];
+            offset = index - 4;
+        } else if (index < offset || index >= offset + counts.length) {
+            grow(index);
+        }
+        counts[index - offset] += n;
+    }
+
+    private void grow(int index) {
+        int from = Math.min(offset, index);
+        int to = Math.max(offset + counts.length, index + 1);
+        // запас в обе стороны, чтобы соседние корзины не копировали массив заново
+        int slack = Math.max(8, (to - from) / 4);
+        int newOffset = index < offset ? from - slack : from;
+        int newLength = (to - newOffset) + (index >= offset + counts.length ? slack : 0);
+        long[] grown = new long[newLength];
+        System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+        counts = grown;
+        offset = newOffset;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bytes[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Повреждённый скетч");
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingDurationSketch;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.DurationTotals;
+import com.example.parkingservice.repository.ParkingDurationSketchRepository;
+import com.example.parkingservice.repository.ParkingDurationStatsRepository;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Поддерживает почасовые агрегаты и квантильные скетчи длительностей и отвечает на запросы
+ * средней длительности и перцентилей за окно: полные часы берутся из агрегатов и скетчей,
+ * неполные края окна досчитываются по исходным записям.
+ */
+@Service
+@RequiredArgsConstructor
+public class DurationStatsService {
+
+    private static final int REBUILD_FETCH_SIZE = 1000;
+
+    // корзины пишутся в одном порядке во всех транзакциях, чтобы блокировки строк не образовывали цикл
+    private static final Comparator<BucketKey> BUCKET_ORDER = Comparator.comparingLong(BucketKey::lotId)
+            .thenComparing(BucketKey::bucketStart)
+            .thenComparing(BucketKey::carType);
+
+    private final ParkingDurationStatsRepository statsRepository;
+    private final ParkingDurationSketchRepository sketchRepository;
+    private final ParkingRecordRepository recordRepository;
+    private final ParkingRecordJdbcRepository jdbcRepository;
+    private final ReportCache reportCache;
+
+    public void record(ParkingRecord record) {
+        record(List.of(record));
+    }
+
+    public void record(Collection<? extends ParkingRecord> records) {
+        Map<BucketKey, Accumulator> buckets = new TreeMap<>(BUCKET_ORDER);
+        Map<Long, EntrySpan> spans = new HashMap<>();
+        for (ParkingRecord record : records) {
+            if (record.getExitTime() == null) {
+                continue;
+            }
+            spans.computeIfAbsent(record.getLotId(), lotId -> new EntrySpan()).add(record.getEntryTime());
+            var key = new BucketKey(record.getLotId(), bucketOf(record.getEntryTime()), record.getCarType());
+            buckets.computeIfAbsent(key, k -> new Accumulator())
+                    .add(secondsBetween(record.getEntryTime(), record.getExitTime()));
+        }
+        buckets.forEach((key, acc) -> {
+            statsRepository.accumulate(
+                    key.lotId(), key.bucketStart(), key.carType().name(), acc.count, acc.total, acc.min, acc.max);
+            mergeSketch(key, acc.sketch);
+        });
+        // закрытая сессия меняет среднее во всех окнах своей площадки, куда попадает время её въезда
+        spans.forEach((lotId, span) ->
+                TransactionCallbacks.afterCommit(() -> reportCache.invalidate(lotId, span.min, span.max)));
+    }
+
+    public Double averageSeconds(long lotId, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime firstFull = bucketOf(start).equals(start) ? start : bucketOf(start).plusHours(1);
+        LocalDateTime lastFullEnd = bucketOf(end);
+
+        long count;
+        double total;
+        if (!firstFull.isBefore(lastFullEnd)) {
+            DurationTotals raw = recordRepository.findDurationTotalsBetween(lotId, start, end);
+            count = raw.getCount().longValue();
+            total = raw.getTotal().doubleValue();
+        } else {
+            DurationTotals head = recordRepository.findDurationTotals(lotId, start, firstFull);
+            DurationTotals middle = statsRepository.sumBuckets(lotId, firstFull, lastFullEnd);
+            DurationTotals tail = recordRepository.findDurationTotalsBetween(lotId, lastFullEnd, end);
+            count = head.getCount().longValue() + middle.getCount().longValue() + tail.getCount().longValue();
+            total = head.getTotal().doubleValue() + middle.getTotal().doubleValue() + tail.getTotal().doubleValue();
+        }
+        return count > 0 ? total / count : null;
+    }
+
+    /**
+     * Скетч длительностей парковок площадки с въездом в [start, end]; carType = null — по всем типам.
+     */
+    public DurationSketch sketch(long lotId, LocalDateTime start, LocalDateTime end, CarType carType) {
+        LocalDateTime firstFull = bucketOf(start).equals(start) ? start : bucketOf(start).plusHours(1);
+        LocalDateTime lastFullEnd = bucketOf(end);
+
+        DurationSketch result = new DurationSketch();
+        Consumer<ParkingRecord> raw = record -> {
+            if (carType == null || record.getCarType() == carType) {
+                result.add(secondsBetween(record.getEntryTime(), record.getExitTime()));
+            }
+        };
+        if (!firstFull.isBefore(lastFullEnd)) {
+            jdbcRepository.forEachClosed(lotId, start, end, true, raw);
+            return result;
+        }
+        jdbcRepository.forEachClosed(lotId, start, firstFull, false, raw);
+        for (ParkingDurationSketch bucket : sketchRepository
+                .findByLotIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(lotId, firstFull, lastFullEnd)) {
+            if (carType == null || bucket.getCarType() == carType) {
+                result.merge(DurationSketch.fromBytes(bucket.getSketch()));
+            }
+        }
+        jdbcRepository.forEachClosed(lotId, lastFullEnd, end, true, raw);
+        return result;
+    }
+
+    /**
+     * Пересчитывает агрегаты корзин с въездом в [from, to) по истории, включая архив, и заменяет ими сохранённые.
+     * Таблица агрегатов до конца транзакции закрыта для записи: выезд, не попавший в снимок истории,
+     * добавится к уже пересчитанной корзине, а выезд, попавший в него, успел зафиксироваться раньше.
+     */
+    @Transactional
+    public int rebuildStats(LocalDateTime from, LocalDateTime to) {
+        statsRepository.lockForRebuild();
+        return statsRepository.rebuildFromRecords(from, to);
+    }
+
+    /**
+     * Пересобирает скетчи корзин с въездом в [from, to) по истории, включая архив, и заменяет ими сохранённые.
+     * Слить пересобранный скетч с сохранённым нельзя: выезды, уже слитые в корзину, вошли и в историю и учлись бы
+     * дважды. Как и в {@link #rebuildStats}, таблица скетчей до конца транзакции закрыта для записи.
+     */
+    @Transactional
+    public int rebuildSketches(LocalDateTime from, LocalDateTime to) {
+        sketchRepository.lockForRebuild();
+        var rebuild = new SketchRebuild();
+        jdbcRepository.forEachClosedOrdered(from, to, REBUILD_FETCH_SIZE, rebuild);
+        rebuild.flush();
+        return rebuild.buckets;
+    }
+
+    private void mergeSketch(BucketKey key, DurationSketch sketch) {
+        if (sketchRepository.insertIfAbsent(key.lotId(), key.bucketStart(), key.carType().name(), sketch.toBytes()) > 0) {
+            return;
+        }
+        ParkingDurationSketch stored = sketchRepository.findForUpdate(key.lotId(), key.bucketStart(), key.carType())
+                .orElseThrow(() -> new IllegalStateException("Скетч корзины не найден: " + key));
+        DurationSketch merged = DurationSketch.fromBytes(stored.getSketch());
+        merged.merge(sketch);
+        stored.setSketch(merged.toBytes());
+    }
+
+    static LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static double secondsBetween(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toNanos() / 1_000_000_000.0;
+    }
+
+    private record BucketKey(long lotId, LocalDateTime bucketStart, CarType carType) {}
+
+    private static final class EntrySpan {
+        private LocalDateTime min;
+        private LocalDateTime max;
+
+        void add(LocalDateTime entryTime) {
+            if (min == null || entryTime.isBefore(min)) {
+                min = entryTime;
+            }
+            if (max == null || entryTime.isAfter(max)) {
+                max = entryTime;
+            }
+        }
+    }
+
+    /**
+     * Собирает скетч корзины из истории, идущей в порядке (lot_id, car_type, entry_time),
+     * и записывает его при смене корзины.
+     */
+    private final class SketchRebuild implements Consumer<ParkingRecord> {
+        private BucketKey key;
+        private DurationSketch sketch;
+        private int buckets;
+
+        @Override
+        public void accept(ParkingRecord record) {
+            var next = new BucketKey(record.getLotId(), bucketOf(record.getEntryTime()), record.getCarType());
+            if (!next.equals(key)) {
+                flush();
+                key = next;
+                sketch = new DurationSketch();
+            }
+            sketch.add(secondsBetween(record.getEntryTime(), record.getExitTime()));
+        }
+
+        void flush() {
+            if (key != null) {
+                sketchRepository.replace(key.lotId(), key.bucketStart(), key.carType().name(), sketch.toBytes());
+                buckets++;
+            }
+        }
+    }
+
+    private static final class Accumulator {
+        private final DurationSketch sketch = new DurationSketch();
+        private long count;
+        private double total;
+        private double min = Double.MAX_VALUE;
+        private double max = -Double.MAX_VALUE;
+
+        void add(double seconds) {
+            count++;
+            total += seconds;
+            min = Math.min(min, seconds);
+            max = Math.max(max, seconds);
+            sketch.add(seconds);
+        }
+    }
+}
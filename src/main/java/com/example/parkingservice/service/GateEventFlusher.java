@@ -0,0 +1,71 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.GateLogCheckpoint;
+import com.example.parkingservice.repository.GateLogCheckpointRepository;
+import com.example.parkingservice.service.GateEventLog.EventType;
+import com.example.parkingservice.service.GateEventLog.GateEvent;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.BatchStatus;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Записывает пакет событий журнала в базу пакетными методами {@link ParkingService}: подряд идущие события
+ * одной площадки и одного вида уходят одним вызовом, порядок событий сохраняется.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.ingest.mode", havingValue = "WRITE_BEHIND")
+@RequiredArgsConstructor
+public class GateEventFlusher {
+
+    private final ParkingService parkingService;
+    private final GateLogCheckpointRepository checkpointRepository;
+
+    /**
+     * Отметка сброса журнала. Читается в транзакции на запись, то есть с основной базы, а не с реплики.
+     */
+    @Transactional
+    public Optional<Long> flushedOffset(String logName) {
+        return checkpointRepository.findById(logName).map(GateLogCheckpoint::getFlushedOffset);
+    }
+
+    @Transactional
+    public void apply(String logName, List<GateEvent> events, long endOffset) {
+        int from = 0;
+        while (from < events.size()) {
+            GateEvent first = events.get(from);
+            int to = from + 1;
+            while (to < events.size()
+                    && events.get(to).type() == first.type()
+                    && events.get(to).lotId() == first.lotId()) {
+                to++;
+            }
+            List<GateEvent> run = events.subList(from, to);
+            List<LocalDateTime> times = run.stream().map(GateEvent::time).toList();
+            List<BatchResult> results = first.type() == EventType.ENTRY
+                    ? parkingService.registerEntries(first.lotId(), run.stream()
+                            .map(event -> new EntryCommand(event.licensePlate(), event.carType()))
+                            .toList(), times)
+                    : parkingService.registerExits(first.lotId(), run.stream()
+                            .map(GateEvent::licensePlate)
+                            .toList(), times);
+            for (BatchResult result : results) {
+                if (result.status() != BatchStatus.ACCEPTED) {
+                    log.warn("Отложенное событие {} площадки {} отклонено: {} {}",
+                            first.type(), first.lotId(), result.licensePlate(), result.status());
+                }
+            }
+            from = to;
+        }
+        checkpointRepository.save(new GateLogCheckpoint(logName, endOffset));
+    }
+}
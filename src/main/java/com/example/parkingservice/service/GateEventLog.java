@@ -0,0 +1,355 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный журнал событий шлагбаума для отложенной записи: сегменты фиксированного размера,
+ * отображённые в память, запись только в конец. Кадр — длина тела, CRC32 тела и само тело.
+ * Смещения сквозные: сегмент с базой b покрывает [b, b + segmentSize) и называется по базе.
+ * <p>
+ * При открытии конец журнала находится проходом по последнему сегменту до первого пустого или
+ * повреждённого кадра: недописанный при сбое кадр отбрасывается. Чтение идёт только до опубликованного
+ * конца, поэтому читатель не видит кадр, который ещё пишется.
+ * <p>
+ * С fsync сброс групповой: кадр дописывается под блокировкой записи, а на диск его отправляет один из ждущих
+ * потоков сразу вместе со всеми кадрами, дописанными к этому моменту, — один force на группу событий, а не
+ * на каждое. Блокировки — {@link ReentrantLock}, а не synchronized: запись идёт на потоках запросов, и
+ * виртуальный поток внутри synchronized закрепил бы поток-носитель на время дискового ввода-вывода.
+ * <p>
+ * Отображение файла освобождается только сборщиком мусора, поэтому удаляемый сегмент сначала усекается до нуля:
+ * место на диске освобождается сразу. Если файл не удаётся удалить, пока он отображён (Windows), удаление
+ * повторяется при следующих вызовах.
+ */
+@Slf4j
+public class GateEventLog implements Closeable {
+
+    static final int MIN_SEGMENT_SIZE = 4096;
+
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int MAX_PLATE_BYTES = 255;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final Set<Long> pendingDeletes = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private MappedByteBuffer active;
+    private volatile long activeBase;
+    private volatile long endOffset;
+    private volatile long durableOffset;
+
+    public GateEventLog(Path directory, int segmentSize, boolean fsync) {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Размер сегмента журнала меньше " + MIN_SEGMENT_SIZE + " байт");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                    String name = file.getFileName().toString();
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), map(file));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + directory, e);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+        Map.Entry<Long, MappedByteBuffer> last = segments.lastEntry();
+        activeBase = last.getKey();
+        active = last.getValue();
+        int position = recover(active);
+        endOffset = activeBase + position;
+        durableOffset = endOffset;
+        log.info("Журнал {}: {} сегментов, конец на смещении {}", directory, segments.size(), endOffset);
+    }
+
+    /**
+     * Дописывает событие и возвращает смещение сразу после него. С fsync возвращается только
+     * после сброса кадра на диск.
+     */
+    public long append(GateEvent event) {
+        byte[] body = event.encode();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int frame = HEADER + body.length;
+        long end;
+        appendLock.lock();
+        try {
+            int position = (int) (endOffset - activeBase);
+            if (position + frame > segmentSize) {
+                if (position + Integer.BYTES <= segmentSize) {
+                    active.putInt(position, END_OF_SEGMENT);
+                }
+                openSegment(activeBase + segmentSize);
+                position = 0;
+            }
+            active.put(position + HEADER, body);
+            active.putInt(position + Integer.BYTES, (int) crc.getValue());
+            active.putInt(position, body.length);
+            end = activeBase + position + frame;
+            endOffset = end;
+        } finally {
+            appendLock.unlock();
+        }
+        if (fsync) {
+            sync(end);
+        }
+        return end;
+    }
+
+    /**
+     * Ждёт, пока журнал до смещения end окажется на диске. Поток, первым взявший блокировку сброса, сбрасывает
+     * всё дописанное к этому моменту; остальные, чьи кадры вошли в этот сброс, возвращаются без своего force.
+     */
+    private void sync(long end) {
+        if (durableOffset >= end) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            long from = durableOffset;
+            if (from >= end) {
+                return;
+            }
+            long to = endOffset;
+            for (Map.Entry<Long, MappedByteBuffer> segment
+                    : segments.subMap(from - from % segmentSize, true, to, false).entrySet()) {
+                long base = segment.getKey();
+                int start = (int) (Math.max(from, base) - base);
+                int length = (int) (Math.min(to, base + segmentSize) - base) - start;
+                if (length > 0) {
+                    segment.getValue().force(start, length);
+                }
+            }
+            durableOffset = to;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Читает до maxEvents событий начиная со смещения from и возвращает смещение, с которого продолжать.
+     */
+    public long read(long from, int maxEvents, List<GateEvent> out) {
+        long end = endOffset;
+        long offset = from;
+        int read = 0;
+        while (offset < end && read < maxEvents) {
+            long base = offset - offset % segmentSize;
+            MappedByteBuffer segment = segments.get(base);
+            if (segment == null) {
+                throw new IllegalStateException("Сегмент журнала не найден: " + base);
+            }
+            int position = (int) (offset - base);
+            int length = position + Integer.BYTES <= segmentSize ? segment.getInt(position) : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT) {
+                offset = base + segmentSize;
+                continue;
+            }
+            byte[] body = new byte[length];
+            segment.get(position + HEADER, body);
+            out.add(GateEvent.decode(body));
+            offset += HEADER + length;
+            read++;
+        }
+        return offset;
+    }
+
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    public long endOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Удаляет сегменты, все события которых лежат до смещения offset. Текущий сегмент и сегменты, ещё не
+     * сброшенные на диск, не удаляются. Вызывается тем же потоком, что и {@link #read}: удалённые сегменты
+     * больше никем не читаются.
+     */
+    public void deleteBefore(long offset) {
+        pendingDeletes.removeIf(this::deleteSegment);
+        List<Long> removed = new ArrayList<>();
+        forceLock.lock();
+        try {
+            long limit = fsync ? Math.min(offset, durableOffset) : offset;
+            for (Long base : segments.headMap(activeBase).keySet()) {
+                if (base + segmentSize > limit) {
+                    break;
+                }
+                segments.remove(base);
+                removed.add(base);
+            }
+        } finally {
+            forceLock.unlock();
+        }
+        for (Long base : removed) {
+            if (!deleteSegment(base)) {
+                pendingDeletes.add(base);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        forceLock.lock();
+        try {
+            active.force();
+            durableOffset = endOffset;
+        } finally {
+            forceLock.unlock();
+            appendLock.unlock();
+        }
+    }
+
+    private boolean deleteSegment(long base) {
+        Path file = segmentPath(base);
+        try {
+            if (Files.exists(file)) {
+                // отображение живёт до сборки мусора: усечение освобождает место на диске, не дожидаясь её
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(0);
+                }
+                Files.delete(file);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент журнала {}, повтор при следующей очистке: {}", base, e.getMessage());
+            return false;
+        }
+    }
+
+    private int recover(MappedByteBuffer segment) {
+        int position = 0;
+        while (position + Integer.BYTES <= segmentSize) {
+            int length = segment.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                return segmentSize;
+            }
+            if (length <= 0 || position + HEADER + length > segmentSize) {
+                return position;
+            }
+            byte[] body = new byte[length];
+            segment.get(position + HEADER, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (segment.getInt(position + Integer.BYTES) != (int) crc.getValue()) {
+                log.warn("Журнал {}: отброшен недописанный кадр на смещении {}", directory, activeBase + position);
+                segment.put(position, new byte[HEADER + length]);
+                return position;
+            }
+            position += HEADER + length;
+        }
+        return segmentSize;
+    }
+
+    private void openSegment(long base) {
+        try {
+            active = map(segmentPath(base));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала " + base, e);
+        }
+        activeBase = base;
+        segments.put(base, active);
+        endOffset = base;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size != 0 && size != segmentSize) {
+                throw new IllegalStateException("Сегмент " + file + " размером " + size
+                        + " байт не совпадает с размером сегмента журнала " + segmentSize);
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    public enum EventType {
+        ENTRY,
+        EXIT
+    }
+
+    /**
+     * Событие шлагбаума со временем приёма; у выезда тип машины не задан.
+     */
+    public record GateEvent(EventType type, long lotId, String licensePlate, CarType carType, LocalDateTime time) {
+
+        public static GateEvent entry(long lotId, String licensePlate, CarType carType, LocalDateTime time) {
+            return new GateEvent(EventType.ENTRY, lotId, licensePlate, carType, time);
+        }
+
+        public static GateEvent exit(long lotId, String licensePlate, LocalDateTime time) {
+            return new GateEvent(EventType.EXIT, lotId, licensePlate, null, time);
+        }
+
+        byte[] encode() {
+            byte[] plate = licensePlate.getBytes(StandardCharsets.UTF_8);
+            if (plate.length > MAX_PLATE_BYTES) {
+                throw new IllegalArgumentException("Слишком длинный номер автомобиля");
+            }
+            return ByteBuffer.allocate(1 + Long.BYTES + Long.BYTES + Integer.BYTES + 1 + 1 + plate.length)
+                    .put((byte) type.ordinal())
+                    .putLong(lotId)
+                    .putLong(time.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(time.getNano())
+                    .put((byte) (carType != null ? carType.ordinal() : -1))
+                    .put((byte) plate.length)
+                    .put(plate)
+                    .array();
+        }
+
+        static GateEvent decode(byte[] body) {
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            EventType type = EventType.values()[buffer.get()];
+            long lotId = buffer.getLong();
+            LocalDateTime time = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            byte carType = buffer.get();
+            byte[] plate = new byte[buffer.get() & 0xFF];
+            buffer.get(plate);
+            return new GateEvent(type, lotId, new String(plate, StandardCharsets.UTF_8),
+                    carType >= 0 ? CarType.values()[carType] : null, time);
+        }
+    }
+}
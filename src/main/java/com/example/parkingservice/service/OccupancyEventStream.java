@@ -0,0 +1,405 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Поток событий въезда и выезда для подписчиков по SSE. События публикуются после фиксации транзакции
+ * и один раз сериализуются в готовый SSE-кадр в общем кольцевом буфере; у подписчика есть только курсор —
+ * номер следующего события. Рассылка не создаёт объектов на событие и подписчика: каждому отправляется
+ * один и тот же кадр.
+ * <p>
+ * Поток-диспетчер будит отправку подписчиков, у которых курсор отстал от головы буфера; отправка идёт
+ * на отдельных потоках, поэтому медленный клиент не задерживает ни запись, ни остальных подписчиков.
+ * Клиент, одна отправка которому длится дольше send-timeout, отключается: диспетчер убирает его из подписчиков,
+ * а пул отправки на время зависшей записи получает замену занятому ею потоку, поэтому даже sender-threads
+ * зависших клиентов не останавливают рассылку остальным.
+ * Если буфер ушёл вперёд больше чем на свою ёмкость, пропущенные события для подписчика заменяются
+ * снимком занятости ({@link OverflowPolicy#COALESCE}) или только уведомлением о пропуске ({@link OverflowPolicy#DROP}).
+ * <p>
+ * Запись в буфер и изменение пула отправки защищены {@link ReentrantLock}, а не synchronized: запись идёт
+ * в afterCommit каждого въезда и выезда, и виртуальный поток не должен закреплять поток-носитель.
+ */
+@Slf4j
+@Component
+public class OccupancyEventStream {
+
+    private final ObjectMapper objectMapper;
+    private final OccupancyTracker occupancyTracker;
+    private final Executor sender;
+    private final Duration timeout;
+    private final long sendTimeoutNanos;
+    private final Frame[] ring;
+    private final int mask;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter overflows;
+    private final Counter stalls;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock senderLock = new ReentrantLock();
+
+    private volatile long head;
+    private volatile boolean running = true;
+    private Thread dispatcher;
+
+    @Autowired
+    public OccupancyEventStream(ObjectMapper objectMapper,
+                                OccupancyTracker occupancyTracker,
+                                MeterRegistry registry,
+                                Environment environment,
+                                @Value("${parking.events.buffer-size:4096}") int bufferSize,
+                                @Value("${parking.events.sender-threads:8}") int senderThreads,
+                                @Value("${parking.events.timeout:PT30M}") Duration timeout,
+                                @Value("${parking.events.send-timeout:PT10S}") Duration sendTimeout) {
+        this(objectMapper, occupancyTracker, registry, senderExecutor(environment, senderThreads), bufferSize,
+                timeout, sendTimeout);
+    }
+
+    OccupancyEventStream(ObjectMapper objectMapper, OccupancyTracker occupancyTracker, MeterRegistry registry,
+                         Executor sender, int bufferSize, Duration timeout, Duration sendTimeout) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Размер буфера событий должен быть степенью двойки: " + bufferSize);
+        }
+        if (sendTimeout.isNegative() || sendTimeout.isZero()) {
+            throw new IllegalArgumentException("Таймаут отправки событий должен быть положительным: " + sendTimeout);
+        }
+        this.objectMapper = objectMapper;
+        this.occupancyTracker = occupancyTracker;
+        this.sender = sender;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.ring = new Frame[bufferSize];
+        this.mask = bufferSize - 1;
+        this.overflows = Counter.builder("parking.events.overflow")
+                .description("Подписчики, отставшие больше чем на буфер событий")
+                .register(registry);
+        this.stalls = Counter.builder("parking.events.stalled")
+                .description("Подписчики, отключённые из-за отправки дольше send-timeout")
+                .register(registry);
+        Gauge.builder("parking.events.subscribers", subscribers, Set::size)
+                .description("Подключённые подписчики потока событий")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = new Thread(this::dispatch, "parking-events-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Подписка на события площадки lotId (null — всех площадок). С lastEventId из заголовка Last-Event-ID
+     * поток продолжается со следующего события, если оно ещё в буфере; иначе начинается со снимка занятости.
+     */
+    public SseEmitter subscribe(Long lotId, Long lastEventId, OverflowPolicy overflow) {
+        SseEmitter emitter = newEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, lotId, overflow);
+        long current = head;
+        if (lastEventId != null && lastEventId < current && current - (lastEventId + 1) <= ring.length) {
+            subscriber.cursor = lastEventId + 1;
+        } else {
+            subscriber.cursor = current;
+            subscriber.snapshotPending = true;
+        }
+        Runnable remove = () -> subscribers.remove(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public void publishEntries(long lotId, Collection<ParkingRecord> records) {
+        publish(EventKind.ENTRY, lotId, records);
+    }
+
+    public void publishExits(long lotId, Collection<ParkingRecord> records) {
+        publish(EventKind.EXIT, lotId, records);
+    }
+
+    private void publish(EventKind kind, long lotId, Collection<ParkingRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        // счётчик занятости обновляется в afterCommit раньше: ParkingService регистрирует его первым
+        TransactionCallbacks.afterCommit(() -> {
+            long occupied = occupancyTracker.getOccupied(lotId);
+            for (ParkingRecord record : records) {
+                LocalDateTime time = kind == EventKind.ENTRY ? record.getEntryTime() : record.getExitTime();
+                append(kind, lotId, json(new OccupancyEvent(lotId, record.getLicensePlate(), record.getCarType(),
+                        time, kind == EventKind.ENTRY ? 1 : -1, occupied)));
+            }
+            LockSupport.unpark(dispatcher);
+        });
+    }
+
+    private void append(EventKind kind, long lotId, String json) {
+        appendLock.lock();
+        try {
+            long sequence = head;
+            String frame = "id:" + sequence + "\nevent:" + kind.eventName + "\ndata:" + json + "\n\n";
+            ring[(int) (sequence & mask)] = new Frame(sequence, lotId, Set.of(new DataWithMediaType(frame, MediaType.TEXT_PLAIN)));
+            head = sequence + 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        long dispatched = head;
+        while (running) {
+            evictStalled();
+            long current = head;
+            if (current == dispatched) {
+                LockSupport.parkNanos(this, sendTimeoutNanos / 2);
+                continue;
+            }
+            dispatched = current;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.cursor < current) {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.scheduled.set(false);
+                log.warn("Отправка событий подписчику не запланирована: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.snapshotPending) {
+                subscriber.snapshotPending = false;
+                sendSnapshot(subscriber);
+            }
+            long current;
+            while (subscriber.cursor < (current = head)) {
+                long sequence = subscriber.cursor;
+                Frame frame = ring[(int) (sequence & mask)];
+                if (current - sequence > ring.length || frame == null || frame.sequence != sequence) {
+                    overflow(subscriber, current);
+                    continue;
+                }
+                subscriber.cursor = sequence + 1;
+                if (subscriber.lotId == null || subscriber.lotId == frame.lotId) {
+                    send(subscriber, frame.payload);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // клиент отключился или эмиттер уже завершён
+            subscribers.remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // событие могло прийти между последней проверкой и снятием флага
+        if (subscriber.cursor < head && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    private void overflow(Subscriber subscriber, long current) throws IOException {
+        long skipped = current - subscriber.cursor;
+        subscriber.cursor = current;
+        overflows.increment();
+        if (subscriber.overflow == OverflowPolicy.COALESCE) {
+            sendSnapshot(subscriber);
+        } else {
+            send(subscriber, SseEmitter.event()
+                    .name("dropped")
+                    .data(json(Map.of("skipped", skipped)))
+                    .build());
+        }
+    }
+
+    private void sendSnapshot(Subscriber subscriber) throws IOException {
+        Map<Long, Long> snapshot = occupancyTracker.snapshot();
+        if (subscriber.lotId != null) {
+            snapshot = Map.of(subscriber.lotId, snapshot.getOrDefault(subscriber.lotId, 0L));
+        }
+        for (Map.Entry<Long, Long> lot : snapshot.entrySet()) {
+            send(subscriber, SseEmitter.event()
+                    .name("occupancy")
+                    .data(json(new OccupancySnapshot(lot.getKey(), lot.getValue())))
+                    .build());
+        }
+    }
+
+    private void send(Subscriber subscriber, Set<DataWithMediaType> payload) throws IOException {
+        long started = System.nanoTime();
+        boolean evicted = false;
+        subscriber.sendingSince.set(started);
+        try {
+            subscriber.emitter.send(payload);
+        } finally {
+            if (!subscriber.sendingSince.compareAndSet(started, Subscriber.IDLE)) {
+                // диспетчер отключил подписчика, пока запись висела: поток возвращается в пул
+                evicted = true;
+                resizeSender(-1);
+            }
+        }
+        if (evicted) {
+            throw new IllegalStateException("Подписчик отключён по send-timeout");
+        }
+    }
+
+    /**
+     * Отключает подписчиков, чья текущая отправка длится дольше send-timeout. Поток, занятый зависшей записью,
+     * освободится только по таймауту записи контейнера, поэтому до тех пор пул отправки получает ещё один поток.
+     */
+    void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince.get();
+            if (since != Subscriber.IDLE && since != Subscriber.STALLED && now - since > sendTimeoutNanos
+                    && subscriber.sendingSince.compareAndSet(since, Subscriber.STALLED)) {
+                subscribers.remove(subscriber);
+                resizeSender(1);
+                stalls.increment();
+                log.warn("Подписчик потока событий (площадка {}) не принимает данные дольше {} мс и отключён",
+                        subscriber.lotId == null ? "все" : subscriber.lotId, sendTimeoutNanos / 1_000_000);
+            }
+        }
+    }
+
+    private void resizeSender(int delta) {
+        if (!(sender instanceof ThreadPoolExecutor pool)) {
+            return;
+        }
+        senderLock.lock();
+        try {
+            // при увеличении сначала максимум, при уменьшении сначала ядро: иначе core > max
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        } finally {
+            senderLock.unlock();
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие", e);
+        }
+    }
+
+    private static Executor senderExecutor(Environment environment, int threads) {
+        // на виртуальных потоках заблокированная запись медленному клиенту почти ничего не стоит
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("parking-events-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("parking-events-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    public enum OverflowPolicy {
+        /** Пропущенные события заменяются снимком занятости площадок подписчика. */
+        COALESCE,
+        /** Пропущенные события отбрасываются, подписчик получает событие dropped с их числом. */
+        DROP
+    }
+
+    private enum EventKind {
+        ENTRY("entry"),
+        EXIT("exit");
+
+        private final String eventName;
+
+        EventKind(String eventName) {
+            this.eventName = eventName;
+        }
+    }
+
+    /**
+     * Событие въезда или выезда: delta — изменение занятости, occupied — занятость площадки после фиксации.
+     */
+    public record OccupancyEvent(long lotId, String licensePlate, CarType carType, LocalDateTime time,
+                                 int delta, long occupied) {}
+
+    public record OccupancySnapshot(long lotId, long occupied) {}
+
+    private record Frame(long sequence, long lotId, Set<DataWithMediaType> payload) {}
+
+    private static final class Subscriber {
+        private static final long IDLE = Long.MIN_VALUE;
+        private static final long STALLED = Long.MAX_VALUE;
+
+        private final SseEmitter emitter;
+        private final Long lotId;
+        private final OverflowPolicy overflow;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /** Момент начала текущей отправки по System.nanoTime, IDLE вне отправки, STALLED — отключён диспетчером. */
+        private final AtomicLong sendingSince = new AtomicLong(IDLE);
+        private volatile long cursor;
+        private volatile boolean snapshotPending;
+
+        Subscriber(SseEmitter emitter, Long lotId, OverflowPolicy overflow) {
+            this.emitter = emitter;
+            this.lotId = lotId;
+            this.overflow = overflow;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.parkingservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кривая занятости площадки за окно одним проходом по упорядоченным по времени въездам (+1) и выездам (−1).
+ * Между соседними событиями занятость постоянна, поэтому проход складывает её по корзинам как площадь
+ * (занятость × миллисекунды), отмечает пик корзины и время, когда занятость не меньше вместимости.
+ * Память — несколько примитивных массивов длиной в число корзин, независимо от числа событий.
+ */
+public final class OccupancyTimeline {
+
+    private final LocalDateTime start;
+    private final long bucketMillis;
+    private final long windowMillis;
+    private final int capacity;
+    private final long[] occupiedMillis;
+    private final long[] peaks;
+    private final long[] atCapacityMillis;
+
+    private long occupied;
+    private long cursor;
+    private long peak;
+    private long peakOffset;
+
+    /**
+     * @param occupied занятость на начало окна: въехавшие до start и не выехавшие до него
+     */
+    public OccupancyTimeline(LocalDateTime start, LocalDateTime end, Duration bucket, int capacity, long occupied) {
+        if (Duration.between(start, end).toMillis() <= 0) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше его конца");
+        }
+        if (bucket.toMillis() <= 0) {
+            throw new IllegalArgumentException("Размер корзины должен быть положительным: " + bucket);
+        }
+        this.start = start;
+        this.bucketMillis = bucket.toMillis();
+        this.windowMillis = Duration.between(start, end).toMillis();
+        this.capacity = capacity;
+        int buckets = buckets(start, end, bucket);
+        this.occupiedMillis = new long[buckets];
+        this.peaks = new long[buckets];
+        this.atCapacityMillis = new long[buckets];
+        this.occupied = occupied;
+        this.peak = Long.MIN_VALUE;
+        Arrays.fill(peaks, Long.MIN_VALUE);
+    }
+
+    /**
+     * Число корзин окна; последняя может быть короче остальных.
+     */
+    public static int buckets(LocalDateTime start, LocalDateTime end, Duration bucket) {
+        long window = Duration.between(start, end).toMillis();
+        return (int) Math.min(Integer.MAX_VALUE, (window + bucket.toMillis() - 1) / bucket.toMillis());
+    }
+
+    /**
+     * Событие в момент time: delta = +1 для въезда, −1 для выезда. События должны идти по неубыванию времени.
+     */
+    public void accept(LocalDateTime time, int delta) {
+        long offset = Math.max(0, Math.min(windowMillis, Duration.between(start, time).toMillis()));
+        if (offset < cursor) {
+            throw new IllegalArgumentException("События должны идти по времени: " + time);
+        }
+        advance(offset);
+        occupied += delta;
+    }
+
+    /**
+     * Доводит проход до конца окна и собирает результат.
+     */
+    public Report finish() {
+        advance(windowMillis);
+        List<Bucket> buckets = new ArrayList<>(occupiedMillis.length);
+        long totalAtCapacity = 0;
+        for (int i = 0; i < occupiedMillis.length; i++) {
+            long from = i * bucketMillis;
+            long length = Math.min(bucketMillis, windowMillis - from);
+            buckets.add(new Bucket(start.plusNanos(from * 1_000_000), (double) occupiedMillis[i] / length,
+                    peaks[i], atCapacityMillis[i] / 1000));
+            totalAtCapacity += atCapacityMillis[i];
+        }
+        return new Report(capacity, peak, start.plusNanos(peakOffset * 1_000_000), totalAtCapacity / 1000, buckets);
+    }
+
+    private void advance(long offset) {
+        while (cursor < offset) {
+            int bucket = (int) (cursor / bucketMillis);
+            long segmentEnd = Math.min(offset, (bucket + 1) * bucketMillis);
+            long length = segmentEnd - cursor;
+            occupiedMillis[bucket] += occupied * length;
+            if (occupied >= capacity) {
+                atCapacityMillis[bucket] += length;
+            }
+            // пик — по занятости, которая держалась ненулевое время: одновременные въезд и выезд его не меняют
+            peaks[bucket] = Math.max(peaks[bucket], occupied);
+            if (occupied > peak) {
+                peak = occupied;
+                peakOffset = cursor;
+            }
+            cursor = segmentEnd;
+        }
+    }
+
+    /**
+     * Занятость окна: пик с моментом, когда он впервые достигнут, и суммарное время на пределе вместимости.
+     */
+    public record Report(int capacity, long peakOccupied, LocalDateTime peakTime, long secondsAtCapacity,
+                         List<Bucket> buckets) {}
+
+    /**
+     * Корзина: средняя по времени занятость, пик и время на пределе вместимости.
+     */
+    public record Bucket(LocalDateTime start, double avgOccupied, long peakOccupied, long secondsAtCapacity) {}
+}
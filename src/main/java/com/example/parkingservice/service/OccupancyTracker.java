@@ -0,0 +1,174 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.repository.LotCount;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Счётчики занятых мест по площадкам в памяти. Заполняются из базы при старте, затем
+ * поддерживаются въездами и выездами и периодически сверяются с базой.
+ * Публикуются как gauge {@code parking.occupancy{lot=<id>}}.
+ * <p>
+ * Транзакция с въездами или выездами держит общую блокировку {@code commitLock} от начала фиксации
+ * до применения своей дельты, а сверка берёт её монопольно на время запроса и записи счётчиков:
+ * подсчёт в базе не видит фиксацию, дельта которой ещё не применена, и дельта не применяется
+ * поверх уже учитывающего её значения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OccupancyTracker implements MeterBinder {
+
+    private final ParkingRecordRepository repository;
+
+    private final ConcurrentHashMap<Long, AtomicLong> occupied = new ConcurrentHashMap<>();
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    private volatile MeterRegistry registry;
+
+    // сверка идёт с основной базой: read-only транзакция репозитория ушла бы на отстающую реплику
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seed() {
+        reconcile();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${parking.occupancy.reconcile-interval:PT5M}",
+            initialDelayString = "${parking.occupancy.reconcile-interval:PT5M}"
+    )
+    @Transactional
+    public void reconcile() {
+        commitLock.writeLock().lock();
+        try {
+            Map<Long, Long> actual = repository.countActiveByLot().stream()
+                    .collect(Collectors.toMap(LotCount::getLotId, LotCount::getCount));
+            occupied.forEach((lotId, counter) -> {
+                if (!actual.containsKey(lotId)) {
+                    set(lotId, counter, 0);
+                }
+            });
+            actual.forEach((lotId, count) -> set(lotId, counter(lotId), count));
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    private void set(long lotId, AtomicLong counter, long actual) {
+        long previous = counter.getAndSet(actual);
+        if (previous != actual) {
+            log.info("Счётчик занятости площадки {} сверён с базой: {} -> {}", lotId, previous, actual);
+        }
+    }
+
+    public long getOccupied(long lotId) {
+        AtomicLong counter = occupied.get(lotId);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Текущие счётчики всех площадок, у которых были въезды или выезды.
+     */
+    public Map<Long, Long> snapshot() {
+        return occupied.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+    }
+
+    public void onEntry(long lotId) {
+        onEntries(lotId, 1);
+    }
+
+    public void onExit(long lotId) {
+        onExits(lotId, 1);
+    }
+
+    public void onEntries(long lotId, int count) {
+        if (count > 0) {
+            afterCommit(lotId, count);
+        }
+    }
+
+    public void onExits(long lotId, int count) {
+        if (count > 0) {
+            afterCommit(lotId, -count);
+        }
+    }
+
+    private void afterCommit(long lotId, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.readLock().lock();
+            try {
+                counter(lotId).addAndGet(delta);
+            } finally {
+                commitLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                counter(lotId).addAndGet(delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    commitLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        occupied.forEach((lotId, counter) -> register(registry, lotId, counter));
+    }
+
+    private AtomicLong counter(long lotId) {
+        AtomicLong counter = occupied.get(lotId);
+        if (counter == null) {
+            counter = occupied.computeIfAbsent(lotId, id -> new AtomicLong());
+            MeterRegistry current = registry;
+            if (current != null) {
+                register(current, lotId, counter);
+            }
+        }
+        return counter;
+    }
+
+    private static void register(MeterRegistry registry, long lotId, AtomicLong counter) {
+        Gauge.builder("parking.occupancy", counter, AtomicLong::get)
+                .tag("lot", Long.toString(lotId))
+                .description("Занятые места площадки")
+                .register(registry);
+    }
+}
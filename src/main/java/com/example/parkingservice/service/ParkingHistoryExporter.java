@@ -0,0 +1,231 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Потоковая выгрузка истории парковок в NDJSON или CSV.
+ * <p>
+ * Записи читаются страницами по ключу (entry_time, id) и сразу пишутся в выходной поток,
+ * поэтому расход памяти не зависит от длины периода. Каждая строка выгрузки несёт курсор
+ * на саму себя: оборвавшуюся выгрузку можно продолжить с последней полученной строки.
+ * <p>
+ * Выгрузка идёт из {@code StreamingResponseBody} вне транзакции запроса, поэтому каждая страница читается
+ * в своей короткой транзакции только для чтения: она уходит на реплику, если они настроены, и не держит
+ * соединение и снимок базы, пока клиент медленно принимает ответ.
+ */
+@Service
+public class ParkingHistoryExporter {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final ParkingRecordJdbcRepository jdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+    private final int pageSize;
+
+    public ParkingHistoryExporter(ParkingRecordJdbcRepository jdbcRepository,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${parking.export.page-size:1000}") int pageSize) {
+        this.jdbcRepository = jdbcRepository;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.pageSize = pageSize;
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        ExportFormat(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    /**
+     * @param after курсор последней полученной записи или null, чтобы начать с начала периода
+     * @param limit максимальное число записей или null без ограничения
+     * @return число выгруженных записей
+     */
+    public long export(LocalDateTime start, LocalDateTime end, HistoryCursor after, Long limit,
+                       ExportFormat format, OutputStream out) throws IOException {
+        validate(start, end, limit);
+
+        try (RecordWriter writer = format == ExportFormat.CSV ? new CsvWriter(out) : new NdjsonWriter(out)) {
+            LocalDateTime afterEntryTime = after != null ? after.entryTime() : start;
+            long afterId = after != null ? after.id() : Long.MIN_VALUE;
+            long written = 0;
+            while (limit == null || written < limit) {
+                int pageLimit = limit == null ? pageSize : (int) Math.min(pageSize, limit - written);
+                LastRow last = new LastRow();
+                LocalDateTime pageAfterEntryTime = afterEntryTime;
+                long pageAfterId = afterId;
+                int rows = readOnly.execute(status -> jdbcRepository.findPageByEntryTime(
+                        start, end, pageAfterEntryTime, pageAfterId, pageLimit,
+                        record -> {
+                            writer.write(record, new HistoryCursor(record.getEntryTime(), record.getId()));
+                            last.record = record;
+                        }));
+                written += rows;
+                if (rows < pageLimit) {
+                    break;
+                }
+                afterEntryTime = last.record.getEntryTime();
+                afterId = last.record.getId();
+                writer.flush();
+            }
+            return written;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Проверка параметров до начала записи: после первой строки статус ответа уже не изменить.
+     */
+    public void validate(LocalDateTime start, LocalDateTime end, Long limit) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Начало периода позже его конца");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("Лимит выгрузки должен быть положительным");
+        }
+    }
+
+    private static final class LastRow {
+        private ParkingRecord record;
+    }
+
+    private interface RecordWriter extends AutoCloseable {
+
+        void write(ParkingRecord record, HistoryCursor cursor);
+
+        void flush() throws IOException;
+
+        /**
+         * Дописывает буфер, не закрывая выходной поток.
+         */
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class NdjsonWriter implements RecordWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // строки разделяются переводом строки, а не пробелом по умолчанию
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ParkingRecord record, HistoryCursor cursor) {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", record.getId());
+                generator.writeNumberField("lotId", record.getLotId());
+                generator.writeStringField("licensePlate", record.getLicensePlate());
+                generator.writeStringField("carType", record.getCarType().name());
+                generator.writeStringField("entryTime", TIME_FORMAT.format(record.getEntryTime()));
+                generator.writeStringField("exitTime",
+                        record.getExitTime() != null ? TIME_FORMAT.format(record.getExitTime()) : null);
+                generator.writeStringField("cursor", cursor.encode());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvWriter implements RecordWriter {
+
+        private final Writer out;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.out.write("id,lotId,licensePlate,carType,entryTime,exitTime,cursor\n");
+        }
+
+        @Override
+        public void write(ParkingRecord record, HistoryCursor cursor) {
+            try {
+                out.write(Long.toString(record.getId()));
+                out.write(',');
+                out.write(Long.toString(record.getLotId()));
+                out.write(',');
+                writeField(record.getLicensePlate());
+                out.write(',');
+                out.write(record.getCarType().name());
+                out.write(',');
+                TIME_FORMAT.formatTo(record.getEntryTime(), out);
+                out.write(',');
+                if (record.getExitTime() != null) {
+                    TIME_FORMAT.formatTo(record.getExitTime(), out);
+                }
+                out.write(',');
+                out.write(cursor.encode());
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // поток ответа закрывает контейнер
+            out.flush();
+        }
+    }
+}
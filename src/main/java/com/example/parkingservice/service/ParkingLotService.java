@@ -0,0 +1,94 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.repository.ParkingLotRepository;
+import com.example.parkingservice.repository.ParkingRecordPartitions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Справочник площадок. Площадки читаются на каждом въезде и отчёте, а меняются редко,
+ * поэтому держатся в памяти и периодически перечитываются, чтобы подхватить правки с других узлов.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ParkingLotService {
+
+    private final ParkingLotRepository repository;
+    private final ParkingRecordPartitions partitions;
+
+    @Value("${parking.lots.default-capacity:100}")
+    private int defaultCapacity;
+
+    private final ConcurrentHashMap<Long, ParkingLot> lots = new ConcurrentHashMap<>();
+
+    /**
+     * До запуска импорта: основная площадка должна существовать, у каждой площадки — своя секция.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    @Transactional
+    public void init() {
+        if (!repository.existsById(ParkingLot.DEFAULT_ID)) {
+            repository.save(new ParkingLot(ParkingLot.DEFAULT_ID, "Основная парковка", defaultCapacity));
+            log.info("Создана основная площадка вместимостью {}", defaultCapacity);
+        }
+        List<ParkingLot> all = repository.findAll();
+        all.forEach(lot -> partitions.ensurePartition(lot.getId()));
+        all.forEach(lot -> lots.put(lot.getId(), lot));
+    }
+
+    @Scheduled(
+            fixedDelayString = "${parking.lots.refresh-interval:PT1M}",
+            initialDelayString = "${parking.lots.refresh-interval:PT1M}"
+    )
+    public void refresh() {
+        repository.findAll().forEach(lot -> lots.put(lot.getId(), lot));
+    }
+
+    public ParkingLot require(long lotId) {
+        ParkingLot lot = lots.get(lotId);
+        if (lot == null) {
+            lot = repository.findById(lotId)
+                    .orElseThrow(() -> new IllegalArgumentException("Парковка не найдена: " + lotId));
+            lots.put(lotId, lot);
+        }
+        return lot;
+    }
+
+    public List<ParkingLot> findAll() {
+        return repository.findAll().stream()
+                .sorted(Comparator.comparing(ParkingLot::getId))
+                .toList();
+    }
+
+    /**
+     * Создаёт площадку вместе с её секцией parking_record или меняет название и вместимость существующей.
+     */
+    @Transactional
+    public ParkingLot save(long lotId, String name, int capacity) {
+        if (lotId <= 0) {
+            throw new IllegalArgumentException("Идентификатор парковки должен быть положительным");
+        }
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Не указано название парковки");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Вместимость парковки должна быть положительной");
+        }
+        partitions.ensurePartition(lotId);
+        ParkingLot lot = repository.save(new ParkingLot(lotId, name, capacity));
+        TransactionCallbacks.afterCommit(() -> lots.put(lotId, lot));
+        return lot;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Таймеры и счётчики операций парковки. Операция в транзакции считается успешной только после фиксации:
+ * время включает commit, а откат после выполнения тела записывается как {@code outcome=error}.
+ * Отказ по бизнес-правилу ({@link IllegalArgumentException}) — {@code outcome=rejected}.
+ * <p>
+ * Гистограммы и SLO для перцентилей задаются свойствами {@code management.metrics.distribution.*}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParkingMetrics {
+
+    public static final String ENTRY = "parking.entry";
+    public static final String EXIT = "parking.exit";
+    public static final String REPORT = "parking.report";
+    public static final String BATCH_EVENTS = "parking.batch.events";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+
+    public ParkingRecord timeEntry(CarType carType, Supplier<ParkingRecord> operation) {
+        return time(ENTRY, carTypeTag(carType), record -> carTypeTag(record.getCarType()), operation);
+    }
+
+    /**
+     * Тип машины при выезде известен только после поиска сессии, поэтому отказ помечается {@code car_type=unknown}.
+     */
+    public ParkingRecord timeExit(Supplier<ParkingRecord> operation) {
+        return time(EXIT, carTypeTag(null), record -> carTypeTag(record.getCarType()), operation);
+    }
+
+    public <T> T timeReport(Supplier<T> operation) {
+        return time(REPORT, Tags.empty(), result -> Tags.empty(), operation);
+    }
+
+    /**
+     * Пакетные события считаются поштучно по итоговому статусу: {@code operation=entry|exit}.
+     */
+    public void countBatch(String operation, List<BatchResult> results) {
+        TransactionCallbacks.afterCompletion(committed -> {
+            for (BatchResult result : results) {
+                String outcome = committed ? result.status().name().toLowerCase(Locale.ROOT) : "error";
+                Counter.builder(BATCH_EVENTS)
+                        .tags("operation", operation, "outcome", outcome)
+                        .description("События пакетных въездов и выездов по итоговому статусу")
+                        .register(registry)
+                        .increment();
+            }
+        });
+    }
+
+    private <T> T time(String name, Tags failureTags, Function<T, Tags> resultTags, Supplier<T> operation) {
+        Timer.Sample sample = Timer.start(registry);
+        T result;
+        try {
+            result = operation.get();
+        } catch (IllegalArgumentException e) {
+            stop(sample, name, failureTags, "rejected");
+            throw e;
+        } catch (RuntimeException e) {
+            stop(sample, name, failureTags, "error");
+            throw e;
+        }
+        Tags tags = resultTags.apply(result);
+        TransactionCallbacks.afterCompletion(committed -> stop(sample, name, tags, committed ? "success" : "error"));
+        return result;
+    }
+
+    private void stop(Timer.Sample sample, String name, Tags tags, String outcome) {
+        sample.stop(Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private static Tags carTypeTag(CarType carType) {
+        return Tags.of("car_type", carType != null ? carType.name() : UNKNOWN);
+    }
+}
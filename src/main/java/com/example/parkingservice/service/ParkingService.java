@@ -1,50 +1,425 @@
 package com.example.parkingservice.service;
 
 import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
 import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ActiveSessionView;
+import com.example.parkingservice.repository.CarTypeStats;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
 import com.example.parkingservice.repository.ParkingRecordRepository;
+import com.example.parkingservice.service.ActiveSessionCache.ActiveSession;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ParkingService {
 
     private final ParkingRecordRepository repository;
+    private final OccupancyTracker occupancyTracker;
+    private final DurationStatsService durationStatsService;
+    private final ActiveSessionCache activeSessionCache;
+    private final ParkingRecordJdbcRepository jdbcRepository;
+    private final ReportCache reportCache;
+    private final ParkingLotService lotService;
+    private final ParkingMetrics metrics;
+    private final OccupancyEventStream eventStream;
+    private final TariffEngine tariffEngine;
+
+    @Value("${parking.batch.max-items:1000}")
+    private int maxBatchItems;
+
+    @Value("${parking.report.timeline.max-buckets:10000}")
+    private int maxTimelineBuckets;
+
+    @Value("${parking.report.timeline.fetch-size:1000}")
+    private int timelineFetchSize;
 
     @Transactional
     public ParkingRecord registerEntry(String licensePlate, CarType carType) {
+        return registerEntry(ParkingLot.DEFAULT_ID, licensePlate, carType);
+    }
+
+    @Transactional
+    public ParkingRecord registerEntry(long lotId, String licensePlate, CarType carType) {
+        return metrics.timeEntry(carType, () -> insertEntry(lotId, licensePlate, carType));
+    }
+
+    private ParkingRecord insertEntry(long lotId, String licensePlate, CarType carType) {
+        lotService.require(lotId);
+        LocalDateTime entryTime = LocalDateTime.now();
+        Long id = repository.insertIfAbsent(jdbcRepository.nextId(), lotId, licensePlate, carType.name(), entryTime)
+                .orElseThrow(() -> new IllegalArgumentException("Автомобиль уже находится на парковке"));
+
         ParkingRecord record = ParkingRecord.builder()
+                .id(id)
+                .lotId(lotId)
                 .licensePlate(licensePlate)
                 .carType(carType)
-                .entryTime(LocalDateTime.now())
+                .entryTime(entryTime)
                 .build();
-        return repository.save(record);
+        activeSessionCache.put(record);
+        occupancyTracker.onEntry(lotId);
+        eventStream.publishEntries(lotId, List.of(record));
+        return record;
     }
 
     @Transactional
     public ParkingRecord registerExit(String licensePlate) {
-        ParkingRecord record = repository.findByLicensePlateAndExitTimeIsNull(licensePlate)
+        return registerExit(ParkingLot.DEFAULT_ID, licensePlate);
+    }
+
+    @Transactional
+    public ParkingRecord registerExit(long lotId, String licensePlate) {
+        return metrics.timeExit(() -> closeActiveSession(lotId, licensePlate));
+    }
+
+    private ParkingRecord closeActiveSession(long lotId, String licensePlate) {
+        lotService.require(lotId);
+        LocalDateTime exitTime = LocalDateTime.now();
+        ParkingRecord closed = activeSessionCache.get(lotId, licensePlate)
+                .map(session -> session.toRecord(licensePlate, exitTime,
+                        tariffEngine.fee(session.carType(), session.entryTime(), exitTime)))
+                .filter(record -> repository.closeSession(lotId, record.getId(), exitTime, record.getFee()) == 1)
+                .orElseGet(() -> closeFromDatabase(lotId, licensePlate, exitTime));
+
+        activeSessionCache.evict(lotId, licensePlate);
+        durationStatsService.record(closed);
+        occupancyTracker.onExit(lotId);
+        eventStream.publishExits(lotId, List.of(closed));
+        return closed;
+    }
+
+    private ParkingRecord closeFromDatabase(long lotId, String licensePlate, LocalDateTime exitTime) {
+        ParkingRecord record = repository.findByLotIdAndLicensePlateAndExitTimeIsNull(lotId, licensePlate)
                 .orElseThrow(() -> new IllegalArgumentException("Автомобиль не найден или уже выехал"));
 
-        record.setExitTime(LocalDateTime.now());
+        record.setExitTime(exitTime);
+        record.setFee(tariffEngine.fee(record.getCarType(), record.getEntryTime(), exitTime));
         return repository.save(record);
     }
 
+    @Transactional
+    public List<BatchResult> registerEntries(List<EntryCommand> commands) {
+        return registerEntries(ParkingLot.DEFAULT_ID, commands);
+    }
+
+    @Transactional
+    public List<BatchResult> registerEntries(long lotId, List<EntryCommand> commands) {
+        return registerEntries(lotId, commands, Collections.nCopies(commands.size(), LocalDateTime.now()));
+    }
+
+    /**
+     * Пакет въездов с временем каждого события — для событий, принятых раньше записи в базу.
+     */
+    @Transactional
+    public List<BatchResult> registerEntries(long lotId, List<EntryCommand> commands, List<LocalDateTime> entryTimes) {
+        checkBatchSize(commands.size());
+        lotService.require(lotId);
+        BatchResult[] results = new BatchResult[commands.size()];
+
+        List<Integer> positions = new ArrayList<>();
+        List<ParkingRecord> candidates = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            EntryCommand command = commands.get(i);
+            if (command == null || isBlank(command.licensePlate()) || command.carType() == null) {
+                results[i] = BatchResult.rejected(command != null ? command.licensePlate() : null, BatchStatus.INVALID);
+                continue;
+            }
+            positions.add(i);
+            candidates.add(ParkingRecord.builder()
+                    .lotId(lotId)
+                    .licensePlate(command.licensePlate())
+                    .carType(command.carType())
+                    .entryTime(entryTimes.get(i))
+                    .build());
+        }
+
+        List<ParkingRecord> inserted = new ArrayList<>();
+        if (!candidates.isEmpty()) {
+            List<Long> ids = jdbcRepository.nextIds(candidates.size());
+            for (int j = 0; j < candidates.size(); j++) {
+                candidates.get(j).setId(ids.get(j));
+            }
+            int[] counts = jdbcRepository.insertIfAbsent(candidates);
+            for (int j = 0; j < candidates.size(); j++) {
+                ParkingRecord record = candidates.get(j);
+                if (counts[j] == 1) {
+                    results[positions.get(j)] = BatchResult.accepted(record.getLicensePlate(), record.getEntryTime());
+                    activeSessionCache.put(record);
+                    inserted.add(record);
+                } else {
+                    results[positions.get(j)] = BatchResult.rejected(record.getLicensePlate(), BatchStatus.DUPLICATE);
+                }
+            }
+        }
+        occupancyTracker.onEntries(lotId, inserted.size());
+        eventStream.publishEntries(lotId, inserted);
+        List<BatchResult> outcome = Arrays.asList(results);
+        metrics.countBatch("entry", outcome);
+        return outcome;
+    }
+
+    @Transactional
+    public List<BatchResult> registerExits(List<String> licensePlates) {
+        return registerExits(ParkingLot.DEFAULT_ID, licensePlates);
+    }
+
+    @Transactional
+    public List<BatchResult> registerExits(long lotId, List<String> licensePlates) {
+        return registerExits(lotId, licensePlates, Collections.nCopies(licensePlates.size(), LocalDateTime.now()));
+    }
+
+    /**
+     * Пакет выездов с временем каждого события — для событий, принятых раньше записи в базу.
+     */
+    @Transactional
+    public List<BatchResult> registerExits(long lotId, List<String> licensePlates, List<LocalDateTime> exitTimes) {
+        checkBatchSize(licensePlates.size());
+        lotService.require(lotId);
+        BatchResult[] results = new BatchResult[licensePlates.size()];
+        List<ParkingRecord> closed = new ArrayList<>();
+
+        Map<Integer, ActiveSession> cached = new LinkedHashMap<>();
+        for (int i = 0; i < licensePlates.size(); i++) {
+            String plate = licensePlates.get(i);
+            if (isBlank(plate)) {
+                results[i] = BatchResult.rejected(plate, BatchStatus.INVALID);
+                continue;
+            }
+            int position = i;
+            activeSessionCache.get(lotId, plate).ifPresent(session -> cached.put(position, session));
+        }
+        closeSessions(lotId, licensePlates, cached, exitTimes, results, closed);
+
+        List<Integer> unresolved = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                unresolved.add(i);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            Map<String, ActiveSessionView> active = repository.findByLotIdAndLicensePlateInAndExitTimeIsNull(
+                            lotId, unresolved.stream().map(licensePlates::get).collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.toMap(ActiveSessionView::getLicensePlate, Function.identity(), (a, b) -> a));
+            Map<Integer, ActiveSession> loaded = new LinkedHashMap<>();
+            for (int i : unresolved) {
+                ActiveSessionView view = active.get(licensePlates.get(i));
+                if (view != null) {
+                    loaded.put(i, new ActiveSession(view.getId(), lotId, view.getCarType(), view.getEntryTime()));
+                }
+            }
+            closeSessions(lotId, licensePlates, loaded, exitTimes, results, closed);
+            for (int i : unresolved) {
+                if (results[i] == null) {
+                    results[i] = BatchResult.rejected(licensePlates.get(i), BatchStatus.NOT_FOUND);
+                }
+            }
+        }
+
+        closed.forEach(record -> activeSessionCache.evict(lotId, record.getLicensePlate()));
+        durationStatsService.record(closed);
+        occupancyTracker.onExits(lotId, closed.size());
+        eventStream.publishExits(lotId, closed);
+        List<BatchResult> outcome = Arrays.asList(results);
+        metrics.countBatch("exit", outcome);
+        return outcome;
+    }
+
+    private void closeSessions(long lotId, List<String> licensePlates, Map<Integer, ActiveSession> sessions,
+                               List<LocalDateTime> exitTimes, BatchResult[] results, List<ParkingRecord> closed) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        List<Integer> positions = new ArrayList<>(sessions.keySet());
+        List<Long> ids = positions.stream().map(i -> sessions.get(i).id()).toList();
+        List<LocalDateTime> times = positions.stream().map(exitTimes::get).toList();
+        List<Long> fees = new ArrayList<>(positions.size());
+        for (int j = 0; j < positions.size(); j++) {
+            ActiveSession session = sessions.get(positions.get(j));
+            fees.add(tariffEngine.fee(session.carType(), session.entryTime(), times.get(j)));
+        }
+        int[] counts = jdbcRepository.closeSessions(lotId, ids, times, fees);
+        for (int j = 0; j < positions.size(); j++) {
+            int i = positions.get(j);
+            if (counts[j] == 1) {
+                String plate = licensePlates.get(i);
+                closed.add(sessions.get(i).toRecord(plate, times.get(j), fees.get(j)));
+                results[i] = BatchResult.accepted(plate, times.get(j));
+            }
+        }
+    }
+
+    /**
+     * Отчёт основной площадки с вместимостью, переданной клиентом.
+     */
     @Transactional(readOnly = true)
     public ParkingReport getReport(LocalDateTime start, LocalDateTime end, int totalCapacity) {
-        long occupied = repository.countByExitTimeIsNull();
+        return metrics.timeReport(() -> report(ParkingLot.DEFAULT_ID, start, end, totalCapacity));
+    }
+
+    @Transactional(readOnly = true)
+    public ParkingReport getReport(long lotId, LocalDateTime start, LocalDateTime end) {
+        return metrics.timeReport(() -> report(lotId, start, end, lotService.require(lotId).getCapacity()));
+    }
+
+    private ParkingReport report(long lotId, LocalDateTime start, LocalDateTime end, int totalCapacity) {
+        long occupied = occupancyTracker.getOccupied(lotId);
         long freed = totalCapacity - occupied;
 
-        Double avgSeconds = repository.findAverageParkingDurationInSeconds(start, end);
+        Double avgSeconds = reportCache.averageSeconds(lotId, start, end,
+                (from, to) -> durationStatsService.averageSeconds(lotId, from, to));
         double avgMinutes = avgSeconds != null ? avgSeconds / 60.0 : 0.0;
 
         return new ParkingReport(occupied, freed, avgMinutes);
     }
 
-    public record ParkingReport(long occupied, long free, double avgDurationMinutes) {}
+    /**
+     * Разбивка отчёта площадки по типам машин одним сгруппированным запросом. Типы без машин и парковок
+     * за период возвращаются с нулями, чтобы у клиента всегда был полный список.
+     */
+    @Transactional(readOnly = true)
+    public List<CarTypeReport> getCarTypeBreakdown(long lotId, LocalDateTime start, LocalDateTime end) {
+        lotService.require(lotId);
+        return metrics.timeReport(() -> {
+            Map<CarType, CarTypeReport> byType = new EnumMap<>(CarType.class);
+            for (CarTypeStats stats : repository.findCarTypeStats(lotId, start, end)) {
+                CarType carType = CarType.valueOf(stats.getCarType());
+                byType.put(carType, CarTypeReport.of(carType, stats));
+            }
+            return Arrays.stream(CarType.values())
+                    .map(carType -> byType.getOrDefault(carType, CarTypeReport.empty(carType)))
+                    .toList();
+        });
+    }
+
+    /**
+     * Перцентили длительности парковок площадки с въездом в [start, end] по квантильным скетчам:
+     * относительная погрешность не больше {@link DurationSketch#RELATIVE_ACCURACY}. carType = null — по всем типам.
+     */
+    @Transactional(readOnly = true)
+    public DurationPercentiles getPercentiles(long lotId, LocalDateTime start, LocalDateTime end, CarType carType) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Начало периода позже его конца");
+        }
+        lotService.require(lotId);
+        return metrics.timeReport(() -> DurationPercentiles.of(durationStatsService.sketch(lotId, start, end, carType)));
+    }
+
+    /**
+     * Занятость площадки по корзинам размера bucket за [start, end): средняя и пиковая занятость и время
+     * на пределе вместимости. События окна читаются курсором и сводятся одним проходом {@link OccupancyTimeline}.
+     */
+    @Transactional(readOnly = true)
+    public OccupancyTimeline.Report getTimeline(long lotId, LocalDateTime start, LocalDateTime end, Duration bucket) {
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше его конца");
+        }
+        if (bucket.isNegative() || bucket.isZero()) {
+            throw new IllegalArgumentException("Размер корзины должен быть положительным: " + bucket);
+        }
+        int buckets = OccupancyTimeline.buckets(start, end, bucket);
+        if (buckets > maxTimelineBuckets) {
+            throw new IllegalArgumentException("Слишком много корзин: " + buckets + ", максимум " + maxTimelineBuckets);
+        }
+        int capacity = lotService.require(lotId).getCapacity();
+        return metrics.timeReport(() -> {
+            OccupancyTimeline timeline = new OccupancyTimeline(start, end, bucket, capacity,
+                    jdbcRepository.countOccupiedAt(lotId, start));
+            jdbcRepository.forEachOccupancyChange(lotId, start, end, timelineFetchSize, timeline::accept);
+            return timeline.finish();
+        });
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > maxBatchItems) {
+            throw new IllegalArgumentException("Слишком много событий в пакете: " + size + ", максимум " + maxBatchItems);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * {@code byCarType} заполняется только по запросу и без него не попадает в JSON — прежний формат ответа.
+     */
+    public record ParkingReport(long occupied, long free, double avgDurationMinutes,
+                                @JsonInclude(JsonInclude.Include.NON_NULL) List<CarTypeReport> byCarType) {
+
+        public ParkingReport(long occupied, long free, double avgDurationMinutes) {
+            this(occupied, free, avgDurationMinutes, null);
+        }
+
+        public ParkingReport withByCarType(List<CarTypeReport> byCarType) {
+            return new ParkingReport(occupied, free, avgDurationMinutes, byCarType);
+        }
+    }
+
+    public record CarTypeReport(CarType carType, long occupied, long count, double avgDurationMinutes,
+                                double p50DurationMinutes, double p95DurationMinutes) {
+
+        static CarTypeReport of(CarType carType, CarTypeStats stats) {
+            return new CarTypeReport(carType, stats.getOccupied().longValue(), stats.getCount().longValue(),
+                    minutes(stats.getAvgSeconds()), minutes(stats.getP50Seconds()), minutes(stats.getP95Seconds()));
+        }
+
+        static CarTypeReport empty(CarType carType) {
+            return new CarTypeReport(carType, 0, 0, 0.0, 0.0, 0.0);
+        }
+
+        private static double minutes(Number seconds) {
+            return seconds != null ? seconds.doubleValue() / 60.0 : 0.0;
+        }
+    }
+
+    public record DurationPercentiles(long count, double p50DurationMinutes, double p90DurationMinutes,
+                                      double p99DurationMinutes, double relativeAccuracy) {
+
+        static DurationPercentiles of(DurationSketch sketch) {
+            return new DurationPercentiles(sketch.count(), minutes(sketch.quantile(0.5)),
+                    minutes(sketch.quantile(0.9)), minutes(sketch.quantile(0.99)), DurationSketch.RELATIVE_ACCURACY);
+        }
+
+        private static double minutes(Double seconds) {
+            return seconds != null ? seconds / 60.0 : 0.0;
+        }
+    }
+
+    public record EntryCommand(String licensePlate, CarType carType) {}
+
+    public enum BatchStatus {
+        ACCEPTED,
+        DUPLICATE,
+        NOT_FOUND,
+        INVALID
+    }
+
+    public record BatchResult(String licensePlate, BatchStatus status, LocalDateTime time) {
+
+        static BatchResult accepted(String licensePlate, LocalDateTime time) {
+            return new BatchResult(licensePlate, BatchStatus.ACCEPTED, time);
+        }
+
+        static BatchResult rejected(String licensePlate, BatchStatus status) {
+            return new BatchResult(licensePlate, status, null);
+        }
+    }
 }
 
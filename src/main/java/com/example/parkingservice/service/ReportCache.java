@@ -0,0 +1,209 @@
+package com.example.parkingservice.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Кэш средней длительности для /report с коротким TTL.
+ * <p>
+ * Ключ — площадка и окно, округлённое до секунды: табло, опрашивающие одно и то же окно, попадают в одну запись.
+ * Размер ограничен, при переполнении вытесняется давно не запрошенное окно (LRU).
+ * Одновременные промахи по одному окну ждут один расчёт, а не запускают каждый свой запрос к базе.
+ * Выезды сбрасывают окна, в которые попадает время въезда закрытой сессии.
+ * <p>
+ * Занятость в кэш не входит: она берётся из {@link OccupancyTracker} и всегда актуальна.
+ */
+@Component
+public class ReportCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "parkingReport";
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Window, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public ReportCache(@Value("${parking.report.cache.max-size:1000}") int maxSize,
+                       @Value("${parking.report.cache.ttl:PT5S}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    ReportCache(int maxSize, Duration ttl, LongSupplier ticker) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Window, Entry> eldest) {
+                if (size() > ReportCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param loader расчёт по окну; вызывается с округлёнными границами, чтобы результат
+     *               подходил всем запросам с тем же ключом
+     */
+    public Double averageSeconds(long lotId, LocalDateTime start, LocalDateTime end,
+                                 BiFunction<LocalDateTime, LocalDateTime, Double> loader) {
+        if (ttlNanos <= 0 || maxSize <= 0) {
+            return loader.apply(start, end);
+        }
+        Window window = new Window(lotId, start.truncatedTo(ChronoUnit.SECONDS), end.truncatedTo(ChronoUnit.SECONDS));
+
+        Entry entry;
+        boolean owner = false;
+        lock.lock();
+        try {
+            entry = entries.get(window);
+            if (entry == null || entry.isExpired(ticker.getAsLong())) {
+                entry = new Entry();
+                entries.put(window, entry);
+                owner = true;
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (owner) {
+            load(window, entry, loader);
+        }
+        try {
+            return entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void load(Window window, Entry entry, BiFunction<LocalDateTime, LocalDateTime, Double> loader) {
+        try {
+            Double value = loader.apply(window.start(), window.end());
+            entry.expiresAt = ticker.getAsLong() + ttlNanos;
+            entry.value.complete(value);
+        } catch (RuntimeException e) {
+            // ошибку получают только ожидающие этот расчёт, следующий запрос пойдёт в базу заново
+            lock.lock();
+            try {
+                entries.remove(window, entry);
+            } finally {
+                lock.unlock();
+            }
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Сбрасывает окна площадки, пересекающиеся с [from, to]. Расчёт, уже идущий для такого окна,
+     * достаётся только тем, кто его ждёт; следующий запрос посчитает окно заново.
+     */
+    public void invalidate(long lotId, LocalDateTime from, LocalDateTime to) {
+        lock.lock();
+        try {
+            Iterator<Window> windows = entries.keySet().iterator();
+            while (windows.hasNext()) {
+                Window window = windows.next();
+                if (window.lotId() == lotId && !window.start().isAfter(to) && !window.end().isBefore(from)) {
+                    windows.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, ReportCache::hitCount)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .description("Запросы отчета, обслуженные из кэша")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, ReportCache::missCount)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .description("Запросы отчета, потребовавшие расчета")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, ReportCache::evictionCount)
+                .tags("cache", CACHE_NAME)
+                .description("Окна, вытесненные из-за ограничения размера")
+                .register(registry);
+        Gauge.builder("cache.size", this, ReportCache::size)
+                .tags("cache", CACHE_NAME)
+                .register(registry);
+    }
+
+    private record Window(long lotId, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Double> value = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        boolean isExpired(long now) {
+            return value.isDone() && now - expiresAt >= 0;
+        }
+    }
+}
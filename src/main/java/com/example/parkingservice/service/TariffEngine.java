@@ -0,0 +1,180 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Расчёт стоимости парковки по тарифам типов машин. Тариф — полосы времени суток с почасовой ставкой
+ * и суточный предел; суммы в копейках.
+ * <p>
+ * Стоимость суток считается отдельно для каждой календарной даты парковки: секунды в каждой полосе
+ * умножаются на её ставку, сумма округляется вверх до копейки и ограничивается пределом. Для каждого тарифа
+ * заранее построены накопленные суммы по минутам суток, поэтому расчёт любой парковки — несколько обращений
+ * к массиву, без цикла по полосам или дням. Объект неизменяемый и используется из любых потоков.
+ * <p>
+ * Настройка: {@code parking.tariff.<тип>.bands} и {@code parking.tariff.<тип>.daily-cap}
+ * (тип в нижнем регистре, например {@code parking.tariff.truck.bands}), без них — {@code parking.tariff.default.*}.
+ * Полосы — начало и ставка за час: {@code 08:00=10000,20:00=5000}; время до первой полосы относится
+ * к последней, как полоса через полночь.
+ */
+@Component
+public class TariffEngine {
+
+    private static final String PREFIX = "parking.tariff.";
+    private static final String DEFAULT_BANDS = "00:00=5000,08:00=10000,20:00=5000";
+    private static final long DEFAULT_DAILY_CAP = 150_000;
+
+    private final Tariff[] tariffs;
+    private final String definition;
+
+    @Autowired
+    public TariffEngine(Environment environment) {
+        this(tariffs(environment));
+    }
+
+    public TariffEngine(Map<CarType, Tariff> tariffs) {
+        this.tariffs = new Tariff[CarType.values().length];
+        for (CarType carType : CarType.values()) {
+            Tariff tariff = tariffs.get(carType);
+            if (tariff == null) {
+                throw new IllegalArgumentException("Нет тарифа для типа " + carType);
+            }
+            this.tariffs[carType.ordinal()] = tariff;
+        }
+        this.definition = new TreeMap<>(tariffs).entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .collect(Collectors.joining(";"));
+    }
+
+    /**
+     * Стоимость парковки в копейках; 0, если выезд не позже въезда.
+     */
+    public long fee(CarType carType, LocalDateTime entryTime, LocalDateTime exitTime) {
+        if (!exitTime.isAfter(entryTime)) {
+            return 0;
+        }
+        Tariff tariff = tariffs[carType.ordinal()];
+        int from = entryTime.toLocalTime().toSecondOfDay();
+        int to = exitTime.toLocalTime().toSecondOfDay();
+        long days = ChronoUnit.DAYS.between(entryTime.toLocalDate(), exitTime.toLocalDate());
+        if (days == 0) {
+            return tariff.dayFee(from, to);
+        }
+        return tariff.dayFee(from, Tariff.SECONDS_PER_DAY)
+                + (days - 1) * tariff.fullDayFee
+                + tariff.dayFee(0, to);
+    }
+
+    /**
+     * Описание всех тарифов одной строкой: совпадает, только если совпадают все полосы и пределы.
+     */
+    public String definition() {
+        return definition;
+    }
+
+    private static Map<CarType, Tariff> tariffs(Environment environment) {
+        String defaultBands = environment.getProperty(PREFIX + "default.bands", DEFAULT_BANDS);
+        long defaultCap = environment.getProperty(PREFIX + "default.daily-cap", Long.class, DEFAULT_DAILY_CAP);
+        Map<CarType, Tariff> tariffs = new EnumMap<>(CarType.class);
+        for (CarType carType : CarType.values()) {
+            String key = PREFIX + carType.name().toLowerCase() + ".";
+            tariffs.put(carType, Tariff.parse(
+                    environment.getProperty(key + "bands", defaultBands),
+                    environment.getProperty(key + "daily-cap", Long.class, defaultCap)));
+        }
+        return tariffs;
+    }
+
+    /**
+     * Тариф одного типа машин: ставка каждой минуты суток и накопленная стоимость от полуночи
+     * в единицах «копейки за час × секунды».
+     */
+    public static final class Tariff {
+
+        static final int SECONDS_PER_DAY = 24 * 60 * 60;
+        private static final int MINUTES_PER_DAY = 24 * 60;
+        private static final int SECONDS_PER_HOUR = 60 * 60;
+
+        private final long[] rates = new long[MINUTES_PER_DAY];
+        private final long[] cumulative = new long[MINUTES_PER_DAY + 1];
+        private final long dailyCap;
+        private final long fullDayFee;
+        private final String definition;
+
+        private Tariff(TreeMap<Integer, Long> bands, long dailyCap, String definition) {
+            long rate = bands.lastEntry().getValue();
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                Long start = bands.get(minute);
+                if (start != null) {
+                    rate = start;
+                }
+                rates[minute] = rate;
+                cumulative[minute + 1] = cumulative[minute] + rate * 60;
+            }
+            this.dailyCap = dailyCap;
+            this.fullDayFee = dayFee(0, SECONDS_PER_DAY);
+            this.definition = definition;
+        }
+
+        /**
+         * @param bands    полосы через запятую: {@code ЧЧ:ММ=ставка в копейках за час}
+         * @param dailyCap предел за календарные сутки в копейках, 0 — без предела
+         */
+        public static Tariff parse(String bands, long dailyCap) {
+            if (dailyCap < 0) {
+                throw new IllegalArgumentException("Суточный предел не может быть отрицательным: " + dailyCap);
+            }
+            TreeMap<Integer, Long> parsed = new TreeMap<>();
+            for (String band : bands.split(",")) {
+                String[] parts = band.trim().split("=");
+                try {
+                    LocalTime start = LocalTime.parse(parts[0].trim());
+                    long rate = Long.parseLong(parts[1].trim());
+                    if (parts.length != 2 || start.getSecond() != 0 || start.getNano() != 0 || rate < 0) {
+                        throw new IllegalArgumentException();
+                    }
+                    parsed.put(start.getHour() * 60 + start.getMinute(), rate);
+                } catch (DateTimeParseException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Неверная полоса тарифа «" + band.trim()
+                            + "»: ожидается ЧЧ:ММ=ставка в копейках за час");
+                }
+            }
+            String definition = parsed.entrySet().stream()
+                    .map(entry -> LocalTime.ofSecondOfDay(entry.getKey() * 60L) + "=" + entry.getValue())
+                    .collect(Collectors.joining(",")) + "/" + dailyCap;
+            return new Tariff(parsed, dailyCap, definition);
+        }
+
+        /**
+         * Стоимость отрезка суток [from, to) в секундах от полуночи с округлением вверх и пределом.
+         */
+        long dayFee(int from, int to) {
+            long fee = (cost(to) - cost(from) + SECONDS_PER_HOUR - 1) / SECONDS_PER_HOUR;
+            return dailyCap > 0 ? Math.min(fee, dailyCap) : fee;
+        }
+
+        private long cost(int secondOfDay) {
+            int minute = secondOfDay / 60;
+            if (minute == MINUTES_PER_DAY) {
+                return cumulative[MINUTES_PER_DAY];
+            }
+            return cumulative[minute] + rates[minute] * (secondOfDay % 60);
+        }
+
+        @Override
+        public String toString() {
+            return definition;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.exception.IngestBacklogFullException;
+import com.example.parkingservice.service.GateEventLog.GateEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Режим отложенной записи ({@code parking.ingest.mode=WRITE_BEHIND}): въезд и выезд подтверждаются
+ * после записи события в локальный журнал, а в parking_record события переносит фоновый сброс
+ * пакетами через {@link GateEventFlusher}. Время въезда и выезда — время приёма события, а не записи в базу.
+ * <p>
+ * Проверки, которым нужна база (повторный въезд, выезд без въезда), выполняются при сбросе:
+ * такие события отклоняются там и попадают в лог и метрику {@code parking.batch.events}.
+ * Если несброшенная часть журнала превышает {@code parking.ingest.max-lag}, новые события
+ * не принимаются, пока сброс не догонит.
+ * <p>
+ * Пакет, который не записывается из-за недоступности базы, повторяется целиком. При любой другой ошибке пакет
+ * сбрасывается по одному событию, и событие, которое не записывается и в одиночку, пропускается
+ * с ошибкой в логе и метрикой {@code parking.ingest.skipped}, чтобы не останавливать журнал.
+ * <p>
+ * Отметка сброса хранится в базе под именем журнала {@code parking.ingest.log-name}. Без него имя создаётся
+ * при первом запуске из имени хоста и случайного суффикса и хранится в файле {@code log-name} рядом с журналом:
+ * у каждого журнала своя отметка, и узлы с общей базой не сдвигают отметки друг друга.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "parking.ingest.mode", havingValue = "WRITE_BEHIND")
+public class WriteBehindIngest {
+
+    private static final String LOG_NAME_FILE = "log-name";
+    private static final String LEGACY_LOG_NAME = "gate";
+
+    private final GateEventLog eventLog;
+    private final GateEventFlusher flusher;
+    private final ParkingLotService lotService;
+    private final String logName;
+    private final long maxLag;
+    private final int batchSize;
+    private final Counter skipped;
+
+    private volatile long flushedOffset;
+
+    public WriteBehindIngest(GateEventFlusher flusher,
+                             ParkingLotService lotService,
+                             MeterRegistry registry,
+                             @Value("${parking.ingest.log-dir:./data/gate-log}") Path logDir,
+                             @Value("${parking.ingest.log-name:}") String logName,
+                             @Value("${parking.ingest.segment-size:64MB}") DataSize segmentSize,
+                             @Value("${parking.ingest.fsync:true}") boolean fsync,
+                             @Value("${parking.ingest.max-lag:16MB}") DataSize maxLag,
+                             @Value("${parking.ingest.batch-size:500}") int batchSize) {
+        this.logName = logName.isBlank() ? logName(logDir) : logName;
+        this.eventLog = new GateEventLog(logDir, Math.toIntExact(segmentSize.toBytes()), fsync);
+        this.flusher = flusher;
+        this.lotService = lotService;
+        this.maxLag = maxLag.toBytes();
+        this.batchSize = batchSize;
+
+        long checkpoint = flusher.flushedOffset(this.logName).orElse(eventLog.startOffset());
+        if (checkpoint < eventLog.startOffset() || checkpoint > eventLog.endOffset()) {
+            log.warn("Отметка {} вне журнала [{}, {}]: журнал пересоздан, сброс начнётся с его начала",
+                    checkpoint, eventLog.startOffset(), eventLog.endOffset());
+            checkpoint = eventLog.startOffset();
+        }
+        this.flushedOffset = checkpoint;
+        log.info("Отложенная запись: журнал {}, к сбросу {} байт", this.logName, eventLog.endOffset() - checkpoint);
+
+        Gauge.builder("parking.ingest.lag", this, WriteBehindIngest::lag)
+                .baseUnit("bytes")
+                .description("Принятые, но ещё не записанные в базу события журнала")
+                .register(registry);
+        this.skipped = Counter.builder("parking.ingest.skipped")
+                .description("События журнала, которые не удалось записать в базу и пришлось пропустить")
+                .register(registry);
+    }
+
+    public LocalDateTime appendEntry(long lotId, String licensePlate, CarType carType) {
+        if (isBlank(licensePlate) || carType == null) {
+            throw new IllegalArgumentException("Не указан номер или тип автомобиля");
+        }
+        return append(GateEvent.entry(lotId, licensePlate, carType, LocalDateTime.now()));
+    }
+
+    public LocalDateTime appendExit(long lotId, String licensePlate) {
+        if (isBlank(licensePlate)) {
+            throw new IllegalArgumentException("Не указан номер автомобиля");
+        }
+        return append(GateEvent.exit(lotId, licensePlate, LocalDateTime.now()));
+    }
+
+    private LocalDateTime append(GateEvent event) {
+        lotService.require(event.lotId());
+        if (lag() > maxLag) {
+            throw new IngestBacklogFullException("Журнал отложенной записи переполнен: " + lag() + " байт не записано в базу");
+        }
+        eventLog.append(event);
+        return event.time();
+    }
+
+    /**
+     * Переносит журнал в базу пакетами до его текущего конца. Отметка сброса и события пакета
+     * фиксируются одной транзакцией; если база недоступна, пакет повторяется на следующем запуске.
+     */
+    @Scheduled(fixedDelayString = "${parking.ingest.flush-interval:PT0.1S}")
+    public synchronized void flush() {
+        List<GateEvent> events = new ArrayList<>(batchSize);
+        do {
+            events.clear();
+            long from = flushedOffset;
+            long to = eventLog.read(from, batchSize, events);
+            if (to == from) {
+                return;
+            }
+            try {
+                flusher.apply(logName, events, to);
+            } catch (RuntimeException e) {
+                if (isUnavailable(e)) {
+                    log.warn("Сброс журнала со смещения {} не удался, повтор на следующем запуске: {}", from, e.getMessage());
+                    return;
+                }
+                log.warn("Пакет журнала со смещения {} не записан, сброс по одному событию: {}", from, e.getMessage());
+                if (!flushEach(from, to)) {
+                    return;
+                }
+                continue;
+            }
+            advance(to);
+        } while (events.size() == batchSize);
+    }
+
+    /**
+     * Сбрасывает [from, to) по одному событию и пропускает те, что не записываются и в одиночку.
+     * Возвращает false, если остановился из-за недоступности базы.
+     */
+    private boolean flushEach(long from, long to) {
+        List<GateEvent> single = new ArrayList<>(1);
+        long offset = from;
+        while (offset < to) {
+            single.clear();
+            long next = eventLog.read(offset, 1, single);
+            try {
+                flusher.apply(logName, single, next);
+            } catch (RuntimeException e) {
+                if (isUnavailable(e)) {
+                    log.warn("Сброс журнала со смещения {} не удался, повтор на следующем запуске: {}", offset, e.getMessage());
+                    return false;
+                }
+                try {
+                    flusher.apply(logName, List.of(), next);
+                } catch (RuntimeException checkpointError) {
+                    log.warn("Отметка сброса {} не записана, повтор на следующем запуске: {}", next, checkpointError.getMessage());
+                    return false;
+                }
+                skipped.increment();
+                log.error("Событие журнала {} со смещения {} не записывается и пропущено", single.get(0), offset, e);
+            }
+            advance(next);
+            offset = next;
+        }
+        return true;
+    }
+
+    private void advance(long offset) {
+        flushedOffset = offset;
+        eventLog.deleteBefore(offset);
+    }
+
+    // база или соединение недоступны: событие ни при чём, пропускать его нельзя
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private static String logName(Path logDir) {
+        Path file = logDir.resolve(LOG_NAME_FILE);
+        try {
+            if (Files.exists(file)) {
+                return Files.readString(file, StandardCharsets.UTF_8).strip();
+            }
+            Files.createDirectories(logDir);
+            String name;
+            try (Stream<Path> files = Files.list(logDir)) {
+                // журнал, начатый до появления имён, сбрасывался под прежним общим именем
+                name = files.anyMatch(f -> f.getFileName().toString().endsWith(".log"))
+                        ? LEGACY_LOG_NAME
+                        : hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+            }
+            Files.writeString(file, name, StandardCharsets.UTF_8);
+            return name;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать имя журнала " + file, e);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return LEGACY_LOG_NAME;
+        }
+    }
+
+    public long lag() {
+        return eventLog.endOffset() - flushedOffset;
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        eventLog.close();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
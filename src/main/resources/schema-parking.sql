@@ -0,0 +1,23 @@
+-- Выполняется после создания таблиц Hibernate (spring.jpa.defer-datasource-initialization=true)
+-- В PostgreSQL parking_record секционирована по lot_id: индексы создаются на родительской таблице
+-- и автоматически появляются в каждой секции
+
+CREATE INDEX IF NOT EXISTS idx_license_plate ON parking_record (license_plate);
+CREATE INDEX IF NOT EXISTS idx_entry_time ON parking_record (entry_time);
+CREATE INDEX IF NOT EXISTS idx_exit_time ON parking_record (exit_time);
+
+-- Уникальный индекс активной сессии номера ux_parking_record_lot_active_plate создаёт
+-- ParkingRecordPartitionMigration: здесь ошибки пропускаются (continue-on-error), а без него старт недопустим
+
+-- Ключ постраничной выгрузки истории (GET /api/v1/parking/records)
+CREATE INDEX IF NOT EXISTS ix_parking_record_entry_time_id
+    ON parking_record (entry_time, id);
+
+-- Архив завершённых парковок (parking_record_archive) секционирован по месяцам entry_time.
+-- Первичный ключ (entry_time, id) обслуживает выгрузку истории, этот индекс — отчёты по площадке
+CREATE INDEX IF NOT EXISTS ix_parking_record_archive_lot_entry_time
+    ON parking_record_archive (lot_id, entry_time);
+
+-- Отбор архивных парковок перерасчёта по времени выезда
+CREATE INDEX IF NOT EXISTS ix_parking_record_archive_exit_time
+    ON parking_record_archive (exit_time);
@@ -0,0 +1,77 @@
+package com.example.parkingservice.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvLineRangePartitionerTest {
+
+    @Test
+    void givenTwoFiles_whenPartition_thenByteRangesStartAtLinesAndCoverEveryRowOnce() throws IOException {
+        Resource first = csv("first", 7);
+        Resource second = csv("second", 3);
+
+        Map<String, ExecutionContext> partitions =
+                new CsvLineRangePartitioner(new Resource[]{first, second}, 1).partition(4);
+
+        List<ExecutionContext> contexts = partitions.values().stream()
+                .sorted(Comparator.comparing((ExecutionContext c) -> c.getString(CsvLineRangePartitioner.RESOURCE_KEY))
+                        .thenComparingLong(c -> c.getLong(CsvLineRangePartitioner.START_OFFSET_KEY)))
+                .toList();
+
+        List<String> ranges = new ArrayList<>();
+        for (ExecutionContext context : contexts) {
+            Resource file = context.getString(CsvLineRangePartitioner.RESOURCE_KEY).endsWith("first.csv") ? first : second;
+            Resource range = new ByteRangeResource(file, context.getLong(CsvLineRangePartitioner.START_OFFSET_KEY),
+                    context.getLong(CsvLineRangePartitioner.END_OFFSET_KEY));
+            try (InputStream in = range.getInputStream()) {
+                ranges.add(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                        .map(line -> line.substring(0, line.indexOf(',')))
+                        .collect(Collectors.joining(" ")));
+            }
+        }
+        assertThat(ranges).containsExactly("A0 A1 A2", "A3 A4 A5", "A6", "A0 A1 A2");
+        assertThat(contexts.get(3).getString(CsvLineRangePartitioner.RESOURCE_KEY))
+                .isEqualTo("file:/import/second.csv");
+    }
+
+    @Test
+    void givenFileResource_whenReadRange_thenOpensAtOffset(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("gate.csv");
+        Files.writeString(file, "header\nA1,SEDAN\nB2,TRUCK\nC3,VAN\n");
+
+        try (InputStream in = new ByteRangeResource(new FileSystemResource(file), 16, 25).getInputStream()) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("B2,TRUCK\n");
+        }
+    }
+
+    private static Resource csv(String name, int rows) {
+        StringBuilder content = new StringBuilder("licensePlate,carType,entryTime,exitTime\n");
+        for (int i = 0; i < rows; i++) {
+            content.append("A").append(i).append(",SEDAN,2025-05-01T08:00:00,\n");
+        }
+        return new ByteArrayResource(content.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public URL getURL() throws IOException {
+                return new URL("file:/import/" + name + ".csv");
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.batch.ParkingImportLauncher.ImportState;
+import com.example.parkingservice.batch.ParkingImportLauncher.ImportStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ParkingImportHealthIndicatorTest {
+
+    @Test
+    void givenFailedImport_whenHealth_thenDownWithoutChecksumAndError() {
+        ParkingImportLauncher launcher = mock(ParkingImportLauncher.class);
+        when(launcher.status()).thenReturn(new ImportStatus(ImportState.FAILED, "12ba5e36", 1024L,
+                "PreparedStatementCallback; duplicate key value violates unique constraint"));
+
+        Health health = new ParkingImportHealthIndicator(launcher, mock(JobExplorer.class)).health();
+
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals(Map.of("state", ImportState.FAILED, "bytes", 1024L), health.getDetails());
+    }
+}
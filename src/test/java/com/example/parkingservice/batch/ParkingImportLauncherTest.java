@@ -0,0 +1,87 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.batch.ParkingImportLauncher.ImportState;
+import com.example.parkingservice.batch.ParkingImportLauncher.InputFingerprint;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ParkingImportLauncherTest {
+
+    private static final String HEADER = "licensePlate,carType,entryTime,exitTime\n";
+
+    private final JobLauncher jobLauncher = mock(JobLauncher.class);
+    private final Job job = mock(Job.class);
+    private final ResourcePatternResolver resolver = mock(ResourcePatternResolver.class);
+
+    @Test
+    void givenSameFilesInAnyOrder_whenFingerprint_thenEqualAndChangesWithContent() throws Exception {
+        Resource first = csv("first", "A1,SEDAN,2025-05-01T08:00:00,\n");
+        Resource second = csv("second", "B2,TRUCK,2025-05-01T09:00:00,\n");
+
+        InputFingerprint forward = ParkingImportLauncher.fingerprint(new Resource[]{first, second});
+        InputFingerprint backward = ParkingImportLauncher.fingerprint(new Resource[]{second, first});
+        InputFingerprint changed = ParkingImportLauncher.fingerprint(
+                new Resource[]{first, csv("second", "B2,TRUCK,2025-05-01T09:00:01,\n")});
+
+        assertEquals(forward, backward);
+        assertEquals(first.contentLength() + second.contentLength(), forward.size());
+        assertEquals(64, forward.checksum().length());
+        assertNotEquals(forward.checksum(), changed.checksum());
+    }
+
+    @Test
+    void givenNewFile_whenRunImport_thenLaunchesJobKeyedByChecksumAndSize() throws Exception {
+        Resource data = csv("data", "A1,SEDAN,2025-05-01T08:00:00,\n");
+        when(resolver.getResources("classpath:data.csv")).thenReturn(new Resource[]{data});
+        JobExecution execution = new JobExecution(1L);
+        execution.setStatus(BatchStatus.COMPLETED);
+        when(jobLauncher.run(eq(job), any())).thenReturn(execution);
+
+        ParkingImportLauncher launcher = launcher();
+        launcher.runImport();
+
+        ArgumentCaptor<JobParameters> params = ArgumentCaptor.forClass(JobParameters.class);
+        verify(jobLauncher).run(eq(job), params.capture());
+        InputFingerprint expected = ParkingImportLauncher.fingerprint(new Resource[]{data});
+        assertEquals(expected.checksum(), params.getValue().getString(ParkingImportLauncher.CHECKSUM_PARAM));
+        assertEquals(expected.size(), params.getValue().getLong(ParkingImportLauncher.SIZE_PARAM));
+        assertEquals(7L, params.getValue().getLong(ParkingImportLauncher.LOT_PARAM));
+        assertEquals(ImportState.COMPLETED, launcher.status().state());
+    }
+
+    @Test
+    void givenAlreadyImportedFile_whenRunImport_thenSkipped() throws Exception {
+        when(resolver.getResources("classpath:data.csv"))
+                .thenReturn(new Resource[]{csv("data", "A1,SEDAN,2025-05-01T08:00:00,\n")});
+        when(jobLauncher.run(eq(job), any())).thenThrow(new JobInstanceAlreadyCompleteException("done"));
+
+        ParkingImportLauncher launcher = launcher();
+        launcher.runImport();
+
+        assertEquals(ImportState.SKIPPED, launcher.status().state());
+        assertNotNull(launcher.status().checksum());
+    }
+
+    private ParkingImportLauncher launcher() {
+        return new ParkingImportLauncher(jobLauncher, job, resolver, false, "classpath:data.csv", "unused", 7L);
+    }
+
+    private static Resource csv(String name, String rows) {
+        return new ByteArrayResource((HEADER + rows).getBytes(StandardCharsets.UTF_8), name);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordIdAllocator;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ParkingRecordJdbcItemWriterTest {
+
+    private static final LocalDateTime ENTRY = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    private final ParkingRecordIdAllocator idAllocator = mock(ParkingRecordIdAllocator.class);
+    private final ParkingRecordJdbcRepository jdbcRepository = mock(ParkingRecordJdbcRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private JdbcTemplate jdbc;
+    private ParkingRecordJdbcItemWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE parking_record (id BIGINT, lot_id BIGINT, license_plate VARCHAR(20), car_type VARCHAR(20),
+                                             entry_time TIMESTAMP, exit_time TIMESTAMP, fee BIGINT)
+                """);
+        writer = new ParkingRecordJdbcItemWriter(dataSource, idAllocator,
+                new OpenSessionWriter(jdbcRepository, registry));
+    }
+
+    @Test
+    void givenOpenRowOfAlreadyParkedPlate_whenWrite_thenSkipsItAndWritesTheRest() throws Exception {
+        ParkingRecord parked = record("A111AA", null);
+        ParkingRecord fresh = record("B222BB", null);
+        ParkingRecord closed = record("C333CC", ENTRY.plusHours(2));
+        when(idAllocator.nextIds(3)).thenReturn(List.of(10L, 11L, 12L));
+        when(jdbcRepository.insertIfAbsent(List.of(parked, fresh))).thenReturn(new int[]{0, 1});
+        Chunk<ParkingRecord> chunk = new Chunk<>(List.of(parked, fresh, closed));
+
+        writer.write(chunk);
+
+        assertEquals(List.of(fresh, closed), chunk.getItems());
+        assertEquals(List.of("C333CC"), jdbc.queryForList("SELECT license_plate FROM parking_record", String.class));
+        assertEquals(12L, closed.getId());
+        assertEquals(1.0, registry.get("parking.import.rejected").tag("reason", "active-session").counter().count());
+    }
+
+    private static ParkingRecord record(String plate, LocalDateTime exit) {
+        return ParkingRecord.builder()
+                .lotId(1L)
+                .licensePlate(plate)
+                .carType(CarType.SEDAN)
+                .entryTime(ENTRY)
+                .exitTime(exit)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParkingRecordLineMapperTest {
+
+    private final ParkingRecordLineMapper mapper = new ParkingRecordLineMapper();
+
+    @Test
+    void givenClosedSession_whenMapLine_thenBuildsRecord() {
+        ParkingRecord record = mapper.mapLine("B222BB,TRUCK,2025-05-02T09:30:00,2025-05-02T18:00:00.125", 2);
+
+        assertThat(record.getLicensePlate()).isEqualTo("B222BB");
+        assertThat(record.getCarType()).isEqualTo(CarType.TRUCK);
+        assertThat(record.getEntryTime()).isEqualTo(LocalDateTime.of(2025, 5, 2, 9, 30));
+        assertThat(record.getExitTime()).isEqualTo(LocalDateTime.of(2025, 5, 2, 18, 0, 0, 125_000_000));
+    }
+
+    @Test
+    void givenActiveSession_whenMapLine_thenExitTimeIsNull() {
+        ParkingRecord record = mapper.mapLine("A111AA,SEDAN,2025-05-01T08:00,", 2);
+
+        assertThat(record.getEntryTime()).isEqualTo(LocalDateTime.of(2025, 5, 1, 8, 0));
+        assertThat(record.getExitTime()).isNull();
+    }
+
+    @Test
+    void givenQuotedPlate_whenMapLine_thenFallsBackToTokenizer() {
+        ParkingRecord record = mapper.mapLine("\"C,33\",VAN,2025-05-01T08:00:00,", 2);
+
+        assertThat(record.getLicensePlate()).isEqualTo("C,33");
+        assertThat(record.getCarType()).isEqualTo(CarType.VAN);
+    }
+
+    @Test
+    void givenMalformedLines_whenMapLine_thenRejects() {
+        assertThatThrownBy(() -> mapper.mapLine("A111AA,BUS,2025-05-01T08:00:00,", 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("BUS");
+        assertThatThrownBy(() -> mapper.mapLine("A111AA,SEDAN,2025-13-01T08:00:00,", 2))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> mapper.mapLine("A111AA,SEDAN,2025-05-01 08:00:00,", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> mapper.mapLine("A111AA,SEDAN,2025-05-01T08:00:00", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
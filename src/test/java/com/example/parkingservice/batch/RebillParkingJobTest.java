@@ -0,0 +1,181 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.repository.ParkingRecordArchiveRepository;
+import com.example.parkingservice.repository.ParkingRecordIdAllocator;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import com.example.parkingservice.service.TariffEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig(RebillParkingJobTest.Config.class)
+class RebillParkingJobTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 5, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusMonths(1);
+
+    @Configuration
+    @Import({ParkingBatchConfig.class, TariffEngine.class, ParkingRebillLauncher.class})
+    static class Config {
+
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true)
+                    .addScript("/org/springframework/batch/core/schema-h2.sql")
+                    .build();
+        }
+
+        @Bean
+        DataSourceTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @MockBean
+    ParkingRecordRepository repository;
+    @MockBean
+    ParkingImportListener importListener;
+    @MockBean
+    ParkingStatsWriteListener statsWriteListener;
+    @MockBean
+    ParkingImportMetricsListener importMetricsListener;
+    @MockBean
+    ParkingRecordIdAllocator idAllocator;
+    @MockBean
+    ParkingRecordArchiveRepository archiveRepository;
+    @MockBean
+    OpenSessionWriter openSessionWriter;
+
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    ParkingRebillLauncher launcher;
+    @Autowired
+    JobExplorer jobExplorer;
+    @Autowired
+    TariffEngine tariffEngine;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS parking_record");
+        jdbc.execute("DROP TABLE IF EXISTS parking_record_archive");
+        jdbc.execute("""
+                CREATE TABLE parking_record (id BIGINT, lot_id BIGINT, license_plate VARCHAR(20), car_type VARCHAR(20),
+                                             entry_time TIMESTAMP, exit_time TIMESTAMP, fee BIGINT,
+                                             PRIMARY KEY (lot_id, id))
+                """);
+        jdbc.execute("""
+                CREATE TABLE parking_record_archive (id BIGINT, lot_id BIGINT, license_plate VARCHAR(20),
+                                                     car_type VARCHAR(20), entry_time TIMESTAMP, exit_time TIMESTAMP,
+                                                     fee BIGINT, PRIMARY KEY (entry_time, id))
+                """);
+    }
+
+    @Test
+    void givenNullStaleAndCorrectFees_whenRebill_thenRewritesOnlyWrongFeesInPeriod() throws Exception {
+        LocalDateTime entry = FROM.plusDays(2).plusHours(7);
+        long correct = tariffEngine.fee(CarType.SEDAN, entry, entry.plusHours(5));
+        insert("parking_record", 1, 1, CarType.SEDAN, entry, entry.plusHours(3), null);
+        insert("parking_record", 2, 1, CarType.TRUCK, entry, entry.plusDays(2), 1L);
+        insert("parking_record", 3, 1, CarType.SEDAN, entry, entry.plusHours(5), correct);
+        insert("parking_record", 4, 1, CarType.SEDAN, FROM.minusDays(2), FROM.minusDays(1), null);
+        insert("parking_record", 5, 1, CarType.SEDAN, entry, null, null);
+        insert("parking_record", 6, 2, CarType.SUV, entry, entry.plusMinutes(40), null);
+        LocalDateTime archived = FROM.minusDays(2);
+        long archivedCorrect = tariffEngine.fee(CarType.SEDAN, archived, archived.plusHours(2).plusDays(2));
+        insert("parking_record_archive", 7, 1, CarType.VAN, archived, FROM.plusHours(1), null);
+        insert("parking_record_archive", 8, 1, CarType.SEDAN, archived, archived.plusHours(2).plusDays(2), archivedCorrect);
+        insert("parking_record_archive", 9, 1, CarType.SEDAN, archived, archived.plusHours(2), null);
+
+        ParkingRebillLauncher.RebillRun run = awaitCompletion(launcher.rebill(FROM, TO).executionId());
+
+        assertEquals(BatchStatus.COMPLETED, run.status());
+        assertEquals(6, run.processed());
+        assertEquals(4, run.rebilled());
+        Map<Long, Long> fees = fees("parking_record");
+        assertEquals(tariffEngine.fee(CarType.SEDAN, entry, entry.plusHours(3)), fees.get(1L));
+        assertEquals(tariffEngine.fee(CarType.TRUCK, entry, entry.plusDays(2)), fees.get(2L));
+        assertEquals(correct, fees.get(3L));
+        assertNull(fees.get(4L));
+        assertNull(fees.get(5L));
+        assertEquals(tariffEngine.fee(CarType.SUV, entry, entry.plusMinutes(40)), fees.get(6L));
+        Map<Long, Long> archivedFees = fees("parking_record_archive");
+        assertEquals(tariffEngine.fee(CarType.VAN, archived, FROM.plusHours(1)), archivedFees.get(7L));
+        assertEquals(archivedCorrect, archivedFees.get(8L));
+        assertNull(archivedFees.get(9L));
+
+        insert("parking_record", 10, 1, CarType.SEDAN, entry, entry.plusHours(1), null);
+
+        ParkingRebillLauncher.RebillRun rerun = awaitCompletion(launcher.rebill(FROM, TO).executionId());
+
+        assertNotEquals(run.executionId(), rerun.executionId());
+        assertEquals(BatchStatus.COMPLETED, rerun.status());
+        assertEquals(7, rerun.processed());
+        assertEquals(1, rerun.rebilled());
+        assertEquals(tariffEngine.fee(CarType.SEDAN, entry, entry.plusHours(1)), fees("parking_record").get(10L));
+    }
+
+    @Test
+    void givenUnbilledSessionWithZeroFee_whenRebill_thenWritesZeroInsteadOfNull() throws Exception {
+        LocalDateTime entry = FROM.plusDays(3).plusHours(9);
+        assertEquals(0, tariffEngine.fee(CarType.SEDAN, entry, entry));
+        insert("parking_record", 1, 1, CarType.SEDAN, entry, entry, null);
+        insert("parking_record", 2, 1, CarType.SEDAN, entry, entry, 0L);
+
+        ParkingRebillLauncher.RebillRun run = awaitCompletion(launcher.rebill(FROM, TO).executionId());
+
+        assertEquals(BatchStatus.COMPLETED, run.status());
+        assertEquals(2, run.processed());
+        assertEquals(1, run.rebilled());
+        assertEquals(Map.of(1L, 0L, 2L, 0L), fees("parking_record"));
+    }
+
+    private void insert(String table, long id, long lotId, CarType carType, LocalDateTime entry,
+                        LocalDateTime exit, Long fee) {
+        jdbc.update("INSERT INTO " + table + " (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?)", id, lotId, "P" + id, carType.name(), entry, exit, fee);
+    }
+
+    private Map<Long, Long> fees(String table) {
+        return jdbc.queryForList("SELECT id, fee FROM " + table).stream()
+                .filter(row -> row.get("FEE") != null)
+                .collect(Collectors.toMap(
+                        row -> ((Number) row.get("ID")).longValue(),
+                        row -> ((Number) row.get("FEE")).longValue()));
+    }
+
+    private ParkingRebillLauncher.RebillRun awaitCompletion(long executionId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        JobExecution execution = jobExplorer.getJobExecution(executionId);
+        while (execution.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            execution = jobExplorer.getJobExecution(executionId);
+        }
+        return ParkingRebillLauncher.RebillRun.of(execution);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.parkingservice.batch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RebillPartitionerTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:rebill-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("CREATE TABLE parking_record (id BIGINT, lot_id BIGINT, exit_time TIMESTAMP)");
+        jdbc.execute("CREATE TABLE parking_record_archive (id BIGINT, entry_time TIMESTAMP, exit_time TIMESTAMP)");
+    }
+
+    @Test
+    void givenTwoLots_whenPartition_thenIdRangesSplitByLotShare() {
+        for (long id = 1; id <= 9; id++) {
+            jdbc.update("INSERT INTO parking_record VALUES (?, 1, ?)", id, FROM.plusHours(id));
+        }
+        for (long id = 100; id <= 102; id++) {
+            jdbc.update("INSERT INTO parking_record VALUES (?, 2, ?)", id, FROM.plusHours(id - 99));
+        }
+        jdbc.update("INSERT INTO parking_record VALUES (500, 2, ?)", FROM.minusDays(1));
+        jdbc.update("INSERT INTO parking_record VALUES (501, 2, NULL)");
+
+        List<ExecutionContext> partitions = new RebillPartitioner(jdbc, FROM, FROM.plusMonths(1))
+                .partition(4).values().stream()
+                .sorted(Comparator.comparingLong(c -> c.getLong(RebillPartitioner.MIN_ID_KEY)))
+                .toList();
+
+        assertThat(partitions).extracting(c -> c.getString(RebillPartitioner.TABLE_KEY))
+                .containsOnly(RebillPartitioner.RECORD_TABLE);
+        assertThat(partitions).extracting(c -> c.getLong(RebillPartitioner.LOT_ID_KEY))
+                .containsExactly(1L, 1L, 1L, 2L);
+        assertThat(partitions).extracting(c -> c.getLong(RebillPartitioner.MIN_ID_KEY))
+                .containsExactly(1L, 4L, 7L, 100L);
+        assertThat(partitions).extracting(c -> c.getLong(RebillPartitioner.MAX_ID_KEY))
+                .containsExactly(3L, 6L, 9L, 102L);
+    }
+
+    @Test
+    void givenArchivedSessions_whenPartition_thenOnePartitionPerEntryMonth() {
+        jdbc.update("INSERT INTO parking_record_archive VALUES (1, ?, ?)", FROM.minusDays(2), FROM.plusHours(1));
+        jdbc.update("INSERT INTO parking_record_archive VALUES (2, ?, ?)", FROM.plusDays(3), FROM.plusDays(4));
+        jdbc.update("INSERT INTO parking_record_archive VALUES (3, ?, ?)", FROM.plusDays(5), FROM.plusDays(5).plusHours(2));
+        jdbc.update("INSERT INTO parking_record_archive VALUES (4, ?, ?)", FROM.minusMonths(2), FROM.minusMonths(2).plusHours(1));
+
+        List<ExecutionContext> partitions = new RebillPartitioner(jdbc, FROM, FROM.plusMonths(1))
+                .partition(4).values().stream()
+                .sorted(Comparator.comparing(c -> (LocalDateTime) c.get(RebillPartitioner.ENTRY_FROM_KEY)))
+                .toList();
+
+        assertThat(partitions).extracting(c -> c.getString(RebillPartitioner.TABLE_KEY))
+                .containsOnly(RebillPartitioner.ARCHIVE_TABLE);
+        assertThat(partitions).extracting(c -> c.get(RebillPartitioner.ENTRY_FROM_KEY))
+                .containsExactly(FROM.minusMonths(1), FROM);
+        assertThat(partitions).extracting(c -> c.get(RebillPartitioner.ENTRY_TO_KEY))
+                .containsExactly(FROM, FROM.plusMonths(1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.entity.SpoolFileCheckpoint;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.example.parkingservice.repository.SpoolFileCheckpointRepository;
+import com.example.parkingservice.service.ActiveSessionCache;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.OccupancyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpoolChunkWriterTest {
+
+    private final ItemWriter<ParkingRecord> parkingWriter = mock();
+    private final ParkingStatsWriteListener statsWriteListener = mock(ParkingStatsWriteListener.class);
+    private final SpoolFileCheckpointRepository checkpointRepository = mock(SpoolFileCheckpointRepository.class);
+    private final OccupancyTracker occupancyTracker = mock(OccupancyTracker.class);
+    private final ActiveSessionCache activeSessionCache = mock(ActiveSessionCache.class);
+    private final ParkingRecordJdbcRepository jdbcRepository = mock(ParkingRecordJdbcRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SpoolChunkWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(checkpointRepository.findForUpdate("gate-1.csv")).thenReturn(Optional.empty());
+        writer = new SpoolChunkWriter(parkingWriter, statsWriteListener, mock(ParkingImportMetricsListener.class),
+                checkpointRepository, occupancyTracker, activeSessionCache, mock(OccupancyEventStream.class),
+                jdbcRepository, registry);
+    }
+
+    @Test
+    void givenEntryOfAlreadyParkedPlate_whenWrite_thenSkipsItAndAdvancesCheckpoint() throws Exception {
+        LocalDateTime entry = LocalDateTime.of(2025, 5, 1, 8, 0);
+        ParkingRecord parked = record("A111AA", entry, null);
+        ParkingRecord fresh = record("B222BB", entry, null);
+        ParkingRecord closed = record("C333CC", entry, entry.plusHours(1));
+        when(jdbcRepository.nextIds(2)).thenReturn(List.of(10L, 11L));
+        when(jdbcRepository.insertIfAbsent(List.of(parked, fresh))).thenReturn(new int[]{0, 1});
+
+        assertTrue(writer.write("gate-1.csv", 3L, List.of(parked, fresh, closed), 0, 120, 4));
+
+        verify(parkingWriter).write(new Chunk<>(List.of(closed)));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Chunk<ParkingRecord>> written = ArgumentCaptor.forClass(Chunk.class);
+        verify(statsWriteListener).afterWrite(written.capture());
+        assertEquals(List.of(closed, fresh), written.getValue().getItems());
+        verify(occupancyTracker).onEntries(3L, 1);
+        verify(activeSessionCache).put(fresh);
+        verify(activeSessionCache, never()).put(parked);
+        ArgumentCaptor<SpoolFileCheckpoint> checkpoint = ArgumentCaptor.forClass(SpoolFileCheckpoint.class);
+        verify(checkpointRepository).save(checkpoint.capture());
+        assertEquals(120, checkpoint.getValue().getByteOffset());
+        assertEquals(4, checkpoint.getValue().getLineNumber());
+        assertEquals(1.0, registry.get("parking.spool.rejected").tag("reason", "active-session").counter().count());
+    }
+
+    private static ParkingRecord record(String plate, LocalDateTime entry, LocalDateTime exit) {
+        return ParkingRecord.builder()
+                .lotId(3L)
+                .licensePlate(plate)
+                .carType(CarType.SEDAN)
+                .entryTime(entry)
+                .exitTime(exit)
+                .build();
+    }
+}
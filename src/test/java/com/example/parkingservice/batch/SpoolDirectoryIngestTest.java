@@ -0,0 +1,85 @@
+package com.example.parkingservice.batch;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.ParkingLotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpoolDirectoryIngestTest {
+
+    private static final String HEADER = "licensePlate,carType,entryTime,exitTime\n";
+    private static final String FIRST = "A111AA,SEDAN,2025-05-01T08:00:00,\n";
+    private static final String SECOND = "B222BB,TRUCK,2025-05-01T09:00:00,2025-05-01T10:00:00\n";
+
+    @TempDir
+    Path root;
+
+    private final SpoolChunkWriter chunkWriter = mock(SpoolChunkWriter.class);
+
+    private Path spool;
+    private Path archive;
+    private SpoolDirectoryIngest ingest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        spool = Files.createDirectories(root.resolve("spool"));
+        archive = Files.createDirectories(root.resolve("archive"));
+        when(chunkWriter.checkpoint(anyString())).thenReturn(Optional.empty());
+        when(chunkWriter.write(anyString(), anyLong(), anyList(), anyLong(), anyLong(), anyLong())).thenReturn(true);
+        ingest = new SpoolDirectoryIngest(chunkWriter, mock(ParkingLotService.class),
+                new SimpleMeterRegistry(), spool, archive, 3L, 1000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+    }
+
+    @Test
+    void givenFileBeingWritten_whenScan_thenWritesCompleteLinesAndKeepsFile() throws Exception {
+        Path file = Files.writeString(spool.resolve("gate-1.csv"), HEADER + FIRST + "B222BB,TRU");
+
+        ingest.scan();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ParkingRecord>> records = ArgumentCaptor.forClass(List.class);
+        long end = (HEADER + FIRST).getBytes(StandardCharsets.UTF_8).length;
+        verify(chunkWriter).write(eq("gate-1.csv"), eq(3L), records.capture(), eq(0L), eq(end), eq(2L));
+        assertEquals(1, records.getValue().size());
+        assertEquals("A111AA", records.getValue().get(0).getLicensePlate());
+        assertEquals(3L, records.getValue().get(0).getLotId());
+        verify(chunkWriter, never()).complete(anyString());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void givenSettledFileWithoutTrailingNewline_whenScan_thenReadsTailAndArchives() throws Exception {
+        String tail = "C333CC,SUV,2025-05-01T11:00:00,";
+        Path file = Files.writeString(spool.resolve("gate-2.csv"), HEADER + FIRST + SECOND + "bad line\n" + tail);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        ingest.scan();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ParkingRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(chunkWriter).write(eq("gate-2.csv"), eq(3L), records.capture(), eq(0L), eq(Files.size(archive.resolve("gate-2.csv"))), eq(5L));
+        assertEquals(List.of("A111AA", "B222BB", "C333CC"),
+                records.getValue().stream().map(ParkingRecord::getLicensePlate).toList());
+        assertEquals(CarType.SUV, records.getValue().get(2).getCarType());
+        verify(chunkWriter).complete("gate-2.csv");
+        verify(chunkWriter).forget("gate-2.csv");
+        assertFalse(Files.exists(file));
+    }
+}
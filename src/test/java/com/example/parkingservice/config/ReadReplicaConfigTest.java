@@ -0,0 +1,100 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.service.ParkingHistoryExporter;
+import com.example.parkingservice.service.ParkingHistoryExporter.ExportFormat;
+import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.ParkingReport;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Полный контекст приложения с двумя H2: основной базой и репликой. Схему на основной создают Hibernate
+ * и Spring Batch, на реплику она копируется скриптом; данные в базах разные, чтобы по ответу было видно,
+ * какая из них его обслужила.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-config-primary;DB_CLOSE_DELAY=-1",
+        "parking.replicas.enabled=true",
+        "parking.replicas.urls=" + ReadReplicaConfigTest.REPLICA_URL,
+        "parking.replicas.lag-query=SELECT 0",
+        "parking.import.enabled=false"
+})
+class ReadReplicaConfigTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-config-replica;DB_CLOSE_DELAY=-1";
+
+    private static final LocalDateTime ENTRY = LocalDateTime.of(2025, 5, 1, 10, 0);
+    private static final String INSERT = """
+            INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)
+            VALUES (?, 1, ?, 'SEDAN', ?, ?, 0)
+            """;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private ParkingHistoryExporter exporter;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+
+        primary.update(INSERT, 1L, "PRIMARY", ENTRY, ENTRY.plusMinutes(10));
+        replica.update(INSERT, 1L, "REPLICA", ENTRY, ENTRY.plusMinutes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.update("DELETE FROM parking_record");
+    }
+
+    @Test
+    void givenReplicasEnabled_whenContextStarts_thenDataSourceIsLazyProxyOverRouting() {
+        assertInstanceOf(LazyConnectionDataSourceProxy.class, dataSource);
+        assertInstanceOf(ReplicaRoutingDataSource.class,
+                ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource());
+    }
+
+    @Test
+    void givenDifferentDataOnReplica_whenGetReport_thenReplicaServesIt() {
+        ParkingReport report = parkingService.getReport(ENTRY.minusMinutes(1), ENTRY.plusMinutes(1), 100);
+
+        assertEquals(30.0, report.avgDurationMinutes());
+    }
+
+    @Test
+    void givenDifferentDataOnReplica_whenExport_thenPagesAreReadFromReplica() throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        exporter.export(ENTRY.minusDays(1), ENTRY.plusDays(1), null, null, ExportFormat.CSV, out);
+
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains(",REPLICA,"));
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains(",PRIMARY,"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.parkingservice.config;
+
+import com.example.parkingservice.config.ReplicaRoutingDataSource.Selection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Основная база и реплики — отдельные H2 в памяти; в каждой таблица node с её именем и replica_lag
+ * с отставанием, которое возвращает запрос проверки.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT seconds FROM replica_lag";
+
+    private final List<DataSource> databases = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(database -> new JdbcTemplate(database).execute("SHUTDOWN"));
+    }
+
+    @Test
+    void givenReadOnlyTransaction_whenQuery_thenReplicaServesItAndWritesStayOnPrimary() {
+        Routing routing = routing(Selection.ROUND_ROBIN, "replica-a");
+
+        assertEquals("primary", routing.readWrite());
+        assertEquals("replica-a", routing.readOnly());
+        assertEquals("primary", routing.jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void givenReplicaLagsBeyondThreshold_whenCheckLag_thenReadsFallBackToPrimaryUntilItCatchesUp() {
+        Routing routing = routing(Selection.ROUND_ROBIN, "replica-a");
+
+        setLag(routing.replicas.get("replica-a"), 30);
+        routing.dataSource.checkLag();
+        assertEquals("primary", routing.readOnly());
+        assertEquals(30.0, routing.dataSource.lagSeconds("replica-a"));
+
+        setLag(routing.replicas.get("replica-a"), 1);
+        routing.dataSource.checkLag();
+        assertEquals("replica-a", routing.readOnly());
+    }
+
+    @Test
+    void givenTwoReplicas_whenRoundRobin_thenReadsAlternateAndSkipUnavailableReplica() {
+        Routing routing = routing(Selection.ROUND_ROBIN, "replica-a", "replica-b");
+
+        assertEquals(List.of("replica-a", "replica-b", "replica-a"),
+                List.of(routing.readOnly(), routing.readOnly(), routing.readOnly()));
+
+        new JdbcTemplate(routing.replicas.get("replica-b")).execute("DROP TABLE replica_lag");
+        routing.dataSource.checkLag();
+        assertEquals(List.of("replica-a", "replica-a"), List.of(routing.readOnly(), routing.readOnly()));
+        assertTrue(Double.isNaN(routing.dataSource.lagSeconds("replica-b")));
+    }
+
+    private Routing routing(Selection selection, String... replicaNames) {
+        DataSource primary = database("primary");
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String name : replicaNames) {
+            replicas.put(name, database(name));
+        }
+        ReplicaRoutingDataSource dataSource =
+                new ReplicaRoutingDataSource(primary, replicas, selection, LAG_QUERY, Duration.ofSeconds(10));
+        dataSource.checkLag();
+        return new Routing(dataSource, replicas, new LazyConnectionDataSourceProxy(dataSource));
+    }
+
+    private DataSource database(String name) {
+        DriverManagerDataSource database = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(32))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        jdbc.execute("CREATE TABLE replica_lag (seconds DOUBLE PRECISION)");
+        jdbc.update("INSERT INTO replica_lag VALUES (0)");
+        databases.add(database);
+        return database;
+    }
+
+    private static void setLag(DataSource replica, double seconds) {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = ?", seconds);
+    }
+
+    private static final class Routing {
+        private final ReplicaRoutingDataSource dataSource;
+        private final Map<String, DataSource> replicas;
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate readWrite;
+        private final TransactionTemplate readOnly;
+
+        Routing(ReplicaRoutingDataSource dataSource, Map<String, DataSource> replicas, DataSource proxy) {
+            this.dataSource = dataSource;
+            this.replicas = replicas;
+            this.jdbc = new JdbcTemplate(proxy);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+            this.readWrite = new TransactionTemplate(transactionManager);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+        }
+
+        String readWrite() {
+            return readWrite.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        String readOnly() {
+            return readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package com.example.parkingservice.controller;
 
+import com.example.parkingservice.batch.ParkingRebillLauncher;
+import com.example.parkingservice.batch.ParkingRebillLauncher.RebillRun;
 import com.example.parkingservice.controller.v1.ParkingController;
 import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.HistoryCursor;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.OccupancyEventStream.OverflowPolicy;
+import com.example.parkingservice.service.OccupancyTimeline;
+import com.example.parkingservice.service.ParkingHistoryExporter;
+import com.example.parkingservice.service.ParkingHistoryExporter.ExportFormat;
 import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.BatchStatus;
+import com.example.parkingservice.service.ParkingService.CarTypeReport;
+import com.example.parkingservice.service.ParkingService.DurationPercentiles;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
 import com.example.parkingservice.service.ParkingService.ParkingReport;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -10,12 +23,19 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +49,15 @@ class ParkingControllerTest {
     @MockBean
     private ParkingService parkingService;
 
+    @MockBean
+    private ParkingHistoryExporter historyExporter;
+
+    @MockBean
+    private OccupancyEventStream eventStream;
+
+    @MockBean
+    private ParkingRebillLauncher rebillLauncher;
+
     @Test
     void givenValidEntryRequest_whenRegisterEntry_thenReturnsEntryTime() throws Exception {
         var now = LocalDateTime.now();
@@ -61,6 +90,7 @@ class ParkingControllerTest {
                 .carType(CarType.SEDAN)
                 .entryTime(now.minusHours(1))
                 .exitTime(now)
+                .fee(10000L)
                 .build();
 
         Mockito.when(parkingService.registerExit("A123BC")).thenReturn(record);
@@ -73,7 +103,8 @@ class ParkingControllerTest {
                                 }
                                 """))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.exitTime").exists());
+                .andExpect(jsonPath("$.exitTime").exists())
+                .andExpect(jsonPath("$.fee").value(10000));
     }
 
     @Test
@@ -92,7 +123,82 @@ class ParkingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.occupied").value(10))
                 .andExpect(jsonPath("$.free").value(90))
-                .andExpect(jsonPath("$.avgDurationMinutes").value(45.5));
+                .andExpect(jsonPath("$.avgDurationMinutes").value(45.5))
+                .andExpect(jsonPath("$.byCarType").doesNotExist());
+    }
+
+    @Test
+    void givenByCarType_whenGetReport_thenAddsBreakdown() throws Exception {
+        Mockito.when(parkingService.getReport(any(), any(), eq(100)))
+                .thenReturn(new ParkingReport(3, 97, 30.0));
+        Mockito.when(parkingService.getCarTypeBreakdown(eq(1L), any(), any()))
+                .thenReturn(List.of(new CarTypeReport(CarType.TRUCK, 2, 5, 90.0, 80.0, 150.0)));
+
+        mockMvc.perform(get("/api/v1/parking/report")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-02T00:00:00")
+                        .param("by_car_type", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.occupied").value(3))
+                .andExpect(jsonPath("$.byCarType[0].carType").value("TRUCK"))
+                .andExpect(jsonPath("$.byCarType[0].p95DurationMinutes").value(150.0));
+    }
+
+    @Test
+    void givenCarType_whenGetPercentiles_thenReturnsSketchQuantiles() throws Exception {
+        Mockito.when(parkingService.getPercentiles(eq(1L), any(), any(), eq(CarType.SEDAN)))
+                .thenReturn(new DurationPercentiles(40, 35.0, 80.0, 180.0, 0.01));
+
+        mockMvc.perform(get("/api/v1/parking/report/percentiles")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-02T00:00:00")
+                        .param("car_type", "SEDAN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(40))
+                .andExpect(jsonPath("$.p90DurationMinutes").value(80.0))
+                .andExpect(jsonPath("$.relativeAccuracy").value(0.01));
+    }
+
+    @Test
+    void givenBucket_whenGetTimeline_thenReturnsOccupancyCurve() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 0, 0);
+        Mockito.when(parkingService.getTimeline(1L, start, start.plusHours(1), Duration.ofMinutes(15)))
+                .thenReturn(new OccupancyTimeline.Report(100, 42, start.plusMinutes(20), 0,
+                        List.of(new OccupancyTimeline.Bucket(start, 12.5, 20, 0))));
+
+        mockMvc.perform(get("/api/v1/parking/report/timeline")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-01T01:00:00")
+                        .param("bucket", "PT15M"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.peakOccupied").value(42))
+                .andExpect(jsonPath("$.peakTime").value("2025-05-01T00:20:00"))
+                .andExpect(jsonPath("$.buckets[0].avgOccupied").value(12.5));
+    }
+
+    @Test
+    void givenPeriod_whenRebill_thenStartsJobAndReturnsAccepted() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 0, 0);
+        Mockito.when(rebillLauncher.rebill(start, start.plusMonths(1)))
+                .thenReturn(new RebillRun(7L, org.springframework.batch.core.BatchStatus.STARTED, 0, 0));
+
+        mockMvc.perform(post("/api/v1/parking/billing/rebill")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-06-01T00:00:00"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.executionId").value(7))
+                .andExpect(jsonPath("$.status").value("STARTED"));
+    }
+
+    @Test
+    void givenLastEventId_whenStreamEvents_thenSubscribesFromIt() throws Exception {
+        Mockito.when(eventStream.subscribe(2L, 41L, OverflowPolicy.DROP)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/parking/events")
+                        .param("lot_id", "2")
+                        .param("overflow", "DROP")
+                        .header("Last-Event-ID", "41"))
+                .andExpect(request().asyncStarted());
     }
 
     @Test
@@ -122,4 +228,125 @@ class ParkingControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void givenExhaustedConnectionPool_whenRegisterExit_thenReturns503() throws Exception {
+        Mockito.when(parkingService.registerExit("A123BC"))
+                .thenThrow(new CannotCreateTransactionException("Connection is not available"));
+
+        mockMvc.perform(post("/api/v1/parking/exit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {
+                                "licensePlate": "A123BC"
+                            }
+                            """))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void givenEntryBatch_whenRegisterEntries_thenReturnsPerItemResults() throws Exception {
+        var now = LocalDateTime.now();
+        Mockito.when(parkingService.registerEntries(List.of(
+                        new EntryCommand("A123BC", CarType.SEDAN),
+                        new EntryCommand("B456DE", CarType.TRUCK))))
+                .thenReturn(List.of(
+                        new BatchResult("A123BC", BatchStatus.ACCEPTED, now),
+                        new BatchResult("B456DE", BatchStatus.DUPLICATE, null)));
+
+        mockMvc.perform(post("/api/v1/parking/entries:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                    {"licensePlate": "A123BC", "carType": "SEDAN"},
+                                    {"licensePlate": "B456DE", "carType": "TRUCK"}
+                                ]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[0].time").exists())
+                .andExpect(jsonPath("$[1].status").value("DUPLICATE"));
+    }
+
+    @Test
+    void givenExitBatch_whenRegisterExits_thenReturnsPerItemResults() throws Exception {
+        Mockito.when(parkingService.registerExits(List.of("Z999XX")))
+                .thenReturn(List.of(new BatchResult("Z999XX", BatchStatus.NOT_FOUND, null)));
+
+        mockMvc.perform(post("/api/v1/parking/exits:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"licensePlate": "Z999XX"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].licensePlate").value("Z999XX"))
+                .andExpect(jsonPath("$[0].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    void givenNullItemInEntryBatch_whenRegisterEntries_thenPassesItAsInvalidItem() throws Exception {
+        Mockito.when(parkingService.registerEntries(Arrays.asList(null, new EntryCommand("A123BC", CarType.SEDAN))))
+                .thenReturn(List.of(
+                        new BatchResult(null, BatchStatus.INVALID, null),
+                        new BatchResult("A123BC", BatchStatus.ACCEPTED, LocalDateTime.now())));
+
+        mockMvc.perform(post("/api/v1/parking/entries:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [null, {"licensePlate": "A123BC", "carType": "SEDAN"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("INVALID"))
+                .andExpect(jsonPath("$[1].status").value("ACCEPTED"));
+    }
+
+    @Test
+    void givenNullItemInExitBatch_whenRegisterExits_thenPassesItAsInvalidItem() throws Exception {
+        Mockito.when(parkingService.registerExits(Arrays.asList("Z999XX", null)))
+                .thenReturn(List.of(
+                        new BatchResult("Z999XX", BatchStatus.NOT_FOUND, null),
+                        new BatchResult(null, BatchStatus.INVALID, null)));
+
+        mockMvc.perform(post("/api/v1/parking/exits:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"licensePlate": "Z999XX"}, null]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].status").value("INVALID"));
+    }
+
+    @Test
+    void givenPeriod_whenExportRecords_thenStreamsNdjson() throws Exception {
+        var start = LocalDateTime.of(2025, 5, 1, 0, 0);
+        var end = LocalDateTime.of(2025, 5, 31, 23, 59);
+        var cursor = new HistoryCursor(LocalDateTime.of(2025, 5, 2, 9, 30), 42);
+        Mockito.when(historyExporter.export(eq(start), eq(end), eq(cursor), isNull(), eq(ExportFormat.NDJSON), any()))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(5, java.io.OutputStream.class)
+                            .write("{\"id\":43}\n".getBytes());
+                    return 1L;
+                });
+
+        var result = mockMvc.perform(get("/api/v1/parking/records")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-31T23:59:00")
+                        .param("cursor", cursor.encode()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":43}\n"));
+    }
+
+    @Test
+    void givenMalformedCursor_whenExportRecords_thenReturns400() throws Exception {
+        mockMvc.perform(get("/api/v1/parking/records")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-31T23:59:00")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.parkingservice.controller;
+
+import com.example.parkingservice.controller.v1.ParkingLotController;
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.OccupancyEventStream;
+import com.example.parkingservice.service.ParkingLotService;
+import com.example.parkingservice.service.ParkingService;
+import com.example.parkingservice.service.ParkingService.ParkingReport;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ParkingLotController.class)
+class ParkingLotControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ParkingLotService lotService;
+
+    @MockBean
+    private ParkingService parkingService;
+
+    @MockBean
+    private OccupancyEventStream eventStream;
+
+    @Test
+    void givenLotRequest_whenSaveLot_thenReturnsLot() throws Exception {
+        Mockito.when(lotService.save(2L, "Северная", 250))
+                .thenReturn(new ParkingLot(2L, "Северная", 250));
+
+        mockMvc.perform(put("/api/v1/lots/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "name": "Северная",
+                                    "capacity": 250
+                                }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.capacity").value(250));
+    }
+
+    @Test
+    void givenLots_whenGetLots_thenReturnsAll() throws Exception {
+        Mockito.when(lotService.findAll()).thenReturn(List.of(
+                new ParkingLot(1L, "Основная парковка", 100),
+                new ParkingLot(2L, "Северная", 250)));
+
+        mockMvc.perform(get("/api/v1/lots"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].name").value("Северная"));
+    }
+
+    @Test
+    void givenLotEntry_whenRegisterEntry_thenPassesLotId() throws Exception {
+        var record = ParkingRecord.builder()
+                .lotId(2L)
+                .licensePlate("A123BC")
+                .carType(CarType.SEDAN)
+                .entryTime(LocalDateTime.now())
+                .build();
+        Mockito.when(parkingService.registerEntry(eq(2L), eq("A123BC"), eq(CarType.SEDAN))).thenReturn(record);
+
+        mockMvc.perform(post("/api/v1/lots/2/entry")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "licensePlate": "A123BC",
+                                    "carType": "SEDAN"
+                                }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entryTime").exists());
+    }
+
+    @Test
+    void givenLotReport_whenGetReport_thenUsesLotCapacity() throws Exception {
+        Mockito.when(parkingService.getReport(eq(2L), any(), any()))
+                .thenReturn(new ParkingReport(10, 240, 30.0));
+
+        mockMvc.perform(get("/api/v1/lots/2/report")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.free").value(240));
+    }
+
+    @Test
+    void givenUnknownLot_whenGetReport_thenReturnsBadRequest() throws Exception {
+        Mockito.when(parkingService.getReport(eq(9L), any(), any()))
+                .thenThrow(new IllegalArgumentException("Парковка не найдена: 9"));
+
+        mockMvc.perform(get("/api/v1/lots/9/report")
+                        .param("start_date", "2025-05-01T00:00:00")
+                        .param("end_date", "2025-05-02T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ParkingRecordArchiveRepositoryTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    @Autowired
+    private ParkingRecordRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Перенести в архив порциями только завершённые до границы парковки")
+    void givenOldAndRecentRecords_whenMoveClosedBefore_thenMovesOnlyOldClosedInChunks() {
+        var archive = new ParkingRecordArchiveRepository(jdbcTemplate);
+        repository.saveAll(List.of(
+                record("A1", LocalDateTime.of(2025, 1, 10, 8, 0), LocalDateTime.of(2025, 1, 10, 9, 0)),
+                record("A2", LocalDateTime.of(2025, 1, 20, 8, 0), LocalDateTime.of(2025, 1, 20, 10, 0)),
+                record("A3", LocalDateTime.of(2025, 2, 5, 8, 0), LocalDateTime.of(2025, 2, 5, 8, 30)),
+                record("A4", LocalDateTime.of(2025, 3, 5, 8, 0), LocalDateTime.of(2025, 3, 5, 9, 0)),
+                record("A5", LocalDateTime.of(2025, 1, 1, 8, 0), null)
+        ));
+        repository.flush();
+
+        assertThat(archive.moveClosedBefore(CUTOFF, 2)).isEqualTo(2);
+        assertThat(archive.moveClosedBefore(CUTOFF, 2)).isEqualTo(1);
+        assertThat(archive.moveClosedBefore(CUTOFF, 2)).isZero();
+
+        assertThat(repository.findAll())
+                .extracting(ParkingRecord::getLicensePlate)
+                .containsExactlyInAnyOrder("A4", "A5");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM parking_record_archive", Long.class))
+                .isEqualTo(3);
+        assertThat(archive.ensurePartitions(CUTOFF)).isZero();
+    }
+
+    @Test
+    @DisplayName("Строка, зафиксированная после выбора границы порции, переносится, а не теряется")
+    void givenRowCommittedAfterChunkBound_whenMoveClosedBefore_thenArchivesEveryDeletedRow() {
+        repository.saveAll(List.of(
+                record("C1", LocalDateTime.of(2025, 1, 10, 8, 0), LocalDateTime.of(2025, 1, 10, 9, 0)),
+                record("C2", LocalDateTime.of(2025, 1, 20, 8, 0), LocalDateTime.of(2025, 1, 20, 10, 0))
+        ));
+        repository.flush();
+        Long nextId = jdbcTemplate.queryForObject("SELECT MAX(id) + 1 FROM parking_record", Long.class);
+        var archive = new ParkingRecordArchiveRepository(new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                T upper = super.queryForObject(sql, requiredType, args);
+                // импорт истории успевает записать закрытую парковку между выбором границы и переносом
+                jdbcTemplate.update("""
+                        INSERT INTO parking_record (id, lot_id, license_plate, car_type, entry_time, exit_time, fee)
+                        VALUES (?, 1, 'C3', 'SEDAN', ?, ?, 100)
+                        """, nextId, LocalDateTime.of(2025, 1, 5, 8, 0), LocalDateTime.of(2025, 1, 5, 9, 0));
+                return upper;
+            }
+        });
+
+        assertThat(archive.moveClosedBefore(CUTOFF, 100)).isEqualTo(3);
+
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(jdbcTemplate.queryForList("SELECT license_plate FROM parking_record_archive", String.class))
+                .containsExactlyInAnyOrder("C1", "C2", "C3");
+    }
+
+    @Test
+    @DisplayName("Отчётные суммы длительностей учитывают архив")
+    void givenArchivedRecords_whenFindDurationTotals_thenIncludesArchive() {
+        var archive = new ParkingRecordArchiveRepository(jdbcTemplate);
+        repository.saveAll(List.of(
+                record("B1", LocalDateTime.of(2025, 1, 10, 8, 0), LocalDateTime.of(2025, 1, 10, 9, 0)),
+                record("B2", LocalDateTime.of(2025, 1, 10, 8, 30), LocalDateTime.of(2025, 3, 10, 8, 30))
+        ));
+        repository.flush();
+
+        archive.moveClosedBefore(CUTOFF, 100);
+        DurationTotals totals = repository.findDurationTotalsBetween(1L,
+                LocalDateTime.of(2025, 1, 10, 0, 0), LocalDateTime.of(2025, 1, 11, 0, 0));
+
+        assertThat(totals.getCount().longValue()).isEqualTo(2);
+        assertThat(totals.getTotal().doubleValue()).isGreaterThan(3600.0);
+    }
+
+    private static ParkingRecord record(String plate, LocalDateTime entry, LocalDateTime exit) {
+        return ParkingRecord.builder()
+                .licensePlate(plate)
+                .carType(CarType.SEDAN)
+                .entryTime(entry)
+                .exitTime(exit)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.parkingservice.repository;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.parking.id.allocation-size=50"
+})
+class ParkingRecordBatchInsertTest {
+
+    private static final int ROWS = 1_000;
+
+    @Autowired
+    private ParkingRecordRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Импорт 1000 записей укладывается в пакетные INSERT и блоки последовательности")
+    void givenThousandRecords_whenSaveAll_thenInsertsAreBatched() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        var now = LocalDateTime.now();
+        List<ParkingRecord> records = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            records.add(ParkingRecord.builder()
+                    .licensePlate("B" + i)
+                    .carType(CarType.SEDAN)
+                    .entryTime(now.minusMinutes(i))
+                    .exitTime(now)
+                    .build());
+        }
+        repository.saveAll(records);
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(ROWS);
+        // 20 пакетов INSERT по 50 строк и 20 обращений к последовательности за блоками по 50 id
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(ROWS / 50 + ROWS / 50);
+    }
+}
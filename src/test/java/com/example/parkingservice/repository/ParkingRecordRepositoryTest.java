@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 class ParkingRecordRepositoryTest {
@@ -104,4 +105,66 @@ class ParkingRecordRepositoryTest {
         assertThat(avg).isNotNull();
         assertThat(avg).isGreaterThan(0.0);
     }
+
+    @Test
+    @DisplayName("Закрыть активную сессию по id одним UPDATE")
+    void givenActiveSession_whenCloseSession_thenSetsExitTimeOnce() {
+        var saved = repository.save(ParkingRecord.builder()
+                .licensePlate("E111EE")
+                .carType(CarType.VAN)
+                .entryTime(LocalDateTime.now().minusHours(1))
+                .build());
+
+        int first = repository.closeSession(saved.getLotId(), saved.getId(), LocalDateTime.now(), 10000L);
+        int second = repository.closeSession(saved.getLotId(), saved.getId(), LocalDateTime.now(), 10000L);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(repository.findByExitTimeIsNull()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Посчитать активные сессии и найти машину в пределах площадки")
+    void givenSessionsOnTwoLots_whenCountActiveByLot_thenGroupsByLot() {
+        var now = LocalDateTime.now();
+        repository.saveAll(List.of(
+                ParkingRecord.builder().lotId(1L).licensePlate("F111FF").carType(CarType.SEDAN).entryTime(now).build(),
+                ParkingRecord.builder().lotId(2L).licensePlate("F111FF").carType(CarType.SEDAN).entryTime(now).build(),
+                ParkingRecord.builder().lotId(2L).licensePlate("G222GG").carType(CarType.SUV).entryTime(now).build()
+        ));
+
+        assertThat(repository.countActiveByLot())
+                .extracting(LotCount::getLotId, LotCount::getCount)
+                .containsExactlyInAnyOrder(tuple(1L, 1L), tuple(2L, 2L));
+        assertThat(repository.findByLotIdAndLicensePlateAndExitTimeIsNull(2L, "G222GG")).isPresent();
+        assertThat(repository.findByLotIdAndLicensePlateAndExitTimeIsNull(1L, "G222GG")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Разбивка по типам машин одним запросом: занятость, среднее и перцентили")
+    void givenMixedTypes_whenFindCarTypeStats_thenGroupsByType() {
+        var start = LocalDateTime.of(2025, 5, 1, 0, 0);
+        repository.saveAll(List.of(
+                ParkingRecord.builder().licensePlate("H1").carType(CarType.SEDAN)
+                        .entryTime(start.plusHours(1)).exitTime(start.plusHours(2)).build(),
+                ParkingRecord.builder().licensePlate("H2").carType(CarType.SEDAN)
+                        .entryTime(start.plusHours(1)).exitTime(start.plusHours(4)).build(),
+                ParkingRecord.builder().licensePlate("H3").carType(CarType.TRUCK)
+                        .entryTime(start.plusHours(2)).build()
+        ));
+        repository.flush();
+
+        List<CarTypeStats> stats = repository.findCarTypeStats(1L, start, start.plusDays(1));
+
+        assertThat(stats).hasSize(2);
+        CarTypeStats sedan = stats.stream().filter(s -> s.getCarType().equals("SEDAN")).findFirst().orElseThrow();
+        assertThat(sedan.getOccupied().longValue()).isZero();
+        assertThat(sedan.getCount().longValue()).isEqualTo(2);
+        assertThat(sedan.getAvgSeconds().doubleValue()).isEqualTo(7200.0);
+        assertThat(sedan.getP50Seconds().doubleValue()).isEqualTo(7200.0);
+        CarTypeStats truck = stats.stream().filter(s -> s.getCarType().equals("TRUCK")).findFirst().orElseThrow();
+        assertThat(truck.getOccupied().longValue()).isEqualTo(1);
+        assertThat(truck.getCount().longValue()).isZero();
+        assertThat(truck.getP95Seconds()).isNull();
+    }
 }
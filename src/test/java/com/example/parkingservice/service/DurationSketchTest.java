@@ -0,0 +1,72 @@
+package com.example.parkingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurationSketchTest {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    @Test
+    void givenSkewedDurations_whenQuantile_thenWithinRelativeAccuracy() {
+        var random = new Random(42);
+        double[] values = new double[50_000];
+        var sketch = new DurationSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(7 + random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : QUANTILES) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertEquals(exact, sketch.quantile(q), exact * DurationSketch.RELATIVE_ACCURACY, "q=" + q);
+        }
+    }
+
+    @Test
+    void givenSplitSamples_whenMerge_thenEqualsSingleSketch() {
+        var whole = new DurationSketch();
+        var first = new DurationSketch();
+        var second = new DurationSketch();
+        for (int seconds = 0; seconds < 10_000; seconds += 7) {
+            whole.add(seconds);
+            (seconds % 2 == 0 ? first : second).add(seconds);
+        }
+
+        first.merge(second);
+
+        assertEquals(whole.count(), first.count());
+        assertArrayEquals(whole.toBytes(), first.toBytes());
+    }
+
+    @Test
+    void givenSketch_whenRoundTripBytes_thenSameQuantiles() {
+        var sketch = new DurationSketch();
+        sketch.add(0.5);
+        sketch.add(60);
+        sketch.add(3600);
+        sketch.add(86_400 * 3);
+
+        var restored = DurationSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.count(), restored.count());
+        assertEquals(0.0, restored.quantile(0.0));
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), restored.quantile(q));
+        }
+    }
+
+    @Test
+    void givenEmptySketch_whenQuantile_thenNull() {
+        var sketch = DurationSketch.fromBytes(null);
+
+        assertTrue(sketch.isEmpty());
+        assertNull(sketch.quantile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+}
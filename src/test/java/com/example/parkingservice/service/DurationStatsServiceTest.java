@@ -0,0 +1,151 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingDurationSketch;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.DurationTotals;
+import com.example.parkingservice.repository.ParkingDurationSketchRepository;
+import com.example.parkingservice.repository.ParkingDurationStatsRepository;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DurationStatsServiceTest {
+
+    @Mock
+    private ParkingDurationStatsRepository statsRepository;
+
+    @Mock
+    private ParkingDurationSketchRepository sketchRepository;
+
+    @Mock
+    private ParkingRecordRepository recordRepository;
+
+    @Mock
+    private ParkingRecordJdbcRepository jdbcRepository;
+
+    @Mock
+    private ReportCache reportCache;
+
+    @InjectMocks
+    private DurationStatsService service;
+
+    @Test
+    void givenClosedRecordsInSameHour_whenRecord_thenAccumulatesOneBucket() {
+        var entry = LocalDateTime.of(2025, 5, 1, 8, 15);
+        var first = ParkingRecord.builder().carType(CarType.SEDAN)
+                .entryTime(entry).exitTime(entry.plusMinutes(30)).build();
+        var second = ParkingRecord.builder().carType(CarType.SEDAN)
+                .entryTime(entry.plusMinutes(10)).exitTime(entry.plusMinutes(100)).build();
+        var active = ParkingRecord.builder().carType(CarType.SEDAN).entryTime(entry).build();
+        when(sketchRepository.insertIfAbsent(eq(1L), eq(LocalDateTime.of(2025, 5, 1, 8, 0)), eq("SEDAN"), any()))
+                .thenReturn(1);
+
+        service.record(List.of(first, second, active));
+
+        verify(statsRepository).accumulate(1L, LocalDateTime.of(2025, 5, 1, 8, 0), "SEDAN", 2,
+                1800.0 + 5400.0, 1800.0, 5400.0);
+        verifyNoMoreInteractions(statsRepository);
+        verify(reportCache).invalidate(1L, entry, entry.plusMinutes(10));
+        verify(sketchRepository, never()).findForUpdate(any(), any(), any());
+    }
+
+    @Test
+    void givenExistingSketchBucket_whenRecord_thenMergesIntoStoredSketch() {
+        var bucket = LocalDateTime.of(2025, 5, 1, 8, 0);
+        var stored = new DurationSketch();
+        stored.add(600);
+        var row = new ParkingDurationSketch(1L, bucket, CarType.SEDAN, stored.toBytes());
+        when(sketchRepository.insertIfAbsent(eq(1L), eq(bucket), eq("SEDAN"), any())).thenReturn(0);
+        when(sketchRepository.findForUpdate(1L, bucket, CarType.SEDAN)).thenReturn(Optional.of(row));
+
+        service.record(ParkingRecord.builder().carType(CarType.SEDAN)
+                .entryTime(bucket.plusMinutes(5)).exitTime(bucket.plusMinutes(65)).build());
+
+        DurationSketch merged = DurationSketch.fromBytes(row.getSketch());
+        assertEquals(2, merged.count());
+        assertEquals(3600.0, merged.quantile(1.0), 3600.0 * DurationSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenWindowSpanningHours_whenSketch_thenMergesBucketsAndFiltersEdgesByCarType() {
+        var start = LocalDateTime.of(2025, 5, 1, 8, 30);
+        var end = LocalDateTime.of(2025, 5, 1, 12, 10);
+        var bucketSketch = new DurationSketch();
+        bucketSketch.add(1200);
+        bucketSketch.add(1800);
+        when(sketchRepository.findByLotIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+                1L, LocalDateTime.of(2025, 5, 1, 9, 0), LocalDateTime.of(2025, 5, 1, 12, 0)))
+                .thenReturn(List.of(
+                        new ParkingDurationSketch(1L, LocalDateTime.of(2025, 5, 1, 9, 0), CarType.SEDAN, bucketSketch.toBytes()),
+                        new ParkingDurationSketch(1L, LocalDateTime.of(2025, 5, 1, 10, 0), CarType.TRUCK, bucketSketch.toBytes())));
+        doAnswer(invocation -> {
+            Consumer<ParkingRecord> consumer = invocation.getArgument(4);
+            consumer.accept(ParkingRecord.builder().carType(CarType.SEDAN)
+                    .entryTime(start).exitTime(start.plusMinutes(10)).build());
+            consumer.accept(ParkingRecord.builder().carType(CarType.TRUCK)
+                    .entryTime(start).exitTime(start.plusMinutes(90)).build());
+            return null;
+        }).when(jdbcRepository).forEachClosed(eq(1L), eq(start), eq(LocalDateTime.of(2025, 5, 1, 9, 0)), eq(false), any());
+
+        DurationSketch sketch = service.sketch(1L, start, end, CarType.SEDAN);
+
+        assertEquals(3, sketch.count());
+        assertEquals(600.0, sketch.quantile(0.0), 600.0 * DurationSketch.RELATIVE_ACCURACY);
+        verify(jdbcRepository).forEachClosed(eq(1L), eq(LocalDateTime.of(2025, 5, 1, 12, 0)), eq(end), eq(true), any());
+    }
+
+    @Test
+    void givenWindowSpanningHours_whenAverage_thenCombinesBucketsAndEdges() {
+        var start = LocalDateTime.of(2025, 5, 1, 8, 30);
+        var end = LocalDateTime.of(2025, 5, 1, 12, 10);
+
+        when(recordRepository.findDurationTotals(1L, start, LocalDateTime.of(2025, 5, 1, 9, 0)))
+                .thenReturn(totals(1, 600));
+        when(statsRepository.sumBuckets(1L, LocalDateTime.of(2025, 5, 1, 9, 0), LocalDateTime.of(2025, 5, 1, 12, 0)))
+                .thenReturn(totals(2, 1800));
+        when(recordRepository.findDurationTotalsBetween(1L, LocalDateTime.of(2025, 5, 1, 12, 0), end))
+                .thenReturn(totals(1, 1200));
+
+        assertEquals(900.0, service.averageSeconds(1L, start, end));
+    }
+
+    @Test
+    void givenWindowInsideOneHour_whenAverage_thenScansRawRowsOnly() {
+        var start = LocalDateTime.of(2025, 5, 1, 8, 5);
+        var end = LocalDateTime.of(2025, 5, 1, 8, 55);
+        when(recordRepository.findDurationTotalsBetween(1L, start, end)).thenReturn(totals(0, 0));
+
+        assertNull(service.averageSeconds(1L, start, end));
+        verifyNoInteractions(statsRepository);
+    }
+
+    private static DurationTotals totals(long count, double total) {
+        return new DurationTotals() {
+            @Override
+            public Number getCount() {
+                return count;
+            }
+
+            @Override
+            public Number getTotal() {
+                return total;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.GateLogCheckpoint;
+import com.example.parkingservice.repository.GateLogCheckpointRepository;
+import com.example.parkingservice.service.GateEventLog.GateEvent;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GateEventFlusherTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    @Mock
+    private ParkingService parkingService;
+
+    @Mock
+    private GateLogCheckpointRepository checkpointRepository;
+
+    @InjectMocks
+    private GateEventFlusher flusher;
+
+    @Test
+    void givenMixedEvents_whenApply_thenGroupsRunsInOrderWithEventTimesAndSavesCheckpoint() {
+        List<GateEvent> events = List.of(
+                GateEvent.entry(1L, "A1", CarType.SEDAN, TIME),
+                GateEvent.entry(1L, "A2", CarType.TRUCK, TIME.plusSeconds(1)),
+                GateEvent.exit(1L, "A1", TIME.plusSeconds(2)),
+                GateEvent.entry(2L, "A3", CarType.SEDAN, TIME.plusSeconds(3)));
+
+        flusher.apply("gate", events, 420L);
+
+        InOrder order = inOrder(parkingService, checkpointRepository);
+        order.verify(parkingService).registerEntries(1L,
+                List.of(new EntryCommand("A1", CarType.SEDAN), new EntryCommand("A2", CarType.TRUCK)),
+                List.of(TIME, TIME.plusSeconds(1)));
+        order.verify(parkingService).registerExits(1L, List.of("A1"), List.of(TIME.plusSeconds(2)));
+        order.verify(parkingService).registerEntries(2L,
+                List.of(new EntryCommand("A3", CarType.SEDAN)), List.of(TIME.plusSeconds(3)));
+        ArgumentCaptor<GateLogCheckpoint> checkpoint = ArgumentCaptor.forClass(GateLogCheckpoint.class);
+        order.verify(checkpointRepository).save(checkpoint.capture());
+        assertEquals("gate", checkpoint.getValue().getLogName());
+        assertEquals(420L, checkpoint.getValue().getFlushedOffset());
+    }
+}
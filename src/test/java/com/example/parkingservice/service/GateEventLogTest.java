@@ -0,0 +1,127 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.GateEventLog.GateEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateEventLogTest {
+
+    private static final int SEGMENT_SIZE = GateEventLog.MIN_SEGMENT_SIZE;
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 5, 1, 8, 0, 0, 123_456_789);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void givenEventsAcrossSegments_whenReopen_thenReplaysAllInOrder() {
+        var log = new GateEventLog(dir, SEGMENT_SIZE, false);
+        List<GateEvent> written = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            GateEvent event = i % 2 == 0
+                    ? GateEvent.entry(1L, "A" + i, CarType.SEDAN, TIME.plusSeconds(i))
+                    : GateEvent.exit(2L, "A" + (i - 1), TIME.plusSeconds(i));
+            log.append(event);
+            written.add(event);
+        }
+        long end = log.endOffset();
+        log.close();
+
+        var reopened = new GateEventLog(dir, SEGMENT_SIZE, false);
+        List<GateEvent> read = new ArrayList<>();
+        long offset = reopened.startOffset();
+        while (offset < reopened.endOffset()) {
+            offset = reopened.read(offset, 64, read);
+        }
+
+        assertTrue(end > SEGMENT_SIZE);
+        assertEquals(end, reopened.endOffset());
+        assertEquals(written, read);
+    }
+
+    @Test
+    void givenConcurrentAppendersWithFsync_whenReopen_thenEveryEventIsReadOnce() throws Exception {
+        var log = new GateEventLog(dir, SEGMENT_SIZE, true);
+        int threads = 8;
+        int perThread = 100;
+        List<Thread> appenders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "-";
+            Thread appender = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.append(GateEvent.entry(1L, prefix + i, CarType.SEDAN, TIME));
+                }
+            });
+            appender.start();
+            appenders.add(appender);
+        }
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        log.close();
+
+        List<GateEvent> read = new ArrayList<>();
+        var reopened = new GateEventLog(dir, SEGMENT_SIZE, true);
+        reopened.read(reopened.startOffset(), Integer.MAX_VALUE, read);
+        assertEquals(threads * perThread, read.size());
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "-";
+            assertEquals(IntStream.range(0, perThread).mapToObj(i -> prefix + i).toList(),
+                    read.stream().map(GateEvent::licensePlate).filter(plate -> plate.startsWith(prefix)).toList());
+        }
+    }
+
+    @Test
+    void givenFlushedSegments_whenDeleteBefore_thenKeepsUnflushedTail() throws IOException {
+        var log = new GateEventLog(dir, SEGMENT_SIZE, false);
+        for (int i = 0; i < 300; i++) {
+            log.append(GateEvent.entry(1L, "B" + i, CarType.TRUCK, TIME));
+        }
+        List<GateEvent> head = new ArrayList<>();
+        long flushed = log.read(log.startOffset(), 150, head);
+
+        log.deleteBefore(flushed);
+
+        List<GateEvent> tail = new ArrayList<>();
+        log.read(flushed, Integer.MAX_VALUE, tail);
+        assertEquals(150, tail.size());
+        assertEquals("B150", tail.get(0).licensePlate());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void givenTornLastFrame_whenReopen_thenDropsItAndAppendsAfterLastGoodFrame() throws IOException {
+        var log = new GateEventLog(dir, SEGMENT_SIZE, false);
+        log.append(GateEvent.entry(1L, "C1", CarType.SEDAN, TIME));
+        long good = log.endOffset();
+        log.append(GateEvent.entry(1L, "C2", CarType.SEDAN, TIME));
+        log.close();
+        try (var file = new RandomAccessFile(dir.resolve(String.format("%020d.log", 0)).toFile(), "rw")) {
+            file.seek(good + 12);
+            file.write(0x7F);
+        }
+
+        var reopened = new GateEventLog(dir, SEGMENT_SIZE, false);
+        assertEquals(good, reopened.endOffset());
+        reopened.append(GateEvent.exit(1L, "C1", TIME.plusHours(1)));
+
+        List<GateEvent> read = new ArrayList<>();
+        reopened.read(0, 10, read);
+        assertEquals(List.of("C1", "C1"), read.stream().map(GateEvent::licensePlate).toList());
+        assertNull(read.get(1).carType());
+    }
+}
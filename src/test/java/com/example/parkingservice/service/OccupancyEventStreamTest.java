@@ -0,0 +1,177 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.service.OccupancyEventStream.OverflowPolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyEventStreamTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    @Mock
+    private OccupancyTracker occupancyTracker;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private OccupancyEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new OccupancyEventStream(new ObjectMapper().findAndRegisterModules(), occupancyTracker,
+                registry, tasks::add, 4, Duration.ofMinutes(1), Duration.ofMillis(50)) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                var emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @Test
+    void givenLastEventIdInBuffer_whenSubscribe_thenResumesWithLotFilterAndSharedFrames() {
+        stream.publishEntries(1L, List.of(record("A1")));
+        stream.publishEntries(2L, List.of(record("B1")));
+        stream.publishExits(1L, List.of(record("A1")));
+
+        stream.subscribe(1L, -1L, OverflowPolicy.COALESCE);
+        stream.subscribe(null, 1L, OverflowPolicy.COALESCE);
+        runTasks();
+
+        List<String> lotOne = emitters.get(0).frames;
+        assertEquals(2, lotOne.size());
+        assertTrue(lotOne.get(0).startsWith("id:0\nevent:entry\ndata:"));
+        assertTrue(lotOne.get(1).startsWith("id:2\nevent:exit\ndata:"));
+        assertTrue(lotOne.get(1).contains("\"delta\":-1"));
+        assertEquals(List.of(lotOne.get(1)), emitters.get(1).frames);
+        assertSame(emitters.get(0).payloads.get(1), emitters.get(1).payloads.get(0));
+    }
+
+    @Test
+    void givenSubscriberLappedByBuffer_whenCoalesce_thenSendsSnapshotInsteadOfMissedEvents() {
+        when(occupancyTracker.snapshot()).thenReturn(Map.of(1L, 7L));
+        stream.subscribe(1L, null, OverflowPolicy.COALESCE);
+        for (int i = 0; i < 6; i++) {
+            stream.publishEntries(1L, List.of(record("C" + i)));
+        }
+
+        runTasks();
+
+        List<String> frames = emitters.get(0).frames;
+        assertEquals(2, frames.size());
+        assertTrue(frames.get(0).contains("event:occupancy"));
+        assertTrue(frames.get(1).contains("event:occupancy"));
+        assertTrue(frames.get(1).contains("\"occupied\":7"));
+    }
+
+    @Test
+    void givenSubscriberLappedByBuffer_whenDrop_thenReportsSkippedCount() {
+        stream.subscribe(null, 0L, OverflowPolicy.DROP);
+        for (int i = 0; i < 6; i++) {
+            stream.publishEntries(1L, List.of(record("D" + i)));
+        }
+
+        runTasks();
+
+        assertEquals(List.of("event:dropped\ndata:{\"skipped\":6}\n\n"), emitters.get(0).frames);
+    }
+
+    @Test
+    void givenSubscriberStuckInSend_whenEvictStalled_thenDisconnectsItAndOthersKeepReceiving() throws Exception {
+        stream.subscribe(null, null, OverflowPolicy.DROP);
+        stream.subscribe(null, null, OverflowPolicy.DROP);
+        RecordingEmitter stuck = emitters.get(0);
+        stuck.stall = new CountDownLatch(1);
+        stream.publishEntries(1L, List.of(record("E1")));
+
+        Thread sender = new Thread(tasks.remove(0));
+        sender.start();
+        assertTrue(stuck.entered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        stream.evictStalled();
+        runTasks();
+
+        assertEquals(1, emitters.get(1).frames.size());
+        assertEquals(1.0, registry.get("parking.events.stalled").counter().count());
+        assertEquals(1.0, registry.get("parking.events.subscribers").gauge().value());
+
+        stuck.stall.countDown();
+        sender.join(5_000);
+        assertTrue(stuck.completed);
+        stream.publishEntries(1L, List.of(record("E2")));
+        runTasks();
+        assertEquals(1, stuck.frames.size());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static ParkingRecord record(String plate) {
+        return ParkingRecord.builder()
+                .lotId(1L)
+                .licensePlate(plate)
+                .carType(CarType.SEDAN)
+                .entryTime(TIME)
+                .exitTime(TIME.plusHours(1))
+                .build();
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<Set<DataWithMediaType>> payloads = new ArrayList<>();
+        private final List<String> frames = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch stall;
+        private volatile boolean completed;
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            entered.countDown();
+            if (stall != null) {
+                try {
+                    stall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            capture(items);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        private synchronized void capture(Set<DataWithMediaType> items) {
+            payloads.add(items);
+            frames.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.parkingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyTimelineTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 8, 0);
+
+    @Test
+    void givenEntriesAndExits_whenSweep_thenAveragesPeaksAndTimeAtCapacityPerBucket() {
+        OccupancyTimeline timeline = new OccupancyTimeline(START, START.plusMinutes(30), Duration.ofMinutes(10), 2, 1);
+        timeline.accept(START.plusMinutes(5), 1);
+        // въезд и выезд в один момент: мгновенная тройка пиком не считается
+        timeline.accept(START.plusMinutes(7), 1);
+        timeline.accept(START.plusMinutes(7), -1);
+        timeline.accept(START.plusMinutes(15), -1);
+        timeline.accept(START.plusMinutes(25), 1);
+
+        OccupancyTimeline.Report report = timeline.finish();
+
+        assertEquals(2, report.peakOccupied());
+        assertEquals(START.plusMinutes(5), report.peakTime());
+        assertEquals(900, report.secondsAtCapacity());
+        assertEquals(3, report.buckets().size());
+        for (OccupancyTimeline.Bucket bucket : report.buckets()) {
+            assertEquals(1.5, bucket.avgOccupied(), 1e-9);
+            assertEquals(2, bucket.peakOccupied());
+            assertEquals(300, bucket.secondsAtCapacity());
+        }
+        assertEquals(START.plusMinutes(20), report.buckets().get(2).start());
+    }
+
+    @Test
+    void givenWindowNotMultipleOfBucket_whenSweep_thenLastBucketIsShorterAndQuietBucketsKeepOccupancy() {
+        OccupancyTimeline timeline = new OccupancyTimeline(START, START.plusMinutes(25), Duration.ofMinutes(10), 100, 4);
+        timeline.accept(START.plusMinutes(22), -1);
+
+        OccupancyTimeline.Report report = timeline.finish();
+
+        assertEquals(3, report.buckets().size());
+        assertEquals(4.0, report.buckets().get(1).avgOccupied(), 1e-9);
+        // последняя корзина — 5 минут: 2 минуты по 4 и 3 минуты по 3
+        assertEquals(3.4, report.buckets().get(2).avgOccupied(), 1e-9);
+        assertEquals(4, report.buckets().get(2).peakOccupied());
+        assertEquals(0, report.secondsAtCapacity());
+    }
+
+    @Test
+    void givenOutOfOrderEvent_whenAccept_thenRejected() {
+        OccupancyTimeline timeline = new OccupancyTimeline(START, START.plusHours(1), Duration.ofMinutes(5), 10, 0);
+        timeline.accept(START.plusMinutes(30), 1);
+
+        assertThrows(IllegalArgumentException.class, () -> timeline.accept(START.plusMinutes(10), 1));
+    }
+}
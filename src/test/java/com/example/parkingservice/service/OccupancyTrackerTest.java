@@ -0,0 +1,114 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.repository.LotCount;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyTrackerTest {
+
+    @Mock
+    private ParkingRecordRepository repository;
+
+    @InjectMocks
+    private OccupancyTracker tracker;
+
+    @Test
+    void givenSeededCount_whenEntriesAndExits_thenTracksWithoutQueries() {
+        when(repository.countActiveByLot()).thenReturn(List.of(lotCount(1L, 5L)));
+        tracker.seed();
+
+        tracker.onEntry(1L);
+        tracker.onEntry(1L);
+        tracker.onExit(1L);
+
+        assertEquals(6, tracker.getOccupied(1L));
+        verify(repository, times(1)).countActiveByLot();
+    }
+
+    @Test
+    void givenDrift_whenReconcile_thenResetsToDatabaseCount() {
+        tracker.onEntry(1L);
+        tracker.onEntry(2L);
+        when(repository.countActiveByLot()).thenReturn(List.of(lotCount(1L, 3L)));
+
+        tracker.reconcile();
+
+        assertEquals(3, tracker.getOccupied(1L));
+        assertEquals(0, tracker.getOccupied(2L));
+    }
+
+    @Test
+    void givenEntryCommittingDuringReconcile_whenReconcile_thenWaitsForItsDeltaAndCountsItOnce() throws Exception {
+        when(repository.countActiveByLot()).thenReturn(List.of(lotCount(1L, 1L)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tracker.onEntry(1L);
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+            Thread reconcile = new Thread(tracker::reconcile);
+            reconcile.start();
+            while (reconcile.getState() != Thread.State.WAITING && reconcile.isAlive()) {
+                Thread.onSpinWait();
+            }
+            verify(repository, never()).countActiveByLot();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            reconcile.join();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, tracker.getOccupied(1L));
+    }
+
+    @Test
+    void givenSeveralLots_whenEntries_thenCountsAreSeparate() {
+        tracker.onEntries(1L, 4);
+        tracker.onEntry(7L);
+
+        assertEquals(4, tracker.getOccupied(1L));
+        assertEquals(1, tracker.getOccupied(7L));
+        assertEquals(0, tracker.getOccupied(8L));
+    }
+
+    @Test
+    void givenBoundRegistry_whenNewLotEntry_thenPublishesOccupancyGauge() {
+        var registry = new SimpleMeterRegistry();
+        tracker.onEntry(1L);
+        tracker.bindTo(registry);
+
+        tracker.onEntries(2L, 3);
+
+        assertEquals(1.0, registry.get("parking.occupancy").tag("lot", "1").gauge().value());
+        assertEquals(3.0, registry.get("parking.occupancy").tag("lot", "2").gauge().value());
+    }
+
+    private static LotCount lotCount(long lotId, long count) {
+        return new LotCount() {
+            @Override
+            public Long getLotId() {
+                return lotId;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+}
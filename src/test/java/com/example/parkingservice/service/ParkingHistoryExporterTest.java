@@ -0,0 +1,118 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
+import com.example.parkingservice.repository.ParkingRecordRepository;
+import com.example.parkingservice.service.ParkingHistoryExporter.ExportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class ParkingHistoryExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 5, 31, 23, 59);
+
+    @Autowired
+    private ParkingRecordRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ParkingHistoryExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        // страница из двух строк, чтобы выгрузка гарантированно шла в несколько запросов
+        exporter = new ParkingHistoryExporter(new ParkingRecordJdbcRepository(jdbcTemplate, null), objectMapper,
+                transactionManager, 2);
+
+        var sameTime = START.plusDays(1);
+        repository.saveAllAndFlush(List.of(
+                record("A1", START.plusDays(3), null),
+                record("A2", sameTime, sameTime.plusHours(2)),
+                record("A3", sameTime, sameTime.plusHours(3)),
+                record("A4", START.plusDays(2), START.plusDays(2).plusHours(1)),
+                record("A5", START.plusDays(4), null),
+                record("OUT", START.minusDays(1), START)));
+    }
+
+    @Test
+    void givenPeriod_whenExportNdjson_thenAllRecordsInKeyOrder() throws Exception {
+        List<JsonNode> lines = exportNdjson(null, null);
+
+        assertThat(lines).extracting(line -> line.get("licensePlate").asText())
+                .containsExactly("A2", "A3", "A4", "A1", "A5");
+        assertThat(lines.get(4).get("exitTime").isNull()).isTrue();
+    }
+
+    @Test
+    void givenCursorFromLine_whenExport_thenResumesAfterIt() throws Exception {
+        List<JsonNode> firstPart = exportNdjson(null, 2L);
+        assertThat(firstPart).hasSize(2);
+
+        var cursor = HistoryCursor.decode(firstPart.get(1).get("cursor").asText());
+        List<JsonNode> rest = exportNdjson(cursor, null);
+
+        assertThat(rest).extracting(line -> line.get("licensePlate").asText())
+                .containsExactly("A4", "A1", "A5");
+    }
+
+    @Test
+    void givenCsvFormat_whenExport_thenHeaderAndRows() throws Exception {
+        var out = new ByteArrayOutputStream();
+        long written = exporter.export(START, END, null, null, ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(5);
+        assertThat(lines[0]).isEqualTo("id,lotId,licensePlate,carType,entryTime,exitTime,cursor");
+        assertThat(lines).hasSize(6);
+        assertThat(lines[1]).contains(",1,A2,SEDAN,2025-05-02T00:00:00,2025-05-02T02:00:00,");
+    }
+
+    @Test
+    void givenMalformedToken_whenDecode_thenIllegalArgument() {
+        assertThatThrownBy(() -> HistoryCursor.decode("%%%"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<JsonNode> exportNdjson(HistoryCursor cursor, Long limit) throws Exception {
+        var out = new ByteArrayOutputStream();
+        exporter.export(START, END, cursor, limit, ExportFormat.NDJSON, out);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static ParkingRecord record(String plate, LocalDateTime entryTime, LocalDateTime exitTime) {
+        return ParkingRecord.builder()
+                .licensePlate(plate)
+                .carType(CarType.SEDAN)
+                .entryTime(entryTime)
+                .exitTime(exitTime)
+                .build();
+    }
+}
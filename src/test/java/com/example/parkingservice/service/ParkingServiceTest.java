@@ -1,15 +1,31 @@
 package com.example.parkingservice.service;
 
 import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.entity.ParkingLot;
 import com.example.parkingservice.entity.ParkingRecord;
+import com.example.parkingservice.repository.ActiveSessionView;
+import com.example.parkingservice.repository.CarTypeStats;
+import com.example.parkingservice.repository.ParkingRecordJdbcRepository;
 import com.example.parkingservice.repository.ParkingRecordRepository;
+import com.example.parkingservice.service.ParkingService.BatchResult;
+import com.example.parkingservice.service.ParkingService.BatchStatus;
+import com.example.parkingservice.service.ParkingService.CarTypeReport;
+import com.example.parkingservice.service.ParkingService.EntryCommand;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,28 +36,80 @@ class ParkingServiceTest {
     @Mock
     private ParkingRecordRepository repository;
 
+    @Mock
+    private OccupancyTracker occupancyTracker;
+
+    @Mock
+    private DurationStatsService durationStatsService;
+
+    @Mock
+    private ActiveSessionCache activeSessionCache;
+
+    @Mock
+    private ParkingRecordJdbcRepository jdbcRepository;
+
+    @Mock
+    private ReportCache reportCache;
+
+    @Mock
+    private ParkingLotService lotService;
+
+    @Mock
+    private OccupancyEventStream eventStream;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ParkingMetrics metrics = new ParkingMetrics(meterRegistry);
+
+    // 36 ₽ в час круглые сутки: копейка в секунду
+    @Spy
+    private TariffEngine tariffEngine = new TariffEngine(Arrays.stream(CarType.values())
+            .collect(Collectors.toMap(Function.identity(), carType -> TariffEngine.Tariff.parse("00:00=3600", 0))));
+
     @InjectMocks
     private ParkingService service;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxBatchItems", 1000);
+        lenient().when(lotService.require(anyLong()))
+                .thenAnswer(invocation -> new ParkingLot(invocation.getArgument(0), "Площадка", 100));
+    }
+
     @Test
-    void givenPlateAndType_whenRegisterEntry_thenSavesRecord() {
+    void givenPlateAndType_whenRegisterEntry_thenInsertsRecord() {
         String plate = "A123BC";
         CarType type = CarType.SEDAN;
 
-        ArgumentCaptor<ParkingRecord> captor = ArgumentCaptor.forClass(ParkingRecord.class);
-        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(jdbcRepository.nextId()).thenReturn(1L);
+        when(repository.insertIfAbsent(eq(1L), eq(1L), eq(plate), eq("SEDAN"), any())).thenReturn(Optional.of(1L));
 
         ParkingRecord result = service.registerEntry(plate, type);
 
-        verify(repository).save(captor.capture());
-        ParkingRecord saved = captor.getValue();
+        assertEquals(1L, result.getId());
+        assertEquals(plate, result.getLicensePlate());
+        assertEquals(type, result.getCarType());
+        assertNotNull(result.getEntryTime());
+        assertNull(result.getExitTime());
 
-        assertEquals(plate, saved.getLicensePlate());
-        assertEquals(type, saved.getCarType());
-        assertNotNull(saved.getEntryTime());
-        assertNull(saved.getExitTime());
+        verify(repository, never()).save(any());
+        verify(activeSessionCache).put(result);
+        verify(occupancyTracker).onEntry(1L);
+        assertEquals(1, meterRegistry.get(ParkingMetrics.ENTRY)
+                .tags("car_type", "SEDAN", "outcome", "success").timer().count());
+    }
 
-        assertEquals(saved, result);
+    @Test
+    void givenCarAlreadyParked_whenRegisterEntry_thenThrowsException() {
+        when(jdbcRepository.nextId()).thenReturn(2L);
+        when(repository.insertIfAbsent(eq(2L), eq(1L), eq("A123BC"), eq("SEDAN"), any())).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> service.registerEntry("A123BC", CarType.SEDAN));
+        verify(activeSessionCache, never()).put(any());
+        verify(occupancyTracker, never()).onEntry(anyLong());
+        assertEquals(1, meterRegistry.get(ParkingMetrics.ENTRY)
+                .tags("car_type", "SEDAN", "outcome", "rejected").timer().count());
     }
 
     @Test
@@ -53,22 +121,69 @@ class ParkingServiceTest {
                 .entryTime(LocalDateTime.now().minusHours(2))
                 .build();
 
-        when(repository.findByLicensePlateAndExitTimeIsNull(plate)).thenReturn(Optional.of(existing));
+        when(repository.findByLotIdAndLicensePlateAndExitTimeIsNull(1L, plate)).thenReturn(Optional.of(existing));
         when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         ParkingRecord updated = service.registerExit(plate);
 
         assertNotNull(updated.getExitTime());
         verify(repository).save(existing);
+        verify(durationStatsService).record(existing);
+        verify(occupancyTracker).onExit(1L);
+    }
+
+    @Test
+    void givenCachedSession_whenRegisterExit_thenUpdatesByIdWithoutSelect() {
+        String plate = "A123BC";
+        var entryTime = LocalDateTime.now().minusHours(2);
+        when(activeSessionCache.get(1L, plate))
+                .thenReturn(Optional.of(new ActiveSessionCache.ActiveSession(42L, 1L, CarType.SUV, entryTime)));
+        when(repository.closeSession(eq(1L), eq(42L), any(), eq(7200L))).thenReturn(1);
+
+        ParkingRecord closed = service.registerExit(plate);
+
+        assertEquals(42L, closed.getId());
+        assertEquals(entryTime, closed.getEntryTime());
+        assertNotNull(closed.getExitTime());
+        assertEquals(7200L, closed.getFee());
+        verify(repository, never()).findByLotIdAndLicensePlateAndExitTimeIsNull(anyLong(), any());
+        verify(repository, never()).save(any());
+        verify(activeSessionCache).evict(1L, plate);
+        verify(durationStatsService).record(closed);
+    }
+
+    @Test
+    void givenStaleCachedSession_whenRegisterExit_thenFallsBackToLookup() {
+        String plate = "A123BC";
+        ParkingRecord existing = ParkingRecord.builder()
+                .id(7L)
+                .licensePlate(plate)
+                .carType(CarType.SUV)
+                .entryTime(LocalDateTime.now().minusHours(1))
+                .build();
+        when(activeSessionCache.get(1L, plate))
+                .thenReturn(Optional.of(new ActiveSessionCache.ActiveSession(3L, 1L, CarType.SUV, existing.getEntryTime())));
+        when(repository.closeSession(eq(1L), eq(3L), any(), anyLong())).thenReturn(0);
+        when(repository.findByLotIdAndLicensePlateAndExitTimeIsNull(1L, plate)).thenReturn(Optional.of(existing));
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ParkingRecord closed = service.registerExit(plate);
+
+        assertEquals(7L, closed.getId());
+        assertNotNull(closed.getExitTime());
+        assertEquals(3600L, closed.getFee());
     }
 
     @Test
     void givenNoMatchingCar_whenRegisterExit_thenThrowsException() {
         String plate = "X999ZZ";
-        lenient().when(repository.findByLicensePlateAndExitTimeIsNull(plate)).thenReturn(Optional.empty());
+        lenient().when(repository.findByLotIdAndLicensePlateAndExitTimeIsNull(1L, plate)).thenReturn(Optional.empty());
 
         assertThrows(IllegalArgumentException.class, () -> service.registerExit(plate));
         verify(repository, never()).save(any());
+        verify(occupancyTracker, never()).onExit(anyLong());
+        assertEquals(1, meterRegistry.get(ParkingMetrics.EXIT)
+                .tags("car_type", "unknown", "outcome", "rejected").timer().count());
     }
 
     @Test
@@ -76,13 +191,132 @@ class ParkingServiceTest {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
         LocalDateTime end = LocalDateTime.now();
 
-        when(repository.countByExitTimeIsNull()).thenReturn(20L);
-        when(repository.findAverageParkingDurationInSeconds(start, end)).thenReturn(3600.0);
+        when(occupancyTracker.getOccupied(1L)).thenReturn(20L);
+        when(durationStatsService.averageSeconds(1L, start, end)).thenReturn(3600.0);
+        when(reportCache.averageSeconds(eq(1L), eq(start), eq(end), any()))
+                .thenAnswer(invocation -> invocation.<BiFunction<LocalDateTime, LocalDateTime, Double>>getArgument(3)
+                        .apply(start, end));
 
         var report = service.getReport(start, end, 100);
 
         assertEquals(20, report.occupied());
         assertEquals(80, report.free());
         assertEquals(60.0, report.avgDurationMinutes());
+        verify(repository, never()).countByExitTimeIsNull();
+        verify(repository, never()).findAverageParkingDurationInSeconds(any(), any());
+    }
+
+    @Test
+    void givenLot_whenGetReport_thenUsesLotCapacity() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+        when(lotService.require(2L)).thenReturn(new ParkingLot(2L, "Вторая", 50));
+        when(occupancyTracker.getOccupied(2L)).thenReturn(5L);
+        when(reportCache.averageSeconds(eq(2L), eq(start), eq(end), any())).thenReturn(null);
+
+        var report = service.getReport(2L, start, end);
+
+        assertEquals(5, report.occupied());
+        assertEquals(45, report.free());
+        assertEquals(0.0, report.avgDurationMinutes());
+    }
+
+    @Test
+    void givenUnknownLot_whenRegisterEntry_thenThrowsException() {
+        when(lotService.require(9L)).thenThrow(new IllegalArgumentException("Парковка не найдена: 9"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.registerEntry(9L, "A123BC", CarType.SEDAN));
+        verifyNoInteractions(jdbcRepository);
+    }
+
+    @Test
+    void givenGroupedStats_whenGetCarTypeBreakdown_thenReturnsEveryTypeInMinutes() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+        CarTypeStats truck = mock(CarTypeStats.class);
+        when(truck.getCarType()).thenReturn("TRUCK");
+        when(truck.getOccupied()).thenReturn(2L);
+        when(truck.getCount()).thenReturn(4L);
+        when(truck.getAvgSeconds()).thenReturn(5400.0);
+        when(truck.getP50Seconds()).thenReturn(3600.0);
+        when(truck.getP95Seconds()).thenReturn(10800.0);
+        when(repository.findCarTypeStats(1L, start, end)).thenReturn(List.of(truck));
+
+        List<CarTypeReport> breakdown = service.getCarTypeBreakdown(1L, start, end);
+
+        assertEquals(CarType.values().length, breakdown.size());
+        assertEquals(new CarTypeReport(CarType.TRUCK, 2, 4, 90.0, 60.0, 180.0),
+                breakdown.get(CarType.TRUCK.ordinal()));
+        assertEquals(new CarTypeReport(CarType.SEDAN, 0, 0, 0.0, 0.0, 0.0),
+                breakdown.get(CarType.SEDAN.ordinal()));
+        verify(repository, times(1)).findCarTypeStats(anyLong(), any(), any());
+    }
+
+    @Test
+    void givenEntryBatch_whenRegisterEntries_thenReportsEachItem() {
+        when(jdbcRepository.nextIds(2)).thenReturn(List.of(10L, 11L));
+        when(jdbcRepository.insertIfAbsent(anyList())).thenReturn(new int[]{1, 0});
+
+        List<BatchResult> results = service.registerEntries(List.of(
+                new EntryCommand("A123BC", CarType.SEDAN),
+                new EntryCommand(" ", CarType.SEDAN),
+                new EntryCommand("B456DE", CarType.TRUCK)));
+
+        assertEquals(BatchStatus.ACCEPTED, results.get(0).status());
+        assertNotNull(results.get(0).time());
+        assertEquals(BatchStatus.INVALID, results.get(1).status());
+        assertEquals(BatchStatus.DUPLICATE, results.get(2).status());
+        verify(activeSessionCache, times(1)).put(any());
+        verify(occupancyTracker).onEntries(1L, 1);
+        verify(eventStream).publishEntries(eq(1L), argThat(records -> records.size() == 1
+                && records.iterator().next().getLicensePlate().equals("A123BC")));
+    }
+
+    @Test
+    void givenNullItemInEntryBatch_whenRegisterEntries_thenRejectsItAsInvalid() {
+        when(jdbcRepository.nextIds(1)).thenReturn(List.of(10L));
+        when(jdbcRepository.insertIfAbsent(anyList())).thenReturn(new int[]{1});
+
+        List<BatchResult> results = service.registerEntries(Arrays.asList(
+                null, new EntryCommand("A123BC", CarType.SEDAN)));
+
+        assertEquals(new BatchResult(null, BatchStatus.INVALID, null), results.get(0));
+        assertEquals(BatchStatus.ACCEPTED, results.get(1).status());
+    }
+
+    @Test
+    void givenExitBatch_whenRegisterExits_thenUsesCacheThenDatabase() {
+        var entryTime = LocalDateTime.now().minusHours(1);
+        when(activeSessionCache.get(1L, "A123BC"))
+                .thenReturn(Optional.of(new ActiveSessionCache.ActiveSession(1L, 1L, CarType.SEDAN, entryTime)));
+        when(jdbcRepository.closeSessions(eq(1L), eq(List.of(1L)), any(), eq(List.of(3600L)))).thenReturn(new int[]{1});
+        when(jdbcRepository.closeSessions(eq(1L), eq(List.of(2L)), any(), eq(List.of(3600L)))).thenReturn(new int[]{1});
+        ActiveSessionView view = mock(ActiveSessionView.class);
+        when(view.getId()).thenReturn(2L);
+        when(view.getLicensePlate()).thenReturn("B456DE");
+        when(view.getCarType()).thenReturn(CarType.VAN);
+        when(view.getEntryTime()).thenReturn(entryTime);
+        when(repository.findByLotIdAndLicensePlateInAndExitTimeIsNull(eq(1L), any())).thenReturn(List.of(view));
+
+        List<BatchResult> results = service.registerExits(List.of("A123BC", "B456DE", "Z999XX"));
+
+        assertEquals(BatchStatus.ACCEPTED, results.get(0).status());
+        assertEquals(BatchStatus.ACCEPTED, results.get(1).status());
+        assertEquals(BatchStatus.NOT_FOUND, results.get(2).status());
+        verify(activeSessionCache).evict(1L, "A123BC");
+        verify(activeSessionCache).evict(1L, "B456DE");
+        verify(occupancyTracker).onExits(1L, 2);
+        assertEquals(1, meterRegistry.get(ParkingMetrics.BATCH_EVENTS)
+                .tags("operation", "exit", "outcome", "not_found").counter().count());
+    }
+
+    @Test
+    void givenOversizedBatch_whenRegisterEntries_thenThrowsException() {
+        ReflectionTestUtils.setField(service, "maxBatchItems", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> service.registerEntries(List.of(
+                new EntryCommand("A123BC", CarType.SEDAN),
+                new EntryCommand("B456DE", CarType.SEDAN))));
+        verifyNoInteractions(jdbcRepository);
     }
 }
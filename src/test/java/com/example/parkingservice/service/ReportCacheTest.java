@@ -0,0 +1,134 @@
+package com.example.parkingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 1, 8, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 5, 1, 18, 0);
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Double load(LocalDateTime start, LocalDateTime end) {
+        loads.incrementAndGet();
+        return 600.0;
+    }
+
+    @Test
+    void givenSameWindowWithinTtl_whenAverage_thenLoadsOnce() {
+        var cache = new ReportCache(10, Duration.ofSeconds(5), now::get);
+
+        cache.averageSeconds(1L, START, END, this::load);
+        cache.averageSeconds(1L, START.plusNanos(300_000_000), END.plusNanos(700_000_000), this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void givenExpiredEntry_whenAverage_thenReloads() {
+        var cache = new ReportCache(10, Duration.ofSeconds(5), now::get);
+
+        cache.averageSeconds(1L, START, END, this::load);
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.averageSeconds(1L, START, END, this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void givenFullCache_whenNewWindow_thenEvictsLeastRecentlyUsed() {
+        var cache = new ReportCache(2, Duration.ofSeconds(5), now::get);
+
+        cache.averageSeconds(1L, START, END, this::load);
+        cache.averageSeconds(1L, START.plusHours(1), END, this::load);
+        cache.averageSeconds(1L, START, END, this::load);
+        cache.averageSeconds(1L, START.plusHours(2), END, this::load);
+        cache.averageSeconds(1L, START, END, this::load);
+
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void givenExitInsideWindow_whenInvalidate_thenOnlyOverlappingWindowsOfLotDropped() {
+        var cache = new ReportCache(10, Duration.ofSeconds(5), now::get);
+        cache.averageSeconds(1L, START, END, this::load);
+        cache.averageSeconds(1L, START.minusDays(1), START.minusHours(1), this::load);
+        cache.averageSeconds(2L, START, END, this::load);
+
+        cache.invalidate(1L, END.minusMinutes(5), END.minusMinutes(5));
+
+        assertEquals(2, cache.size());
+        cache.averageSeconds(1L, START.minusDays(1), START.minusHours(1), this::load);
+        cache.averageSeconds(2L, START, END, this::load);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void givenConcurrentMisses_whenAverage_thenSingleLoad() throws Exception {
+        var cache = new ReportCache(10, Duration.ofSeconds(5), now::get);
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.averageSeconds(1L, START, END, (s, e) -> {
+                loading.countDown();
+                await(release);
+                return load(s, e);
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cache.averageSeconds(1L, START, END, this::load)));
+            }
+            while (cache.hitCount() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<Double> result : results) {
+                assertEquals(600.0, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenFailedLoad_whenAverageAgain_thenRetries() {
+        var cache = new ReportCache(10, Duration.ofSeconds(5), now::get);
+
+        assertThrows(IllegalStateException.class, () -> cache.averageSeconds(1L, START, END, (s, e) -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals(600.0, cache.averageSeconds(1L, START, END, this::load));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
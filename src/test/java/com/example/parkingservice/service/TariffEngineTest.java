@@ -0,0 +1,62 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.TariffEngine.Tariff;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffEngineTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    @Test
+    void givenSessionAcrossBands_whenFee_thenEachBandChargedAtItsRate() {
+        TariffEngine engine = engine(Tariff.parse("08:00=10000,20:00=5000", 0));
+
+        // 30 минут дневной ставки и 30 минут вечерней
+        assertEquals(7500, engine.fee(CarType.SEDAN, DAY.withHour(19).withMinute(30), DAY.withHour(20).withMinute(30)));
+        // до первой полосы действует последняя: ночь по вечерней ставке
+        assertEquals(10000, engine.fee(CarType.SEDAN, DAY.withHour(2), DAY.withHour(4)));
+    }
+
+    @Test
+    void givenSessionOverSeveralDays_whenFee_thenCapAppliesToEachCalendarDay() {
+        TariffEngine engine = engine(Tariff.parse("00:00=5000,08:00=10000,20:00=5000", 60000));
+
+        long fee = engine.fee(CarType.TRUCK, DAY.withHour(18), DAY.plusDays(2).withHour(9));
+
+        // 40 000 в первые сутки, предел 60 000 за полные вторые, 50 000 в третьи
+        assertEquals(150000, fee);
+    }
+
+    @Test
+    void givenPartOfKopeck_whenFee_thenRoundedUp() {
+        TariffEngine engine = engine(Tariff.parse("00:00=10000", 0));
+
+        assertEquals(3, engine.fee(CarType.VAN, DAY.withHour(10), DAY.withHour(10).withSecond(1)));
+        assertEquals(0, engine.fee(CarType.VAN, DAY.withHour(10), DAY.withHour(10)));
+    }
+
+    @Test
+    void givenTariffs_whenDefinition_thenChangesOnlyWithTariffs() {
+        Tariff tariff = Tariff.parse("20:00=5000, 08:00=10000", 150000);
+
+        assertEquals(engine(tariff).definition(), engine(Tariff.parse("08:00=10000,20:00=5000", 150000)).definition());
+        assertNotEquals(engine(tariff).definition(), engine(Tariff.parse("08:00=10000,20:00=5000", 100000)).definition());
+        assertThrows(IllegalArgumentException.class, () -> Tariff.parse("08:00-10000", 0));
+        assertThrows(IllegalArgumentException.class, () -> Tariff.parse("08:00:30=10000", 0));
+    }
+
+    private static TariffEngine engine(Tariff tariff) {
+        Map<CarType, Tariff> tariffs = Arrays.stream(CarType.values())
+                .collect(Collectors.toMap(Function.identity(), carType -> tariff));
+        return new TariffEngine(tariffs);
+    }
+}
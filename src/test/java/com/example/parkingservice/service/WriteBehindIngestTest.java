@@ -0,0 +1,90 @@
+package com.example.parkingservice.service;
+
+import com.example.parkingservice.entity.CarType;
+import com.example.parkingservice.service.GateEventLog.GateEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindIngestTest {
+
+    @TempDir
+    Path dir;
+
+    private final GateEventFlusher flusher = mock(GateEventFlusher.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private WriteBehindIngest ingest;
+
+    @BeforeEach
+    void setUp() {
+        ingest = newIngest();
+    }
+
+    @Test
+    void givenEventRejectedByDatabase_whenFlush_thenSkipsItAndWritesTheRest() {
+        List<List<String>> batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<String> plates = invocation.<List<GateEvent>>getArgument(1).stream()
+                    .map(GateEvent::licensePlate).toList();
+            batches.add(plates);
+            if (plates.contains("POISON")) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return null;
+        }).when(flusher).apply(anyString(), anyList(), anyLong());
+        ingest.appendEntry(1L, "A111AA", CarType.SEDAN);
+        ingest.appendEntry(1L, "POISON", CarType.SEDAN);
+        ingest.appendEntry(1L, "C333CC", CarType.SEDAN);
+
+        ingest.flush();
+
+        assertEquals(List.of(List.of("A111AA", "POISON", "C333CC"), List.of("A111AA"), List.of("POISON"),
+                List.of(), List.of("C333CC")), batches);
+        assertEquals(0, ingest.lag());
+        assertEquals(1.0, registry.get("parking.ingest.skipped").counter().count());
+    }
+
+    @Test
+    void givenDatabaseUnavailable_whenFlush_thenKeepsBatchForRetry() {
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(flusher).apply(anyString(), anyList(), anyLong());
+        ingest.appendEntry(1L, "A111AA", CarType.SEDAN);
+        ingest.appendExit(1L, "A111AA");
+
+        ingest.flush();
+
+        verify(flusher, times(1)).apply(anyString(), anyList(), anyLong());
+        assertTrue(ingest.lag() > 0);
+        assertEquals(0.0, registry.get("parking.ingest.skipped").counter().count());
+    }
+
+    @Test
+    void givenNoConfiguredName_whenRestarted_thenKeepsGeneratedLogName() {
+        ingest.close();
+        newIngest().close();
+
+        ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        verify(flusher, times(2)).flushedOffset(names.capture());
+        assertNotEquals("gate", names.getAllValues().get(0));
+        assertEquals(names.getAllValues().get(0), names.getAllValues().get(1));
+    }
+
+    private WriteBehindIngest newIngest() {
+        return new WriteBehindIngest(flusher, mock(ParkingLotService.class), registry, dir, "",
+                DataSize.ofBytes(GateEventLog.MIN_SEGMENT_SIZE), false, DataSize.ofMegabytes(1), 100);
+    }
+}